@@ -0,0 +1,110 @@
+package com.cloudurable.docgen;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.body.EnumDeclaration;
+import com.github.javaparser.ast.body.FieldDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Compares the old way of extracting Javadoc and bodies, pretty-printing every node and running a
+ * DOTALL regex over the printed text, with ClassVisitor, which slices both out of the original source.
+ * Both sides parse the same corpus. Point {@code sourceDir} at a large checkout to measure a real corpus,
+ * for example {@code java -jar build/libs/java2csv-*-jmh.jar JavaDocExtractionBenchmark -p sourceDir=/path/to/repo},
+ * otherwise a generated corpus is used.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class JavaDocExtractionBenchmark {
+
+    private static final Pattern JAVA_DOC_REGEX = Pattern.compile("^/\\*\\*.*?\\*/\\s*", Pattern.DOTALL);
+
+    @Param("")
+    public String sourceDir;
+
+    private List<String> sources;
+    private final JavaParser parser = new JavaParser();
+
+    @Setup
+    public void setUp() throws IOException {
+        if (sourceDir.isEmpty()) {
+            sources = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                sources.add(generate(i));
+            }
+        } else {
+            try (Stream<Path> walk = Files.walk(Path.of(sourceDir))) {
+                sources = walk.filter(p -> p.toString().endsWith(".java")).map(p -> {
+                    try {
+                        return new String(Files.readAllBytes(p), StandardCharsets.UTF_8);
+                    } catch (IOException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }).collect(Collectors.toList());
+            }
+        }
+    }
+
+    @Benchmark
+    public void printAndRegex(Blackhole blackhole) {
+        for (String source : sources) {
+            final CompilationUnit compilationUnit = parser.parse(source).getResult().orElseThrow();
+            compilationUnit.findAll(Node.class, node -> node instanceof ClassOrInterfaceDeclaration
+                            || node instanceof EnumDeclaration || node instanceof MethodDeclaration || node instanceof FieldDeclaration)
+                    .forEach(node -> {
+                        final String code = node.toString();
+                        final Matcher matcher = JAVA_DOC_REGEX.matcher(code);
+                        if (matcher.find()) {
+                            blackhole.consume(matcher.group());
+                            blackhole.consume(code.substring(matcher.end()));
+                        } else {
+                            blackhole.consume(code);
+                        }
+                    });
+        }
+    }
+
+    @Benchmark
+    public void sliceAttachedComment(Blackhole blackhole) {
+        for (String source : sources) {
+            blackhole.consume(new ClassVisitor().run(parser, source));
+        }
+    }
+
+    private static String generate(int index) {
+        final StringBuilder builder = new StringBuilder("package bench;\n\nimport java.util.List;\n\n")
+                .append("/**\n * Generated class ").append(index).append(".\n */\n")
+                .append("public class Generated").append(index).append(" {\n");
+        for (int i = 0; i < 20; i++) {
+            builder.append("    /** Field ").append(i).append(". */\n")
+                    .append("    private int field").append(i).append(" = ").append(i).append(";\n\n")
+                    .append("    /**\n     * Method ").append(i).append(".\n     */\n")
+                    .append("    public int method").append(i).append("(int value) {\n");
+            for (int j = 0; j < 10; j++) {
+                builder.append("        value = value * ").append(j + 1).append(" + field").append(i).append(";\n");
+            }
+            builder.append("        return value;\n    }\n\n");
+        }
+        return builder.append("}\n").toString();
+    }
+}
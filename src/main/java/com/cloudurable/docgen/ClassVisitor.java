@@ -1,11 +1,17 @@
 package com.cloudurable.docgen;
 
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseProblemException;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.Position;
+import com.github.javaparser.Range;
 import com.github.javaparser.StaticJavaParser;
 import com.github.javaparser.ast.CompilationUnit;
 import com.github.javaparser.ast.Modifier;
 import com.github.javaparser.ast.Node;
 import com.github.javaparser.ast.NodeList;
 import com.github.javaparser.ast.body.*;
+import com.github.javaparser.ast.comments.Comment;
 import com.github.javaparser.ast.expr.AnnotationExpr;
 import com.github.javaparser.ast.nodeTypes.NodeWithName;
 import com.github.javaparser.ast.nodeTypes.NodeWithSimpleName;
@@ -13,26 +19,55 @@ import com.github.javaparser.ast.type.Type;
 import com.github.javaparser.ast.visitor.VoidVisitorAdapter;
 
 import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 /**
  * Visitor for visiting classes, interfaces, and enums.
  */
-class ClassVisitor extends VoidVisitorAdapter<Void> {
+public class ClassVisitor extends VoidVisitorAdapter<Void> {
 
-    private static final Pattern JAVA_DOC_REGEX = Pattern.compile("^/\\*\\*.*?\\*/\\s*", Pattern.DOTALL);
+    private static final int TRUNCATED_LINES = 200;
 
     private final List<JavaItem> javaItems;
+    private final ScanMode mode;
+    private final StringInterner interner;
     private CompilationUnit compilationUnit;
+    /** Package and import block of the compilation unit, computed once and shared by every type in it. */
+    private String packageName;
+    private String importBody;
+    private String source;
+    private int[] lineStarts;
 
     public ClassVisitor() {
+        this(ScanMode.FULL);
+    }
+
+    /**
+     * Creates a visitor that extracts items as described by the scan mode.
+     *
+     * @param mode how much of each item to extract
+     */
+    public ClassVisitor(ScanMode mode) {
+        this(mode, new StringInterner());
+    }
+
+    /**
+     * Creates a visitor that extracts items as described by the scan mode.
+     *
+     * @param mode     how much of each item to extract
+     * @param interner table shared across a scan, so identical import blocks are held once
+     */
+    public ClassVisitor(ScanMode mode, StringInterner interner) {
         this.javaItems = new ArrayList<>(32);
+        this.mode = mode;
+        this.interner = interner;
     }
 
 
@@ -51,51 +86,118 @@ class ClassVisitor extends VoidVisitorAdapter<Void> {
     }
 
     /**
-     * Returns the definition of the given object's body with a maximum number of lines.
-     * If the number of lines exceeds the maximum, an empty string is returned.
+     * Extracts the Javadoc comment and the code of the given node from the original source.
+     * The Javadoc is the node's attached Javadoc comment plus the whitespace after it, and the code is
+     * the rest of the node's range, so no regex pass or printed copy of the node is needed.
+     * Other attached comments stay part of the code.
+     * If the number of lines exceeds the maximum, only the first 200 lines are kept.
      *
-     * @param n           the object
-     * @param numLinesMax the maximum number of lines
-     * @return the body definition
+     * @param n               the node
+     * @param numLinesMax     the maximum number of lines
+     * @param declarationOnly stop the code at the first open brace
+     * @return an array containing the Javadoc comment and the code
      */
-    private static String getBodyDefinition(Object n, int numLinesMax) {
-        String[] lines = n.toString().split("\n");
-        if (lines.length > numLinesMax) {
-            int count = 0;
-            StringBuilder builder = new StringBuilder(lines.length * 20);
-            for (String line : lines) {
-                builder.append(line).append('\n');
-                count++;
-                if (count >= 200) {
-                    break;
-                }
+    private String[] extractJavaDoc(Node n, int numLinesMax, boolean declarationOnly) {
+        final Optional<Range> range = n.getRange();
+        if (source == null || range.isEmpty()) {
+            return extractPrintedJavaDoc(n, numLinesMax, declarationOnly);
+        }
+        final int nodeBegin = offset(range.get().begin);
+        int end = Math.min(source.length(), offset(range.get().end) + 1);
+        if (declarationOnly) {
+            final int brace = source.indexOf('{', nodeBegin);
+            if (brace >= 0 && brace < end) {
+                end = brace;
+            }
+        }
+        final Optional<Comment> comment = n.getComment();
+        final int begin = comment.flatMap(Node::getBegin).map(this::offset)
+                .filter(commentBegin -> commentBegin < nodeBegin).orElse(nodeBegin);
+        end = truncatedEnd(source, begin, end, numLinesMax);
+
+        if (begin < nodeBegin && comment.get().isJavadocComment() && comment.get().getEnd().isPresent()) {
+            int codeBegin = offset(comment.get().getEnd().get()) + 1;
+            while (codeBegin < nodeBegin && Character.isWhitespace(source.charAt(codeBegin))) {
+                codeBegin++;
             }
-            return builder.toString();
-        } else {
-            return n.toString();
+            codeBegin = Math.min(codeBegin, end);
+            return new String[]{source.substring(begin, codeBegin), source.substring(codeBegin, end)};
         }
+        return new String[]{"", source.substring(begin, end)};
     }
 
     /**
-     * Extracts the Javadoc comment and method code from the given code.
+     * Extracts the Javadoc comment and the code from the printed node, for nodes that have no source range.
      *
-     * @param code the input code
-     * @return an array containing the Javadoc comment and method code
+     * @param n               the node
+     * @param numLinesMax     the maximum number of lines
+     * @param declarationOnly stop the code at the first open brace
+     * @return an array containing the Javadoc comment and the code
      */
-    public String[] extractJavaDoc(String code) {
-        // Define the regular expression pattern to match Javadoc comments
-        Matcher matcher = JAVA_DOC_REGEX.matcher(code);
+    private static String[] extractPrintedJavaDoc(Node n, int numLinesMax, boolean declarationOnly) {
+        final String javadoc = n.getComment().filter(Comment::isJavadocComment).map(Node::toString).orElse("");
+        final String text = n.toString();
+        final String code = text.startsWith(javadoc) ? text.substring(javadoc.length()) : text;
+        if (declarationOnly) {
+            return new String[]{javadoc, getSmallDefinition(code)};
+        }
+        return new String[]{javadoc, code.substring(0, truncatedEnd(code, 0, code.length(), numLinesMax))};
+    }
 
-        if (matcher.find()) {
-            // Extract the Javadoc comment
-            String javadoc = matcher.group();
+    /**
+     * Finds where the text between begin and end should be cut by counting newlines in place.
+     *
+     * @param text        the text
+     * @param begin       the start offset
+     * @param end         the end offset, exclusive
+     * @param numLinesMax the maximum number of lines
+     * @return end, or the offset just after line 200 if the text has more than numLinesMax lines
+     */
+    private static int truncatedEnd(CharSequence text, int begin, int end, int numLinesMax) {
+        int lines = 1;
+        int cut = end;
+        for (int i = begin; i < end; i++) {
+            if (text.charAt(i) == '\n') {
+                lines++;
+                if (lines == TRUNCATED_LINES + 1) {
+                    cut = i + 1;
+                }
+                if (lines > numLinesMax) {
+                    return cut;
+                }
+            }
+        }
+        return end;
+    }
 
-            // Extract the method code
-            String methodCode = code.substring(matcher.end());
+    /**
+     * Converts a parser position to an offset in the source text.
+     * Positions use 1 based lines and columns with a tab size of one.
+     *
+     * @param position the position
+     * @return the offset in the source
+     */
+    private int offset(Position position) {
+        final int line = Math.min(Math.max(position.line, 1), lineStarts.length) - 1;
+        return Math.min(source.length(), Math.max(0, lineStarts[line] + position.column - 1));
+    }
 
-            return new String[]{javadoc, methodCode};
-        } else {
-            return new String[]{"", code}; // No Javadoc found
+    private void setSource(String source) {
+        this.source = source;
+        int count = 1;
+        for (int i = 0; i < source.length(); i++) {
+            final char c = source.charAt(i);
+            if (c == '\n' || (c == '\r' && (i + 1 == source.length() || source.charAt(i + 1) != '\n'))) {
+                count++;
+            }
+        }
+        lineStarts = new int[count];
+        int line = 1;
+        for (int i = 0; i < source.length(); i++) {
+            final char c = source.charAt(i);
+            if (c == '\n' || (c == '\r' && (i + 1 == source.length() || source.charAt(i + 1) != '\n'))) {
+                lineStarts[line++] = i + 1;
+            }
         }
     }
 
@@ -103,8 +205,8 @@ class ClassVisitor extends VoidVisitorAdapter<Void> {
     public void visit(ClassOrInterfaceDeclaration cls, Void arg) {
         if (!cls.isInnerClass() && !cls.isStatic()) {
             visitClass(
-                    compilationUnit.getPackageDeclaration().map(NodeWithName::getNameAsString).orElse(""),
-                    compilationUnit.getImports().stream().map(Node::toString).collect(Collectors.joining("\n")),
+                    packageName,
+                    importBody,
                     cls
             );
         }
@@ -135,7 +237,7 @@ class ClassVisitor extends VoidVisitorAdapter<Void> {
      * @param cls         the class or interface
      */
     public void visitClass(String packageName, String importBody, ClassOrInterfaceDeclaration cls) {
-        final String[] parts = extractJavaDoc(getBodyDefinition(cls, 200));
+        final String[] parts = extractJavaDoc(cls, 200, mode == ScanMode.DECLARATIONS);
         final String javaDoc = parts[0];
         final String code = parts[1];
 
@@ -147,7 +249,7 @@ class ClassVisitor extends VoidVisitorAdapter<Void> {
                 .simpleName(cls.getNameAsString())
                 .definition(getSmallDefinition(code))
                 .javadoc(javaDoc)
-                .body(code)
+                .body(mode == ScanMode.FULL ? code : "")
                 .build();
         javaItems.add(javaItem);
         cls.getChildNodes().stream().filter(n -> n instanceof ClassOrInterfaceDeclaration)
@@ -165,7 +267,7 @@ class ClassVisitor extends VoidVisitorAdapter<Void> {
      * @param cls         the class or interface type
      */
     private void visitClassType(String packageName, String importBody, JavaItem parent, ClassOrInterfaceDeclaration cls) {
-        final String[] parts = extractJavaDoc(getBodyDefinition(cls, 200));
+        final String[] parts = extractJavaDoc(cls, 200, mode == ScanMode.DECLARATIONS);
         final String javaDoc = parts[0];
         final String code = parts[1];
 
@@ -177,7 +279,7 @@ class ClassVisitor extends VoidVisitorAdapter<Void> {
                 .definition(getSmallDefinition(code))
                 .javadoc(javaDoc)
                 .parent(parent)
-                .body(code)
+                .body(mode == ScanMode.FULL ? code : "")
                 .build();
         javaItems.add(javaItem);
     }
@@ -190,7 +292,7 @@ class ClassVisitor extends VoidVisitorAdapter<Void> {
      */
     private void visitField(JavaItem parent, FieldDeclaration field) {
 
-        final String[] parts = extractJavaDoc(field.toString());
+        final String[] parts = extractJavaDoc(field, Integer.MAX_VALUE, false);
         final String javaDoc = parts[0];
         final String code = parts[1];
 
@@ -225,7 +327,7 @@ class ClassVisitor extends VoidVisitorAdapter<Void> {
         String definition = String.format("%s %s %s(%s)", mods, type, method.getName(), params);
         NodeList<AnnotationExpr> annotations = method.getAnnotations();
 
-        String[] parts = extractJavaDoc(getBodyDefinition(method, 500));
+        String[] parts = extractJavaDoc(method, 500, mode == ScanMode.DECLARATIONS);
         final String javaDoc = parts[0];
         final String code = parts[1];
 
@@ -236,7 +338,7 @@ class ClassVisitor extends VoidVisitorAdapter<Void> {
                 .definition(definition)
                 .javadoc(javaDoc)
                 .parent(parent)
-                .body(code)
+                .body(mode == ScanMode.FULL ? code : "")
                 .build();
         javaItems.add(javaItem);
         //System.out.println(item);
@@ -245,8 +347,8 @@ class ClassVisitor extends VoidVisitorAdapter<Void> {
     @Override
     public void visit(EnumDeclaration n, Void arg) {
         visitEnum(
-                compilationUnit.getPackageDeclaration().map(NodeWithName::getNameAsString).orElse(""),
-                compilationUnit.getImports().stream().map(Node::toString).collect(Collectors.joining("\n")),
+                packageName,
+                importBody,
                 n
         );
         super.visit(n, arg);
@@ -260,7 +362,7 @@ class ClassVisitor extends VoidVisitorAdapter<Void> {
      * @param enumD       the enum
      */
     private void visitEnum(String packageName, String importBody, EnumDeclaration enumD) {
-        String[] parts = extractJavaDoc(getBodyDefinition(enumD, 200));
+        String[] parts = extractJavaDoc(enumD, 200, mode == ScanMode.DECLARATIONS);
         final String javaDoc = parts[0];
         final String code = parts[1];
 
@@ -271,16 +373,55 @@ class ClassVisitor extends VoidVisitorAdapter<Void> {
                 .simpleName(enumD.getNameAsString())
                 .definition(getSmallDefinition(code))
                 .javadoc(javaDoc)
-                .body(code)
+                .body(mode == ScanMode.FULL ? code : "")
                 .build();
         javaItems.add(javaItem);
         enumD.getMethods().forEach(method -> visitMethod(javaItem, method));
         enumD.getFields().forEach(field -> visitField(javaItem, field));
     }
 
-    public List<JavaItem> run(File file) throws FileNotFoundException {
-        compilationUnit = StaticJavaParser.parse(file);
-        compilationUnit.accept(this, null);
+    private void visitCompilationUnit(CompilationUnit unit) {
+        compilationUnit = unit;
+        packageName = unit.getPackageDeclaration().map(NodeWithName::getNameAsString).orElse("");
+        importBody = interner.intern(unit.getImports().stream().map(Node::toString).collect(Collectors.joining("\n")));
+        unit.accept(this, null);
+    }
+
+    public List<JavaItem> run(File file) throws IOException {
+        final String text = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        setSource(mode == ScanMode.DECLARATIONS ? DeclarationLexer.stripBodies(text) : text);
+        visitCompilationUnit(StaticJavaParser.parse(source));
+        return this.javaItems;
+    }
+
+    /**
+     * Parses the given file with the supplied parser and returns the items found.
+     * JavaParser instances are not thread safe, so each thread needs its own parser.
+     *
+     * @param parser the parser owned by the calling thread
+     * @param file   the Java source file
+     * @return the items found in the file
+     * @throws IOException if the file can not be read
+     */
+    public List<JavaItem> run(JavaParser parser, Path file) throws IOException {
+        return run(parser, new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Parses the given source text with the supplied parser and returns the items found.
+     *
+     * @param parser the parser owned by the calling thread
+     * @param source the content of a Java source file
+     * @return the items found in the source
+     * @throws ParseProblemException if the source does not parse
+     */
+    public List<JavaItem> run(JavaParser parser, String source) {
+        setSource(mode == ScanMode.DECLARATIONS ? DeclarationLexer.stripBodies(source) : source);
+        final ParseResult<CompilationUnit> result = parser.parse(this.source);
+        if (!result.isSuccessful() || result.getResult().isEmpty()) {
+            throw new ParseProblemException(result.getProblems());
+        }
+        visitCompilationUnit(result.getResult().get());
         return this.javaItems;
     }
 }
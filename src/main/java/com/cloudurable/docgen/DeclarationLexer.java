@@ -0,0 +1,253 @@
+package com.cloudurable.docgen;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Lightweight lexer that blanks out method, constructor and initializer bodies in Java source.
+ * <p>
+ * It only tracks what a declaration needs: comments, string, text block and char literals,
+ * parentheses and braces. A brace at member level opens a type body when the declaration in
+ * front of it starts, after any annotations and modifiers, with {@code class}, {@code interface},
+ * {@code enum} or {@code record} followed by a name, an expression when the declaration contains
+ * {@code =}, and a body otherwise. A method named {@code record()} is therefore still a body. Everything between
+ * the braces of a body is replaced with spaces, keeping line breaks, so the parser skips the
+ * statements entirely while line and column positions stay the same as in the original source.
+ */
+class DeclarationLexer {
+
+    private final char[] text;
+    private int pos;
+
+    private DeclarationLexer(String source) {
+        this.text = source.toCharArray();
+    }
+
+    /**
+     * Returns the source with all member bodies replaced by whitespace.
+     *
+     * @param source the Java source
+     * @return the source with empty bodies, same length and line layout as the input
+     */
+    static String stripBodies(String source) {
+        final DeclarationLexer lexer = new DeclarationLexer(source);
+        lexer.run();
+        return new String(lexer.text);
+    }
+
+    private void run() {
+        // true for each open type body, false for the compilation unit itself
+        final Deque<Boolean> types = new ArrayDeque<>();
+        types.push(Boolean.FALSE);
+        boolean sawAssign = false;
+        boolean sawTypeKeyword = false;
+        // true until the declaration has anything but annotations and modifiers
+        boolean declarationStart = true;
+        boolean inAnnotation = false;
+        int parenDepth = 0;
+
+        while (pos < text.length) {
+            if (skipCommentOrLiteral()) {
+                continue;
+            }
+            final char c = text[pos];
+            if (Character.isJavaIdentifierStart(c)) {
+                final int start = pos;
+                while (pos < text.length && Character.isJavaIdentifierPart(text[pos])) {
+                    pos++;
+                }
+                if (parenDepth == 0) {
+                    if (inAnnotation) {
+                        // Annotation names may be qualified; @interface declares an annotation type.
+                        inAnnotation = pos < text.length && text[pos] == '.';
+                        if (!(pos - start == 9 && matches(start, "interface"))) {
+                            continue;
+                        }
+                    }
+                    if (declarationStart) {
+                        if (isTypeKeyword(start, pos) && isFollowedByIdentifier()) {
+                            sawTypeKeyword = true;
+                            declarationStart = false;
+                        } else if (!isModifier(start, pos)) {
+                            declarationStart = false;
+                        }
+                    }
+                }
+                continue;
+            }
+            switch (c) {
+                case '@':
+                    if (parenDepth == 0) {
+                        inAnnotation = true;
+                    }
+                    break;
+                case '(':
+                    parenDepth++;
+                    break;
+                case ')':
+                    parenDepth = Math.max(0, parenDepth - 1);
+                    break;
+                case '=':
+                    if (parenDepth == 0) {
+                        sawAssign = true;
+                    }
+                    break;
+                case ';':
+                    if (parenDepth == 0) {
+                        sawAssign = false;
+                        sawTypeKeyword = false;
+                        declarationStart = true;
+                    }
+                    break;
+                case '{':
+                    if (parenDepth > 0 || sawAssign) {
+                        skipBlock(false);
+                        continue;
+                    } else if (sawTypeKeyword) {
+                        types.push(Boolean.TRUE);
+                        sawTypeKeyword = false;
+                        declarationStart = true;
+                    } else {
+                        skipBlock(true);
+                        sawAssign = false;
+                        declarationStart = true;
+                        continue;
+                    }
+                    break;
+                case '}':
+                    if (types.size() > 1) {
+                        types.pop();
+                    }
+                    sawAssign = false;
+                    sawTypeKeyword = false;
+                    declarationStart = true;
+                    parenDepth = 0;
+                    break;
+                default:
+                    break;
+            }
+            pos++;
+        }
+    }
+
+    /**
+     * Moves past the block starting at the current open brace, blanking its content if asked to.
+     * Leaves the position just after the matching close brace.
+     */
+    private void skipBlock(boolean blank) {
+        final int open = pos++;
+        int depth = 1;
+        while (pos < text.length && depth > 0) {
+            if (skipCommentOrLiteral()) {
+                continue;
+            }
+            if (text[pos] == '{') {
+                depth++;
+            } else if (text[pos] == '}') {
+                depth--;
+            }
+            pos++;
+        }
+        if (blank) {
+            final int close = depth == 0 ? pos - 1 : pos;
+            for (int i = open + 1; i < close; i++) {
+                if (text[i] != '\n' && text[i] != '\r') {
+                    text[i] = ' ';
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves past a comment or literal starting at the current position.
+     *
+     * @return true if the position was at a comment or literal
+     */
+    private boolean skipCommentOrLiteral() {
+        final char c = text[pos];
+        if (c == '/' && pos + 1 < text.length && text[pos + 1] == '/') {
+            while (pos < text.length && text[pos] != '\n' && text[pos] != '\r') {
+                pos++;
+            }
+            return true;
+        }
+        if (c == '/' && pos + 1 < text.length && text[pos + 1] == '*') {
+            pos += 2;
+            while (pos < text.length && !(text[pos] == '*' && pos + 1 < text.length && text[pos + 1] == '/')) {
+                pos++;
+            }
+            pos = Math.min(text.length, pos + 2);
+            return true;
+        }
+        if (c == '"' && pos + 2 < text.length && text[pos + 1] == '"' && text[pos + 2] == '"') {
+            pos += 3;
+            while (pos < text.length && !(text[pos] == '"' && pos + 2 < text.length && text[pos + 1] == '"' && text[pos + 2] == '"')) {
+                pos += text[pos] == '\\' ? 2 : 1;
+            }
+            pos = Math.min(text.length, pos + 3);
+            return true;
+        }
+        if (c == '"' || c == '\'') {
+            pos++;
+            while (pos < text.length && text[pos] != c && text[pos] != '\n') {
+                pos += text[pos] == '\\' ? 2 : 1;
+            }
+            pos = Math.min(text.length, pos + 1);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Tells if the next token, past whitespace and comments, is an identifier, as the name after a type keyword is.
+     */
+    private boolean isFollowedByIdentifier() {
+        int i = pos;
+        while (i < text.length) {
+            if (Character.isWhitespace(text[i])) {
+                i++;
+            } else if (text[i] == '/' && i + 1 < text.length && text[i + 1] == '/') {
+                while (i < text.length && text[i] != '\n') {
+                    i++;
+                }
+            } else if (text[i] == '/' && i + 1 < text.length && text[i + 1] == '*') {
+                i += 2;
+                while (i < text.length && !(text[i] == '*' && i + 1 < text.length && text[i + 1] == '/')) {
+                    i++;
+                }
+                i += 2;
+            } else {
+                return Character.isJavaIdentifierStart(text[i]);
+            }
+        }
+        return false;
+    }
+
+    private boolean isModifier(int start, int end) {
+        final int length = end - start;
+        return (length == 6 && (matches(start, "public") || matches(start, "static") || matches(start, "sealed")))
+                || (length == 7 && matches(start, "private"))
+                || (length == 9 && matches(start, "protected"))
+                || (length == 5 && matches(start, "final"))
+                || (length == 8 && (matches(start, "abstract") || matches(start, "strictfp")))
+                // the first half of non-sealed
+                || (length == 3 && matches(start, "non"));
+    }
+
+    private boolean isTypeKeyword(int start, int end) {
+        final int length = end - start;
+        return (length == 5 && matches(start, "class"))
+                || (length == 9 && matches(start, "interface"))
+                || (length == 4 && matches(start, "enum"))
+                || (length == 6 && matches(start, "record"));
+    }
+
+    private boolean matches(int start, String word) {
+        for (int i = 0; i < word.length(); i++) {
+            if (text[start + i] != word.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
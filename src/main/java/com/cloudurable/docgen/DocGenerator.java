@@ -1,23 +1,48 @@
 package com.cloudurable.docgen;
 
 import com.cloudurable.docgen.extract.FileUtils;
+import com.cloudurable.docgen.export.ArrowExporter;
+import com.cloudurable.docgen.export.CsvColumn;
+import com.cloudurable.docgen.export.CsvExporter;
+import com.cloudurable.docgen.export.DeltaCsvExporter;
+import com.cloudurable.docgen.export.ItemHashIndex;
+import com.cloudurable.docgen.export.ItemWriter;
+import com.cloudurable.docgen.export.NdjsonExporter;
+import com.cloudurable.docgen.export.ShardedCsvExporter;
+import com.cloudurable.docgen.export.SqliteExporter;
 import com.cloudurable.docgen.generators.MethodMermaidSequenceGen;
 import com.cloudurable.docgen.generators.PackageMermaidClassDiagramGen;
+import com.cloudurable.docgen.index.ItemPredicates;
+import com.cloudurable.docgen.index.JavaItemIndex;
+import com.cloudurable.docgen.index.JavaItemSnapshot;
+import com.cloudurable.docgen.index.JavaItemStore;
+import com.cloudurable.docgen.llm.CircuitOpenException;
+import com.cloudurable.docgen.llm.LlmGateway;
 import com.cloudurable.docgen.mermaid.validation.*;
 import com.cloudurable.docgen.mermaid.validation.sequence.*;
-import com.cloudurable.jai.OpenAIClient;
+import com.cloudurable.docgen.scan.ParseCache;
+import com.cloudurable.docgen.scan.ScanSink;
+import com.cloudurable.docgen.scan.SourceModule;
+import com.cloudurable.docgen.scan.SourceRoot;
+import com.cloudurable.docgen.scan.SourceScanner;
+import com.cloudurable.docgen.scan.SourceWalker;
 import com.cloudurable.jai.model.ClientResponse;
 import com.cloudurable.jai.model.text.completion.chat.ChatRequest;
 import com.cloudurable.jai.model.text.completion.chat.ChatResponse;
 import com.cloudurable.jai.model.text.completion.chat.Message;
 import com.cloudurable.jai.model.text.completion.chat.Role;
-import com.opencsv.CSVWriter;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -54,9 +79,22 @@ public class DocGenerator {
     private final String outputFile;
     private final boolean inlineMermaid;
     private final boolean useExistingMermaidIfFound;
+    private final int scanParallelism;
+    private final ScanMode scanMode;
+    private final ParseCache parseCache;
+    private final SourceWalker sourceWalker;
+    private final boolean compactStore;
+    private final Path snapshotFile;
+    private final ScanSession scanSession;
+    private final CsvExporter csvExporter;
+    private final LlmGateway llmGateway;
+    private final int generationThreads;
+    private MethodMermaidSequenceGen methodSequenceGen;
+    private PackageMermaidClassDiagramGen classDiagramGen;
 
     /**
      * Constructs a Java2CSV object with the specified directory path and output file.
+     * The scan, export and generation options are only available through {@link #builder()}.
      *
      * @param directoryPath             the path of the directory that contains the Java files to be converted.
      * @param outputFile                the name of the file where the conversion output will be stored.
@@ -65,10 +103,25 @@ public class DocGenerator {
      */
     public DocGenerator(String directoryPath, String outputFile, boolean inlineMermaid,
                         boolean useExistingMermaidIfFound) {
-        this.inputDirectoryPath = directoryPath;
-        this.outputFile = outputFile;
-        this.inlineMermaid = inlineMermaid;
-        this.useExistingMermaidIfFound = useExistingMermaidIfFound;
+        this(builder().inputDirectoryPath(directoryPath).outputFile(outputFile).inlineMermaid(inlineMermaid)
+                .useExistingMermaidIfFound(useExistingMermaidIfFound));
+    }
+
+    private DocGenerator(Builder builder) {
+        this.inputDirectoryPath = builder.inputDirectoryPath;
+        this.outputFile = builder.outputFile;
+        this.inlineMermaid = builder.inlineMermaid;
+        this.useExistingMermaidIfFound = builder.useExistingMermaidIfFound;
+        this.scanParallelism = builder.scanParallelism;
+        this.scanMode = builder.scanMode;
+        this.parseCache = builder.parseCacheDirectory == null ? null : new ParseCache(Path.of(builder.parseCacheDirectory));
+        this.sourceWalker = SourceWalker.builder().excludes(builder.excludes).honorGitignore(builder.honorGitignore).build();
+        this.compactStore = builder.compactStore;
+        this.snapshotFile = builder.snapshotFile == null ? null : Path.of(builder.snapshotFile);
+        this.scanSession = builder.scanSession;
+        this.csvExporter = CsvExporter.builder().columns(builder.csvColumns).gzip(builder.gzipCsv).build();
+        this.llmGateway = builder.llmGateway;
+        this.generationThreads = builder.generationThreads;
     }
 
     /**
@@ -80,6 +133,31 @@ public class DocGenerator {
         return new Builder();
     }
 
+    /**
+     * Creates a scanner for one scan. Close it when done, so a pool of {@code scanParallelism} threads is shut down.
+     */
+    private SourceScanner openScanner(ScanMode mode) {
+        return SourceScanner.builder().parallelism(scanParallelism).mode(mode).parseCache(parseCache).build();
+    }
+
+    private LlmGateway llmGateway() {
+        return llmGateway != null ? llmGateway : LlmGateway.getDefault();
+    }
+
+    private synchronized MethodMermaidSequenceGen methodSequenceGen() {
+        if (methodSequenceGen == null) {
+            methodSequenceGen = new MethodMermaidSequenceGen(llmGateway());
+        }
+        return methodSequenceGen;
+    }
+
+    private synchronized PackageMermaidClassDiagramGen classDiagramGen() {
+        if (classDiagramGen == null) {
+            classDiagramGen = new PackageMermaidClassDiagramGen(llmGateway());
+        }
+        return classDiagramGen;
+    }
+
     public static String extractSequenceDiagram(String mermaidCode) {
 
         mermaidCode = mermaidCode.replace("```mermaid\n", "").replace("```", "");
@@ -104,31 +182,28 @@ public class DocGenerator {
 
         return extractedCode.toString().trim();
     }
-    public static String chat(String input, String system) {
+    public String chat(String input, String system) {
 
 
         System.out.println(input);
 
-        final var client = OpenAIClient.builder().validateJson(true).setApiKey(System.getenv("OPENAI_API_KEY")).build();
+        final var client = llmGateway();
 
         final var chatRequest = ChatRequest.builder().addMessage(Message.builder().role(Role.SYSTEM).content(
                         system)
                 .build()).addMessage(Message.builder().role(Role.USER).content(
                 input).build()).build();
 
-        ClientResponse<ChatRequest, ChatResponse> chat = client.chat(chatRequest);
-        if (chat.getStatusCode().orElse(666) == 503) {
-            for (int i = 0; i < 10; i++ ) {
-                try {
-                    Thread.sleep(1000);
-                    System.out.println("System was busy sleeping " + System.currentTimeMillis());
-                } catch (InterruptedException e) {
+        final String cached = client.cached(chatRequest);
+        if (cached != null) {
+            return cached;
+        }
 
-                }
-            }
-            return chat(input, system);
-        } else if (chat.getStatusCode().orElse(666) >= 200 && chat.getStatusCode().orElse(666)  <= 299) {
-            return chat.getResponse().get().getChoices().get(0).getMessage().getContent();
+        ClientResponse<ChatRequest, ChatResponse> chat = client.chat(chatRequest);
+        if (chat.getStatusCode().orElse(666) >= 200 && chat.getStatusCode().orElse(666)  <= 299) {
+            final String content = chat.getResponse().get().getChoices().get(0).getMessage().getContent();
+            client.cache(chatRequest, content);
+            return content;
         } else {
                 String errorMessage = String.format("Error handling request input: %s\n system: %s\n status code %d \n status message %s ",
                         input, system, chat.getStatusCode().orElse(666), chat.getStatusMessage().orElse(""));
@@ -173,7 +248,7 @@ public class DocGenerator {
 
         final var javaCode = String.join("\n\n", classDefs.toArray(new String[0]));
 
-        final var gen = new PackageMermaidClassDiagramGen();
+        final var gen = classDiagramGen();
         mContent = gen.generateClassDiagramFromPackage(packageName, javaCode);
         FileUtils.writeFile(mermaidFile, mContent);
         final var result = MermaidUtils.runMmdc(mermaidFile, pngFile);
@@ -196,18 +271,19 @@ public class DocGenerator {
         outputDir.mkdirs();
 
         File dir = new File(inputDirectoryPath).getCanonicalFile();
-        if (dir.exists() && dir.isDirectory()) {
+        if (isSourceInput(dir)) {
 
 
             generateAll(outputDir);
 
-            List<JavaItem> javaItems = scanDirectory(dir);
+            JavaItemIndex index = scanSession != null ? scanSession.index()
+                    : new JavaItemIndex(scan(ScanMode.DECLARATIONS, dir));
 
-            Map<String, List<String>> classNameByPackage = mapPackageToClassDefs(javaItems);
+            Map<String, List<String>> classNameByPackage = mapPackageToClassDefs(index);
 
             classNameByPackage.entrySet().stream().forEach(entry -> {
 
-                final var gen = new PackageMermaidClassDiagramGen();
+                final var gen = classDiagramGen();
                 final String packageName = entry.getKey();
 
                 List<String> classDefs = entry.getValue();
@@ -222,102 +298,164 @@ public class DocGenerator {
 
         } else {
             throw new IllegalStateException(String.format(
-                    "Directory does not exist %s or is not a directory", dir));
+                    "Directory does not exist %s or is not a directory or source archive", dir));
         }
     }
 
+    /**
+     * Writes one markdown file per package with a class diagram, class descriptions and, per method,
+     * a code listing, descriptions and a sequence diagram. Every LLM-backed fragment of every package
+     * is submitted up front to a pool of {@code generationThreads} threads, then the fragments are
+     * joined in source order, so the files are the same as a serial run would write.
+     * Package files that already exist are skipped, so after the LLM endpoint has been down long
+     * enough to open the circuit, the next run picks up where this one stopped.
+     *
+     * @throws IOException          if an I/O error occurs
+     * @throws CircuitOpenException if the LLM endpoint stays unhealthy; the packages already written are kept
+     */
     public void genDesignDoc() throws IOException {
 
         File outputDir = new File(outputFile).getParentFile();
         outputDir.mkdirs();
 
         File dir = new File(inputDirectoryPath).getCanonicalFile();
-        if (dir.exists() && dir.isDirectory()) {
+        if (isSourceInput(dir)) {
 
 
             generateAll(outputDir);
 
-            List<JavaItem> javaItems = scanDirectory(dir);
+            JavaItemIndex index = index(dir);
 
-            Map<String, List<String>> classNameByPackage = mapPackageToClassDefs(javaItems);
+            Map<String, List<String>> classNameByPackage = mapPackageToClassDefs(index);
 
-            classNameByPackage.entrySet().stream().forEach(entry -> {
-                final String packageName = entry.getKey();
-                final String markdownForPackage = packageName.replace(".", "_") + ".md";
-                File markdownFileForPackage = new File(outputDir, markdownForPackage);
-                if (markdownFileForPackage.exists()) {
-                    return;
-                }
+            File mermaid = new File(outputDir, "mermaid");
+            mermaid.mkdirs();
+            File images = new File(outputDir, "images");
+            images.mkdirs();
 
-                List<String> classDefs = entry.getValue();
-                final StringBuilder markdownBuilder = new StringBuilder();
+            final ExecutorService executor = Executors.newFixedThreadPool(generationThreads);
+            try {
+                final Map<File, List<CompletableFuture<String>>> fragmentsByFile = new LinkedHashMap<>();
+
+                classNameByPackage.entrySet().stream().forEach(entry -> {
+                    final String packageName = entry.getKey();
+                    final String markdownForPackage = packageName.replace(".", "_") + ".md";
+                    File markdownFileForPackage = new File(outputDir, markdownForPackage);
+                    if (markdownFileForPackage.exists()) {
+                        return;
+                    }
 
-                File mermaid = new File(outputDir, "mermaid");
-                mermaid.mkdirs();
-                File images = new File(outputDir, "images");
-                images.mkdirs();
+                    List<String> classDefs = entry.getValue();
+                    final List<CompletableFuture<String>> fragments = new ArrayList<>();
 
+                    fragments.add(CompletableFuture.completedFuture("# " + packageName + "\n"));
 
-                markdownBuilder.append("# " + packageName + "\n");
+                    fragments.add(fragment(executor, markdownBuilder -> {
+                        try {
+                            getGenerateUMLClassDiagramForPackage(mermaid, images, packageName, classDefs, markdownBuilder);
+                        } catch (CircuitOpenException e) {
+                            throw e;
+                        } catch (Exception e) {
+                            e.printStackTrace();
+                        }
+                    }));
 
-                try {
-                    getGenerateUMLClassDiagramForPackage(mermaid, images, packageName, classDefs, markdownBuilder);
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
 
+                    createClassStream(index, packageName)
+                            .forEach(javaClass -> {
+                                fragments.add(fragment(executor, markdownBuilder -> generateClassDocs(index, markdownBuilder, javaClass)));
 
-                createClassStream(javaItems, packageName)
-                        .forEach(javaClass -> {
-                            generateClassDocs(javaItems, markdownBuilder, javaClass);
+                                createMethodFilter(index, javaClass)
+                                                .forEach(javaMethod -> {
+                                                    fragments.addAll(generateMethodDocs(executor, mermaid, images, javaClass, javaMethod, diagramFileName(index, javaMethod), packageName));
 
-                            createMethodFilter(javaItems, javaClass)
-                                            .forEach(javaMethod -> {
-                                                generateMethodDocs(markdownBuilder, mermaid, images, javaClass, javaMethod, packageName);
 
+                                                });
+                                    }
+                            );
 
-                                            });
-                                }
-                        );
+                    fragmentsByFile.put(markdownFileForPackage, fragments);
+                });
 
-                try {
-                    Files.write(markdownFileForPackage.toPath(), markdownBuilder.toString().getBytes(StandardCharsets.UTF_8));
+                for (Map.Entry<File, List<CompletableFuture<String>>> entry : fragmentsByFile.entrySet()) {
+                    Files.write(entry.getKey().toPath(), assemble(entry.getValue()).getBytes(StandardCharsets.UTF_8));
 
                     generateAll(outputDir);
-                } catch (IOException e) {
-                    throw new RuntimeException(e);
                 }
-
-            });
+            } finally {
+                executor.shutdownNow();
+            }
 
 
         } else {
             throw new IllegalStateException(String.format(
-                    "Directory does not exist %s or is not a directory", dir));
+                    "Directory does not exist %s or is not a directory or source archive", dir));
         }
     }
 
-    private void generateMethodDocs(StringBuilder markdownBuilder, File mermaid, File images, JavaItem javaClass, JavaItem javaMethod, String packageName) {
-        methodCodeListingJava(markdownBuilder, javaMethod);
+    /**
+     * Runs a markdown writer on the executor and completes with what it wrote.
+     */
+    private static CompletableFuture<String> fragment(Executor executor, Consumer<StringBuilder> writer) {
+        return CompletableFuture.supplyAsync(() -> {
+            final StringBuilder markdownBuilder = new StringBuilder();
+            writer.accept(markdownBuilder);
+            return markdownBuilder.toString();
+        }, executor);
+    }
+
+    /**
+     * Waits for the fragments and joins them in order.
+     */
+    private static String assemble(List<CompletableFuture<String>> fragments) {
+        final StringBuilder markdownBuilder = new StringBuilder();
+        for (CompletableFuture<String> fragment : fragments) {
+            try {
+                markdownBuilder.append(fragment.join());
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        }
+        return markdownBuilder.toString();
+    }
 
-        String briefMethodDescription = briefDescriptionOfMethod(javaClass, javaMethod);
-        String stepByStep = stepByStepMethodDescription(javaClass, javaMethod);
+    private List<CompletableFuture<String>> generateMethodDocs(Executor executor, File mermaid, File images, JavaItem javaClass, JavaItem javaMethod, String fileName, String packageName) {
+        final StringBuilder listing = new StringBuilder();
+        methodCodeListingJava(listing, javaMethod);
 
-        String sequenceDiagram = sequenceDiagramGen(mermaid, images, javaClass, javaMethod, packageName);
+        return List.of(CompletableFuture.completedFuture(listing.toString()),
+                CompletableFuture.supplyAsync(() -> briefDescriptionOfMethod(javaClass, javaMethod) + "\n", executor),
+                CompletableFuture.supplyAsync(() -> stepByStepMethodDescription(javaClass, javaMethod) + "\n", executor),
+                CompletableFuture.supplyAsync(() -> sequenceDiagramGen(mermaid, images, javaClass, javaMethod, fileName, packageName) + "\n", executor));
+    }
 
-        markdownBuilder.append(briefMethodDescription).append("\n")
-                .append(stepByStep).append("\n")
-                .append(sequenceDiagram).append("\n");
+    /**
+     * Returns the base name of the diagram files of a method. Overloads share a full name, so their
+     * names also carry a hash of the definition, which keeps them apart and stable across runs.
+     *
+     * @param index      the index of the scan
+     * @param javaMethod the method
+     * @return the file name without extension
+     */
+    static String diagramFileName(JavaItemIndex index, JavaItem javaMethod) {
+        final String fileName = javaMethod.getName().replace(".", "_");
+        if (index.byName(javaMethod.getName()).size() < 2) {
+            return fileName;
+        }
+        return fileName + "_" + String.format("%08x", javaMethod.getDefinition().hashCode());
     }
 
-    private void generateClassDocs(List<JavaItem> javaItems, StringBuilder markdownBuilder, JavaItem javaClass) {
+    private void generateClassDocs(JavaItemIndex index, StringBuilder markdownBuilder, JavaItem javaClass) {
         markdownBuilder.append("## Class: " + javaClass.getSimpleName()).append("\n");
 
         markdownBuilder.append("\n**" + javaClass.getName()).append("**\n");
 
         markdownBuilder.append("\n```java\n" + javaClass.getDefinition()).append("\n").append("```\n");
 
-        markdownBuilder.append(generateShortDescriptionForClass(javaItems, javaClass)).append("\n");
+        markdownBuilder.append(generateShortDescriptionForClass(index, javaClass)).append("\n");
     }
 
 
@@ -325,7 +463,7 @@ public class DocGenerator {
 
 
 
-        final var mermaidSequenceGen = new MethodMermaidSequenceGen();
+        final var mermaidSequenceGen = methodSequenceGen();
 
         File outputDir = new File(outputFile).getParentFile();
         outputDir.mkdirs();
@@ -336,15 +474,15 @@ public class DocGenerator {
 
 
         File dir = new File(inputDirectoryPath).getCanonicalFile();
-        if (dir.exists() && dir.isDirectory()) {
-            List<JavaItem> javaItems = scanDirectory(dir);
-            Map<String, List<String>> classNameByPackage = mapPackageToClassDefs(javaItems);
+        if (isSourceInput(dir)) {
+            JavaItemIndex index = index(dir);
+            Map<String, List<String>> classNameByPackage = mapPackageToClassDefs(index);
 
             classNameByPackage.entrySet().stream().forEach(entry -> {
                 final String packageName = entry.getKey();
-                createClassStream(javaItems, packageName)
+                createClassStream(index, packageName)
                         .forEach(javaClass -> {
-                                    createMethodFilter(javaItems, javaClass)
+                                    createMethodFilter(index, javaClass)
                                             .forEach(javaMethod -> {
                                                 String sequenceDiagram = mermaidSequenceGen.generateSequenceFromMethod(javaMethod.getBody(), javaMethod.getSimpleName(), javaClass.getSimpleName(), javaClass.getName());
                                                 System.out.println(sequenceDiagram);
@@ -357,15 +495,15 @@ public class DocGenerator {
 
         } else {
             throw new IllegalStateException(String.format(
-                    "Directory does not exist %s or is not a directory", dir));
+                    "Directory does not exist %s or is not a directory or source archive", dir));
         }
     }
 
-    private  String sequenceDiagramGen(File mermaid, File images, JavaItem javaClass, JavaItem javaMethod, String packageName) {
-        final String imageForMethod = javaMethod.getName().replace(".", "_") + ".png";
-        final String mermaidSeqForMethod = javaMethod.getName().replace(".", "_") + ".mmd";
+    private  String sequenceDiagramGen(File mermaid, File images, JavaItem javaClass, JavaItem javaMethod, String fileName, String packageName) {
+        final String imageForMethod = fileName + ".png";
+        final String mermaidSeqForMethod = fileName + ".mmd";
         StringBuilder markdownBuilder = new StringBuilder();
-        final var mermaidSequenceGen = new  MethodMermaidSequenceGen();
+        final var mermaidSequenceGen = methodSequenceGen();
         File mermaidMethodFile = new File(mermaid, mermaidSeqForMethod);
         File pngMethodFile = new File(images, imageForMethod);
         String mContent = "";
@@ -409,7 +547,7 @@ public class DocGenerator {
 
 
 
-    private static String briefDescriptionOfMethod(JavaItem javaClass, JavaItem javaMethod) {
+    private String briefDescriptionOfMethod(JavaItem javaClass, JavaItem javaMethod) {
         StringBuilder markdownBuilder = new StringBuilder();
         try {
             String output = chat(String.format("As an software engineer writing docs create a brief description " +
@@ -422,13 +560,15 @@ public class DocGenerator {
                 markdownBuilder.append("\n").append(output).append("\n");
             }
             return markdownBuilder.toString();
+        } catch (CircuitOpenException e) {
+            throw e;
         } catch (Exception e) {
             e.printStackTrace();
             return "";
         }
     }
 
-    private static String stepByStepMethodDescription(JavaItem javaClass, JavaItem javaMethod) {
+    private String stepByStepMethodDescription(JavaItem javaClass, JavaItem javaMethod) {
         StringBuilder markdownBuilder = new StringBuilder();
         try {
             String output = chat(String.format("You are an software engineer writing docs. " +
@@ -446,6 +586,8 @@ public class DocGenerator {
             } else {
                 return "";
             }
+        } catch (CircuitOpenException e) {
+            throw e;
         } catch (Exception e) {
             e.printStackTrace();
             return "";
@@ -457,41 +599,37 @@ public class DocGenerator {
         markdownBuilder.append("```java\n").append(javaMethod.getBody()).append("\n```\n");
     }
 
-    private static Map<String, List<String>> mapPackageToClassDefs(List<JavaItem> javaItems) {
+    private static Map<String, List<String>> mapPackageToClassDefs(JavaItemIndex index) {
         Map<String, List<String>> classNameByPackage = new HashMap<>();
-        javaItems.stream()
-                .filter(javaItem -> javaItem.getType() == JavaItemType.CLASS || javaItem.getType() == JavaItemType.INTERFACE)
-                .filter(javaItem -> javaItem.getParent() == null)
-                .filter(javaItem -> !javaItem.getSimpleName().endsWith("Test"))
-                .filter(javaItem -> !javaItem.getSimpleName().endsWith("Tests"))
-                .filter(javaItem -> !javaItem.getSimpleName().endsWith("TestBase"))
-                .forEach(
-
-                        javaItem -> {
-                            String fullyQualifiedName = javaItem.getName();
-                            System.out.println(javaItem.getSimpleName());
-                            int lastDotIndex = fullyQualifiedName.lastIndexOf('.');
-                            String packageName = fullyQualifiedName.substring(0, lastDotIndex);
-                            List<String> classDefs = classNameByPackage.getOrDefault(packageName, new ArrayList<>());
-
-                            classDefs.add(javaItem.getDefinition() + "\n\t"
-
-                                    + String.join("\n\t", javaItems.stream().filter(field -> field.getType() == JavaItemType.FIELD)
-                                    .filter(field -> field.getParent() == javaItem)
-
-                                    .map(field -> {
-                                        String definition = field.getDefinition();
-                                        int index = definition.indexOf('=');
-                                        if (index == -1) {
-                                            return definition;
-                                        } else {
-                                            return definition.substring(0, index);
-                                        }
-                                    }).collect(Collectors.toList()).toArray(new String[0])));
-
-                            classNameByPackage.put(packageName, classDefs);
-                        }
-                );
+        for (String packageName : index.packages()) {
+            index.queryPackage(packageName)
+                    .type(JavaItemType.CLASS, JavaItemType.INTERFACE)
+                    .without(ItemPredicates.TEST_TYPE)
+                    .stream()
+                    .forEach(
+
+                            javaItem -> {
+                                System.out.println(javaItem.getSimpleName());
+                                List<String> classDefs = classNameByPackage.getOrDefault(packageName, new ArrayList<>());
+
+                                classDefs.add(javaItem.getDefinition() + "\n\t"
+
+                                        + String.join("\n\t", index.children(javaItem, JavaItemType.FIELD).stream()
+
+                                        .map(field -> {
+                                            String definition = field.getDefinition();
+                                            int assignIndex = definition.indexOf('=');
+                                            if (assignIndex == -1) {
+                                                return definition;
+                                            } else {
+                                                return definition.substring(0, assignIndex);
+                                            }
+                                        }).collect(Collectors.toList()).toArray(new String[0])));
+
+                                classNameByPackage.put(packageName, classDefs);
+                            }
+                    );
+        }
         return classNameByPackage;
     }
 
@@ -537,13 +675,13 @@ public class DocGenerator {
         outputDir.mkdirs();
 
         File dir = new File(inputDirectoryPath).getCanonicalFile();
-        if (dir.exists() && dir.isDirectory()) {
+        if (isSourceInput(dir)) {
 
             generateJavaDocAll(outputDir);
 
-            List<JavaItem> javaItems = scanDirectory(dir);
+            JavaItemIndex index = index(dir);
 
-            Map<String, List<String>> classNameByPackage = mapPackageToClassDefs(javaItems);
+            Map<String, List<String>> classNameByPackage = mapPackageToClassDefs(index);
 
             classNameByPackage.entrySet().stream().forEach(entry -> {
                 final String packageName = entry.getKey();
@@ -556,14 +694,14 @@ public class DocGenerator {
                 final StringBuilder markdownBuilder = new StringBuilder();
                 markdownBuilder.append("# ").append(packageName).append("\n");
 
-                createClassStream(javaItems, packageName)
+                createClassStream(index, packageName)
                         .forEach(javaClass -> {
                                     var classJavadocTmp = javaClass.getJavadoc();
                                     if (classJavadocTmp == null || classJavadocTmp.isBlank()) {
-                                        classJavadocTmp = generateJavaDocForClass(javaItems, markdownBuilder, javaClass, classJavadocTmp);
+                                        classJavadocTmp = generateJavaDocForClass(index, markdownBuilder, javaClass, classJavadocTmp);
                                     }
                                     final var classJavaDoc = classJavadocTmp;
-                                    createMethodFilter(javaItems, javaClass)
+                                    createMethodFilter(index, javaClass)
                                             .forEach(javaMethod -> {
                                                 generateMethodJavaDoc(markdownBuilder, javaClass, classJavaDoc, javaMethod);
                                             });
@@ -581,11 +719,11 @@ public class DocGenerator {
 
         } else {
             throw new IllegalStateException(String.format(
-                    "Directory does not exist %s or is not a directory", dir));
+                    "Directory does not exist %s or is not a directory or source archive", dir));
         }
     }
 
-    private static void generateMethodJavaDoc(StringBuilder markdownBuilder, JavaItem javaClass, String classJavaDoc, JavaItem javaMethod) {
+    private void generateMethodJavaDoc(StringBuilder markdownBuilder, JavaItem javaClass, String classJavaDoc, JavaItem javaMethod) {
         if (javaMethod.getJavadoc() == null || javaMethod.getJavadoc().isBlank()) {
             markdownBuilder.append("## METHOD JAVADOC " + javaMethod.getDefinition()).append("\n");
 
@@ -600,45 +738,33 @@ public class DocGenerator {
                     markdownBuilder.append("\n").append("### ").append(javaMethod.getSimpleName()).append("\n\n");
                     markdownBuilder.append("\n```java\n").append(output).append("\n```\n");
                 }
+            } catch (CircuitOpenException e) {
+                throw e;
             } catch (Exception e) {
                 e.printStackTrace();
             }
         }
     }
 
-    private static Stream<JavaItem> createClassStream(List<JavaItem> javaItems, String packageName) {
-        return javaItems.stream()
-                .filter(javaItem -> javaItem.getType() == JavaItemType.CLASS)
-                .filter(javaItem -> javaItem.getParent() == null)
-                .filter(javaItem -> !javaItem.getSimpleName().startsWith("Test"))
-                .filter(javaItem -> !javaItem.getSimpleName().endsWith("Test"))
-                .filter(javaItem -> !javaItem.getSimpleName().endsWith("Mock"))
-                .filter(javaItem -> !javaItem.getSimpleName().endsWith("Tests"))
-                .filter(javaItem -> !javaItem.getSimpleName().endsWith("TestBase"))
-                .filter(javaItem -> (packageName + "." + javaItem.getSimpleName()).equals(javaItem.getName()));
+    private static Stream<JavaItem> createClassStream(JavaItemIndex index, String packageName) {
+        return index.queryPackage(packageName)
+                .type(JavaItemType.CLASS)
+                .without(ItemPredicates.TEST_SUPPORT_TYPE)
+                .stream();
     }
 
-    private static Stream<JavaItem> createMethodFilter(List<JavaItem> javaItems, JavaItem javaClass) {
-        return javaItems.stream()
-                .filter(javaItem -> javaItem.getType() == JavaItemType.METHOD)
-                .filter(javaMethod -> javaMethod.getParent().equals(javaClass))
-                .filter(javaMethod -> {
-                    if (javaMethod.getDefinition().contains("public static")) {
-                        return true;
-                    }
-                    return !javaMethod.getSimpleName().startsWith("get");
-                })
-                .filter(javaMethod -> !javaMethod.getSimpleName().startsWith("set"))
-                .filter(javaMethod -> !javaMethod.getSimpleName().equals("toString"))
-                .filter(javaMethod -> !javaMethod.getSimpleName().equals("hashCode"))
-                .filter(javaMethod -> !javaMethod.getSimpleName().equals("equals"))
-                .filter(javaMethod -> !javaMethod.getSimpleName().equals("builder"))
-                .filter(javaMethod -> javaMethod.getBody().lines().count() > 5);
+    private static Stream<JavaItem> createMethodFilter(JavaItemIndex index, JavaItem javaClass) {
+        return index.queryChildren(javaClass)
+                .type(JavaItemType.METHOD)
+                .without(ItemPredicates.ACCESSOR)
+                .without(ItemPredicates.OBJECT_METHOD)
+                .without(ItemPredicates.TRIVIAL_BODY)
+                .stream();
     }
 
-    private String generateJavaDocForClass(List<JavaItem> javaItems, StringBuilder markdownBuilder, JavaItem javaClass, String classJavadocTmp) {
-        final var methods = getJavaMethodsForClass(javaClass, javaItems);
-        final var fields = getFieldsForClass(javaClass, javaItems);
+    private String generateJavaDocForClass(JavaItemIndex index, StringBuilder markdownBuilder, JavaItem javaClass, String classJavadocTmp) {
+        final var methods = getJavaMethodsForClass(javaClass, index);
+        final var fields = getFieldsForClass(javaClass, index);
         markdownBuilder.append("## CLASS JAVADOCS " + javaClass.getSimpleName()).append("\n\n");
 
         markdownBuilder.append("\n**" + javaClass.getName()).append("**\n");
@@ -652,15 +778,17 @@ public class DocGenerator {
                     "output should be in JavaDoc format");
 
             markdownBuilder.append("\n\n```java\n").append(classJavadocTmp).append("\n```\n\n");
+        } catch (CircuitOpenException e) {
+            throw e;
         } catch (Exception e) {
             e.printStackTrace();
         }
         return classJavadocTmp;
     }
 
-    private String generateShortDescriptionForClass(List<JavaItem> javaItems, JavaItem javaClass) {
-        final var methods = getJavaMethodsForClass(javaClass, javaItems);
-        final var fields = getFieldsForClass(javaClass, javaItems);
+    private String generateShortDescriptionForClass(JavaItemIndex index, JavaItem javaClass) {
+        final var methods = getJavaMethodsForClass(javaClass, index);
+        final var fields = getFieldsForClass(javaClass, index);
 
 
         final var directive = String.format("As an software engineer write a short description for this class. Just create a description for the class." +
@@ -674,6 +802,8 @@ public class DocGenerator {
                     "output should be in markdown format");
 
             return output == null ? "" : output;
+        } catch (CircuitOpenException e) {
+            throw e;
         } catch (Exception e) {
             e.printStackTrace();
             return "";
@@ -681,9 +811,9 @@ public class DocGenerator {
 
     }
 
-    private String getJavaMethodsForClass(JavaItem javaClass, List<JavaItem> javaItems) {
+    private String getJavaMethodsForClass(JavaItem javaClass, JavaItemIndex index) {
         final var builder = new StringBuilder();
-        createMethodFilter(javaItems, javaClass)
+        createMethodFilter(index, javaClass)
                 .forEach(javaMethod -> {
                     builder.append("\n").append(javaMethod.getDefinition()).append("\n");
                 });
@@ -691,11 +821,9 @@ public class DocGenerator {
         return builder.toString();
     }
 
-    private String getFieldsForClass(final JavaItem javaClass, final List<JavaItem> javaItems) {
+    private String getFieldsForClass(final JavaItem javaClass, final JavaItemIndex index) {
         final var builder = new StringBuilder();
-        javaItems.stream()
-                .filter(javaItem -> javaItem.getType() == JavaItemType.FIELD)
-                .filter(javaMethod -> javaMethod.getParent().equals(javaClass))
+        index.children(javaClass, JavaItemType.FIELD)
                 .forEach(javaMethod -> {
                     builder.append("\n").append(javaMethod.getDefinition()).append("\n");
                 });
@@ -704,52 +832,308 @@ public class DocGenerator {
     }
 
     public void run() throws IOException {
+        File dir = sourceInput();
+        export(dir, csvExporter.open(Path.of(outputFile)));
+    }
+
+    /**
+     * Writes the items into a SQLite database with indexes on FullName, Parent and Type and a
+     * full-text table over Definition, JavaDoc and Body. Files are inserted as they are parsed.
+     *
+     * @param exporter decides batching and whether the full-text table is built
+     * @param database the database file, replaced if it exists
+     * @throws IOException if an I/O error occurs
+     */
+    public void runSqlite(SqliteExporter exporter, Path database) throws IOException {
+        File dir = sourceInput();
+        export(dir, exporter.open(database));
+    }
+
+    /**
+     * Writes the items as newline-delimited JSON, one object per item. Files are written as they are parsed.
+     *
+     * @param exporter decides the attributes and compression
+     * @param file     the output file, replaced if it exists
+     * @throws IOException if an I/O error occurs
+     */
+    public void runNdjson(NdjsonExporter exporter, Path file) throws IOException {
+        File dir = sourceInput();
+        export(dir, exporter.open(file));
+    }
+
+    /**
+     * Writes the items as an Arrow IPC file with dictionary encoded Type and Parent columns.
+     *
+     * @param exporter decides the columns, batch size and compression
+     * @param file     the output file, replaced if it exists
+     * @return the number of rows written
+     * @throws IOException if an I/O error occurs
+     */
+    public long runArrow(ArrowExporter exporter, Path file) throws IOException {
+        File dir = new File(inputDirectoryPath).getCanonicalFile();
+        if (isSourceInput(dir)) {
+            return exporter.export(items(dir), file);
+        } else {
+            throw new IllegalStateException(String.format(
+                    "Directory does not exist %s or is not a directory or source archive", dir));
+        }
+    }
+
+    /**
+     * Writes the scan into the writer in source order and closes it. The items come from the scan
+     * session or the snapshot when one is configured; otherwise they are streamed file by file.
+     */
+    private void export(File dir, ItemWriter itemWriter) throws IOException {
+        try (ItemWriter writer = itemWriter) {
+            if (scanSession != null || snapshotFile != null) {
+                writer.write(items(dir));
+                return;
+            }
+            scanDirectory(dir, (file, javaItems) -> {
+                try {
+                    writer.write(javaItems);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    /**
+     * @return the canonical input directory or archive
+     * @throws IllegalStateException if the input is neither
+     */
+    private File sourceInput() throws IOException {
+        File dir = new File(inputDirectoryPath).getCanonicalFile();
+        if (!isSourceInput(dir)) {
+            throw new IllegalStateException(String.format(
+                    "Directory does not exist %s or is not a directory or source archive", dir));
+        }
+        return dir;
+    }
+
+    /**
+     * Writes only the rows added, changed or removed since a previous run, with a leading Op column,
+     * and saves the content hashes of this run next to the output as {@code <output>.hashidx}.
+     *
+     * @param previous the hash index or snapshot of the previous run; when null or missing every row is an add
+     * @return the number of rows of each kind
+     * @throws IOException if an I/O error occurs
+     */
+    public DeltaCsvExporter.Delta runDelta(Path previous) throws IOException {
+        File dir = new File(inputDirectoryPath).getCanonicalFile();
+        if (isSourceInput(dir)) {
+            final DeltaCsvExporter exporter = new DeltaCsvExporter(csvExporter);
+            final ItemHashIndex previousHashes = exporter.loadPrevious(previous);
+            return exporter.export(items(dir), previousHashes, Path.of(outputFile), Path.of(outputFile + ".hashidx"));
+        } else {
+            throw new IllegalStateException(String.format(
+                    "Directory does not exist %s or is not a directory or source archive", dir));
+        }
+    }
+
+    /**
+     * Writes the CSV output as shards, one per package or hash bucket, into a {@code shards} directory
+     * next to the output file, along with a manifest of the shard files, row counts and checksums.
+     *
+     * @param exporter decides how rows are sharded and written
+     * @return the shards written
+     * @throws IOException if an I/O error occurs
+     */
+    public List<ShardedCsvExporter.Shard> runSharded(ShardedCsvExporter exporter) throws IOException {
+        File dir = new File(inputDirectoryPath).getCanonicalFile();
+        if (isSourceInput(dir)) {
+            File outputDir = new File(new File(outputFile).getAbsoluteFile().getParentFile(), "shards");
+            return exporter.export(items(dir), outputDir.toPath());
+        } else {
+            throw new IllegalStateException(String.format(
+                    "Directory does not exist %s or is not a directory or source archive", dir));
+        }
+    }
+
+    /**
+     * Writes one CSV per module of a Gradle or Maven multi-project build into a {@code modules} directory
+     * next to the output file. Each CSV has a {@code .sources} file holding the
+     * {@link SourceWalker#fingerprint(List) fingerprint} of the files it was written from; a module
+     * whose files still have that fingerprint is left alone, so after a small change only the touched
+     * modules are parsed and written again, and a module that only lost files is written again too.
+     * Only the CSV output runs per module; the documentation modes work on the whole input.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    public void runPerModule() throws IOException {
         File dir = new File(inputDirectoryPath).getCanonicalFile();
-        if (dir.exists() && dir.isDirectory()) {
-            List<JavaItem> javaItems = scanDirectory(dir);
-            List<List<String>> lines = javaItems.stream().map(JavaItem::row).collect(Collectors.toList());
-            try (CSVWriter writer = new CSVWriter(new FileWriter(outputFile))) {
-                writer.writeNext(JavaItem.headers().toArray(new String[0]));
-                for (List<String> line : lines) {
-                    writer.writeNext(line.toArray(new String[0]));
+        if (isSourceInput(dir)) {
+            File outputDir = new File(new File(outputFile).getAbsoluteFile().getParentFile(), "modules");
+            outputDir.mkdirs();
+
+            try (SourceRoot root = SourceRoot.open(dir.toPath())) {
+                Map<SourceModule, List<Path>> staleModules = new LinkedHashMap<>();
+                Map<SourceModule, String> fingerprints = new HashMap<>();
+                for (SourceModule module : SourceModule.discover(root.getPath())) {
+                    List<Path> files = sourceWalker.walk(module.getSourceRoot());
+                    String fingerprint = sourceWalker.fingerprint(files);
+                    if (!isUpToDate(moduleCsv(outputDir, module), fingerprint)) {
+                        staleModules.put(module, files);
+                        fingerprints.put(module, fingerprint);
+                    }
+                }
+
+                final Map<SourceModule, List<JavaItem>> javaItemsByModule;
+                try (SourceScanner scanner = openScanner(scanMode)) {
+                    javaItemsByModule = scanner.scanAll(staleModules);
+                }
+                for (Map.Entry<SourceModule, List<JavaItem>> entry : javaItemsByModule.entrySet()) {
+                    File csv = moduleCsv(outputDir, entry.getKey());
+                    csvExporter.export(entry.getValue(), csv.toPath());
+                    Files.writeString(fingerprintFile(csv).toPath(), fingerprints.get(entry.getKey()));
                 }
             }
         } else {
             throw new IllegalStateException(String.format(
-                    "Directory does not exist %s or is not a directory", dir));
+                    "Directory does not exist %s or is not a directory or source archive", dir));
+        }
+    }
+
+    /**
+     * Scans every module of a Gradle or Maven multi-project build. Modules are parsed concurrently
+     * on the scanner's pool and the items are kept per module, in discovery order.
+     *
+     * @param directoryPath the project root
+     * @return the items of each module
+     * @throws IOException if an I/O error occurs
+     */
+    public Map<SourceModule, List<JavaItem>> scanModules(File directoryPath) throws IOException {
+        try (SourceRoot root = SourceRoot.open(directoryPath.toPath())) {
+            Map<SourceModule, List<Path>> filesByModule = new LinkedHashMap<>();
+            for (SourceModule module : SourceModule.discover(root.getPath())) {
+                filesByModule.put(module, sourceWalker.walk(module.getSourceRoot()));
+            }
+            try (SourceScanner scanner = openScanner(scanMode)) {
+                return scanner.scanAll(filesByModule);
+            }
         }
     }
 
+    private File moduleCsv(File outputDir, SourceModule module) {
+        return new File(outputDir, module.getName().replace('/', '_') + (csvExporter.isGzip() ? ".csv.gz" : ".csv"));
+    }
+
+    private static File fingerprintFile(File output) {
+        return new File(output.getPath() + ".sources");
+    }
+
+    /**
+     * Tells if the output was written from files with the given fingerprint.
+     */
+    private static boolean isUpToDate(File output, String fingerprint) throws IOException {
+        File fingerprintFile = fingerprintFile(output);
+        return output.exists() && fingerprintFile.exists()
+                && Files.readString(fingerprintFile.toPath()).equals(fingerprint);
+    }
+
     /**
      * Scans the given directory and returns a list of items representing the Java code.
+     * Files are parsed in parallel but the items come back in walk order.
+     * The directory may also be a source JAR or zip archive, which is read in place.
      *
      * @param directoryPath the directory path
      * @return the list of items
      * @throws IOException if an I/O error occurs
      */
     public List<JavaItem> scanDirectory(File directoryPath) throws IOException {
-        final List<JavaItem> javaItems = new ArrayList<>(32);
-        try (Stream<Path> walk = Files.walk(directoryPath.toPath())) {
-            walk.filter(Files::isRegularFile)
-                    .filter(p -> p.toString().endsWith(".java"))
-                    .forEach(p -> parseFile(p.toFile(), javaItems));
+        return scan(scanMode, directoryPath);
+    }
+
+    /**
+     * Scans the given directory and streams the items of each file to the sink in walk order.
+     * Only the files currently being parsed are held in memory.
+     * The directory may also be a source JAR or zip archive, which is read in place.
+     *
+     * @param directoryPath the directory path
+     * @param sink          receives the items of each file
+     * @throws IOException if an I/O error occurs
+     */
+    public void scanDirectory(File directoryPath, ScanSink sink) throws IOException {
+        try (SourceRoot root = SourceRoot.open(directoryPath.toPath()); SourceScanner scanner = openScanner(scanMode)) {
+            scanner.scan(sourceWalker.walk(root.getPath()), sink);
         }
-        return javaItems;
     }
 
     /**
-     * Parses the given file and adds the parsed items to the list.
+     * Creates a session that scans the input directory once for all the generators attached to it
+     * with {@link Builder#scanSession(ScanSession)}. The scan runs when the first generator needs it.
      *
-     * @param file      the file to parse
-     * @param javaItems the list of items to add to
+     * @return a new scan session
      */
-    private void parseFile(File file, List<JavaItem> javaItems) {
+    public ScanSession newScanSession() {
+        return new ScanSession(() -> {
+            File dir = new File(inputDirectoryPath).getCanonicalFile();
+            if (!isSourceInput(dir)) {
+                throw new IllegalStateException(String.format(
+                        "Directory does not exist %s or is not a directory or source archive", dir));
+            }
+            return scanDirectory(dir);
+        });
+    }
+
+    /**
+     * Returns the items in scan order without building an index, for exports that only write them.
+     */
+    private List<JavaItem> items(File dir) throws IOException {
+        return scanSession != null ? scanSession.items() : scanDirectory(dir);
+    }
+
+    private JavaItemIndex index(File dir) throws IOException {
+        return scanSession != null ? scanSession.index() : new JavaItemIndex(scanDirectory(dir));
+    }
+
+    private List<JavaItem> scan(ScanMode mode, File directoryPath) throws IOException {
+        try (SourceRoot root = SourceRoot.open(directoryPath.toPath()); SourceScanner scanner = openScanner(mode)) {
+            List<Path> files = sourceWalker.walk(root.getPath());
+            String fingerprint = snapshotFile == null ? null : sourceWalker.fingerprint(files);
+            if (snapshotFile != null) {
+                List<JavaItem> javaItems = loadSnapshot(scanner.getMode(), fingerprint);
+                if (javaItems != null) {
+                    return javaItems;
+                }
+            }
+            if (!compactStore && snapshotFile == null) {
+                return scanner.scan(files);
+            }
+            JavaItemStore store = new JavaItemStore(files.size() * 16);
+            scanner.scan(files, (file, javaItems) -> store.addAll(javaItems));
+            if (snapshotFile != null) {
+                JavaItemSnapshot.write(store, scanner.getMode().name(), fingerprint, snapshotFile);
+            }
+            return store.items();
+        }
+    }
+
+    /**
+     * Returns the items of the snapshot if it was taken from the same files and walker settings, as
+     * told by the fingerprint, in a mode that extracts at least as much as the requested one, or null
+     * when the sources need scanning.
+     */
+    private List<JavaItem> loadSnapshot(ScanMode mode, String fingerprint) {
+        if (!Files.exists(snapshotFile)) {
+            return null;
+        }
         try {
-            final ClassVisitor cv = new ClassVisitor();
-            javaItems.addAll(cv.run(file));
-        } catch (Exception e) {
+            JavaItemSnapshot snapshot = JavaItemSnapshot.open(snapshotFile);
+            if (snapshot.getFingerprint().equals(fingerprint)
+                    && (snapshot.getVariant().equals(ScanMode.FULL.name()) || snapshot.getVariant().equals(mode.name()))) {
+                return snapshot.items();
+            }
+        } catch (IOException e) {
+            // An unreadable or older snapshot is rebuilt from the sources.
             e.printStackTrace();
         }
+        return null;
+    }
+
+    private static boolean isSourceInput(File dir) {
+        return (dir.exists() && dir.isDirectory()) || SourceRoot.isArchive(dir.toPath());
     }
 
     public void genImageIfMissing() {
@@ -794,6 +1178,8 @@ public class DocGenerator {
                                 mermaidContent = extractSequenceDiagram(mermaidContent);
                                 System.out.println(mermaidContent);
                                 FileUtils.writeFile(mermaidFile, mermaidContent);
+                            } catch (CircuitOpenException e) {
+                                throw e;
                             } catch (Exception e) {
                                 e.printStackTrace();
                             }
@@ -827,13 +1213,13 @@ public class DocGenerator {
         outputDir.mkdirs();
 
         File dir = new File(inputDirectoryPath).getCanonicalFile();
-        if (dir.exists() && dir.isDirectory()) {
+        if (isSourceInput(dir)) {
 
             generateAllImprovements(outputDir);
 
-            List<JavaItem> javaItems = scanDirectory(dir);
+            JavaItemIndex index = index(dir);
 
-            Map<String, List<String>> classNameByPackage = mapPackageToClassDefs(javaItems);
+            Map<String, List<String>> classNameByPackage = mapPackageToClassDefs(index);
 
             classNameByPackage.entrySet().stream().forEach(entry -> {
                 final String packageName = entry.getKey();
@@ -846,10 +1232,10 @@ public class DocGenerator {
                 final StringBuilder markdownBuilder = new StringBuilder();
                 markdownBuilder.append("# Package ").append(packageName).append("\n");
 
-                createClassStream(javaItems, packageName)
+                createClassStream(index, packageName)
                         .forEach(javaClass -> {
                                     markdownBuilder.append("## Class ").append(javaClass.getSimpleName()).append("\n");
-                                    createMethodFilter(javaItems, javaClass)
+                                    createMethodFilter(index, javaClass)
                                             .forEach(javaMethod -> {
                                                 methodCodeListingJava(markdownBuilder, javaMethod);
                                                 final StringBuilder methodMarkdownBuilder = new StringBuilder();
@@ -868,6 +1254,8 @@ public class DocGenerator {
                                                         System.out.println(output);
                                                         markdownBuilder.append(output);
                                                     }
+                                                } catch (CircuitOpenException e) {
+                                                    throw e;
                                                 } catch (Exception e) {
                                                     markdownBuilder.append(methodMarkdownBuilder);
                                                 }
@@ -888,7 +1276,7 @@ public class DocGenerator {
 
         } else {
             throw new IllegalStateException(String.format(
-                    "Directory does not exist %s or is not a directory", dir));
+                    "Directory does not exist %s or is not a directory or source archive", dir));
         }
     }
 
@@ -899,13 +1287,13 @@ public class DocGenerator {
         outputDir.mkdirs();
 
         File dir = new File(inputDirectoryPath).getCanonicalFile();
-        if (dir.exists() && dir.isDirectory()) {
+        if (isSourceInput(dir)) {
 
             generateAll(outputDir);
 
-            List<JavaItem> javaItems = scanDirectory(dir);
+            JavaItemIndex index = index(dir);
 
-            Map<String, List<String>> classNameByPackage = mapPackageToClassDefs(javaItems);
+            Map<String, List<String>> classNameByPackage = mapPackageToClassDefs(index);
 
             classNameByPackage.entrySet().stream().forEach(entry -> {
                 final String packageName = entry.getKey();
@@ -918,10 +1306,10 @@ public class DocGenerator {
                 final StringBuilder markdownBuilder = new StringBuilder();
                 markdownBuilder.append("# Package ").append(packageName).append("\n");
 
-                createClassStream(javaItems, packageName)
+                createClassStream(index, packageName)
                         .forEach(javaClass -> {
                                     markdownBuilder.append("## Class ").append(javaClass.getSimpleName()).append("\n");
-                                    createMethodFilter(javaItems, javaClass)
+                                    createMethodFilter(index, javaClass)
                                             .forEach(javaMethod -> {
                                                 methodCodeListingJava(markdownBuilder, javaMethod);
                                                 //generateMarkdownContentForMethod("Business Rules",PRODUCT_MANAGER + "As an product manager writing docs listing any business rules if found in a table " +
@@ -942,43 +1330,33 @@ public class DocGenerator {
 
         } else {
             throw new IllegalStateException(String.format(
-                    "Directory does not exist %s or is not a directory", dir));
+                    "Directory does not exist %s or is not a directory or source archive", dir));
         }
     }
 
     private static boolean isBlank(String str) {
         return str == null || str.isBlank();
     }
-    private static void generateMarkdownContentForMethod(String title, String direction, StringBuilder markdownBuilder, JavaItem javaClass, JavaItem javaMethod) {
+    private void generateMarkdownContentForMethod(String title, String direction, StringBuilder markdownBuilder, JavaItem javaClass, JavaItem javaMethod) {
         generateContentForMethod(title, direction, markdownBuilder, javaClass, javaMethod, "markdown");
     }
-    private static void generateContentForMethod(String title, String direction, StringBuilder markdownBuilder, JavaItem javaClass, JavaItem javaMethod,  String outputFormat) {
+    private void generateContentForMethod(String title, String direction, StringBuilder markdownBuilder, JavaItem javaClass, JavaItem javaMethod,  String outputFormat) {
         try {
-            String output = "";
-            for (int i = 0; i < 3; i++) {
-                try {
-
-                    final var user = String.format("%s " +
-                                    "for this method %s which is defined in class %s is doing based on its BODY" +
-                                    "\nBODY:\n %s \n JAVADOC FOR CLASS: \n %s \n", direction, javaMethod.getSimpleName(),
-                            javaClass.getName(), javaMethod.getBody(), javaClass.getJavadoc());
+            final var user = String.format("%s " +
+                            "for this method %s which is defined in class %s is doing based on its BODY" +
+                            "\nBODY:\n %s \n JAVADOC FOR CLASS: \n %s \n", direction, javaMethod.getSimpleName(),
+                    javaClass.getName(), javaMethod.getBody(), javaClass.getJavadoc());
 
-                    final var  system = String.format("output should be in %s format", outputFormat);
-                    output = chat(user, system);
-
-                    if (!isBlank(output)) {
-                        break;
-                    }
-                } catch (Exception ex) {
-                    //continue;
-                }
+            final var  system = String.format("output should be in %s format", outputFormat);
+            final String output = chat(user, system);
 
-            }
             if (!isBlank(output)) {
                 markdownBuilder.append("\n").append("### ").append(javaMethod.getSimpleName()).append(" ").append(title).append("\n");
                 markdownBuilder.append("\n").append(output).append("\n");
             }
 
+        } catch (CircuitOpenException e) {
+            throw e;
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -999,6 +1377,18 @@ public class DocGenerator {
 
         private boolean inlineMermaid;
         private boolean useExistingMermaidIfFound;
+        private int scanParallelism;
+        private String parseCacheDirectory;
+        private ScanMode scanMode = ScanMode.FULL;
+        private List<String> excludes = Collections.emptyList();
+        private boolean honorGitignore;
+        private boolean compactStore;
+        private String snapshotFile;
+        private ScanSession scanSession;
+        private List<CsvColumn> csvColumns = CsvColumn.ALL;
+        private boolean gzipCsv;
+        private LlmGateway llmGateway;
+        private int generationThreads = 8;
 
         public Builder inlineMermaid(boolean inlineMermaid) {
             this.inlineMermaid = inlineMermaid;
@@ -1036,7 +1426,155 @@ public class DocGenerator {
          * @return a new Java2CSV instance.
          */
         public DocGenerator build() {
-            return new DocGenerator(this.inputDirectoryPath, this.outputFile, this.inlineMermaid, this.useExistingMermaidIfFound);
+            return new DocGenerator(this);
+        }
+
+        /**
+         * Sets the columns of the CSV output. Columns that are not asked for are never built, so
+         * {@link CsvColumn#INVENTORY} skips reading imports and bodies altogether.
+         *
+         * @param csvColumns the columns, in order
+         * @return the Builder instance with the updated columns.
+         */
+        public Builder csvColumns(List<CsvColumn> csvColumns) {
+            this.csvColumns = csvColumns;
+            return this;
+        }
+
+        /**
+         * Gzips the CSV output.
+         *
+         * @param gzipCsv true to gzip
+         * @return the Builder instance with the updated setting.
+         */
+        public Builder gzipCsv(boolean gzipCsv) {
+            this.gzipCsv = gzipCsv;
+            return this;
+        }
+
+        /**
+         * Sends every chat request of this generator, and of the diagram generators it creates, through
+         * the given gateway. Give all generators of a run the same gateway so they share one client and
+         * one concurrency limit. Defaults to {@link LlmGateway#getDefault()}.
+         *
+         * @param llmGateway the shared gateway
+         * @return the Builder instance with the updated gateway.
+         */
+        public Builder llmGateway(LlmGateway llmGateway) {
+            this.llmGateway = llmGateway;
+            return this;
+        }
+
+        /**
+         * Sets how many LLM-backed markdown fragments, such as method descriptions and diagrams, are
+         * generated at once by {@link DocGenerator#genDesignDoc()}. The output is the same for any value.
+         * Defaults to 8; the gateway's concurrency limit still applies.
+         *
+         * @param generationThreads the number of generation threads
+         * @return the Builder instance with the updated thread count.
+         */
+        public Builder generationThreads(int generationThreads) {
+            if (generationThreads < 1) {
+                throw new IllegalArgumentException("generationThreads must be at least 1");
+            }
+            this.generationThreads = generationThreads;
+            return this;
+        }
+
+        /**
+         * Attaches the generator to a scan shared with other generators, so the sources are parsed once
+         * however many modes run. The session decides the scan settings; the scan settings of this
+         * builder are then only used by {@link DocGenerator#runPerModule()}.
+         *
+         * @param scanSession the shared scan, see {@link DocGenerator#newScanSession()}
+         * @return the Builder instance with the updated scan session.
+         */
+        public Builder scanSession(ScanSession scanSession) {
+            this.scanSession = scanSession;
+            return this;
+        }
+
+        /**
+         * Sets a snapshot file for the scan results. The first run writes it, and later runs of any mode
+         * map it instead of parsing again. The snapshot records the scanned files with their sizes and
+         * modification times and the walker settings, and is rebuilt when any of them changes.
+         *
+         * @param snapshotFile the snapshot file, or null to always scan
+         * @return the Builder instance with the updated snapshot file.
+         */
+        public Builder snapshotFile(String snapshotFile) {
+            this.snapshotFile = snapshotFile;
+            return this;
+        }
+
+        /**
+         * Keeps scanned items in a columnar {@link JavaItemStore} instead of one object graph per item.
+         * Items are streamed into the store file by file, so the full object graph never exists at once.
+         *
+         * @param compactStore true to use the compact store
+         * @return the Builder instance with the updated setting.
+         */
+        public Builder compactStore(boolean compactStore) {
+            this.compactStore = compactStore;
+            return this;
+        }
+
+        /**
+         * Sets globs, relative to the input directory, of files and directories to leave out of the scan.
+         * VCS directories, node_modules and build output are always skipped.
+         *
+         * @param excludes the exclude globs
+         * @return the Builder instance with the updated excludes.
+         */
+        public Builder excludes(List<String> excludes) {
+            this.excludes = excludes;
+            return this;
+        }
+
+        /**
+         * Leaves files ignored by .gitignore out of the scan.
+         *
+         * @param honorGitignore true to honor .gitignore files
+         * @return the Builder instance with the updated setting.
+         */
+        public Builder honorGitignore(boolean honorGitignore) {
+            this.honorGitignore = honorGitignore;
+            return this;
+        }
+
+        /**
+         * Sets how much of each file is extracted. {@link ScanMode#DECLARATIONS} is several times faster
+         * and is enough for a CSV inventory, but leaves every body empty, so the documentation modes need FULL.
+         *
+         * @param scanMode the scan mode
+         * @return the Builder instance with the updated scan mode.
+         */
+        public Builder scanMode(ScanMode scanMode) {
+            this.scanMode = scanMode;
+            return this;
+        }
+
+        /**
+         * Sets the directory of the on-disk parse cache. Every mode reuses the items of files
+         * that have not changed since the last run instead of parsing them again.
+         *
+         * @param parseCacheDirectory the cache directory, or null to disable the cache
+         * @return the Builder instance with the updated cache directory.
+         */
+        public Builder parseCacheDirectory(String parseCacheDirectory) {
+            this.parseCacheDirectory = parseCacheDirectory;
+            return this;
+        }
+
+        /**
+         * Sets the number of threads used to parse source files. Zero or less uses the common ForkJoinPool.
+         *
+         * @param scanParallelism the number of parser threads
+         * @return the Builder instance with the updated parallelism.
+         */
+        public Builder scanParallelism(int scanParallelism) {
+            this.scanParallelism = scanParallelism;
+            return this;
         }
 
         public Builder useExistingMermaidIfFound(boolean b) {
@@ -44,6 +44,13 @@ public class JavaItem {
         this.type = type;
     }
 
+    /**
+     * Constructs an empty item for subclasses that keep their data elsewhere and override every getter.
+     */
+    protected JavaItem() {
+        this(null, null, null, null, null, null, null, null);
+    }
+
     /**
      * Returns the column headers for the CSV representation of an Item.
      *
@@ -72,7 +79,9 @@ public class JavaItem {
      * @return the row representing the Item
      */
     public List<String> row() {
-        return List.of(simpleName, type.toString().toLowerCase(), name, definition, javadoc, parent != null ? parent.getName() : "", importBody, body);
+        final JavaItem parent = getParent();
+        return List.of(getSimpleName(), getType().toString().toLowerCase(), getName(), getDefinition(), getJavadoc(),
+                parent != null ? parent.getName() : "", getImportBody(), getBody());
     }
 
     /**
@@ -145,14 +154,14 @@ public class JavaItem {
     @Override
     public String toString() {
         return "Item{" +
-                "simpleName='" + simpleName + '\'' +
-                ", type=" + type +
-                ", name='" + name + '\'' +
-                ", definition='" + definition + '\'' +
-                ", parent=" + parent +
-                ", importBody='" + importBody + '\'' +
-                ", javadoc='" + javadoc + '\'' +
-                ", body='" + body + '\'' +
+                "simpleName='" + getSimpleName() + '\'' +
+                ", type=" + getType() +
+                ", name='" + getName() + '\'' +
+                ", definition='" + getDefinition() + '\'' +
+                ", parent=" + getParent() +
+                ", importBody='" + getImportBody() + '\'' +
+                ", javadoc='" + getJavadoc() + '\'' +
+                ", body='" + getBody() + '\'' +
                 '}';
     }
 
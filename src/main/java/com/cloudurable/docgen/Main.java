@@ -3,6 +3,11 @@ package com.cloudurable.docgen;
 
 import com.cloudurable.docgen.extract.FileUtils;
 import com.cloudurable.docgen.generators.PackageMermaidClassDiagramGen;
+import com.cloudurable.docgen.llm.ChatCache;
+import com.cloudurable.docgen.llm.CircuitBreaker;
+import com.cloudurable.docgen.llm.LlmGateway;
+import com.cloudurable.docgen.llm.RateLimiter;
+import com.cloudurable.docgen.llm.RetryPolicy;
 import com.cloudurable.jai.OpenAIClient;
 import com.cloudurable.jai.model.ClientResponse;
 import com.cloudurable.jai.model.FinishReason;
@@ -10,6 +15,7 @@ import com.cloudurable.jai.model.text.completion.chat.*;
 
 import java.io.File;
 import java.io.IOException;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
@@ -42,11 +48,24 @@ public class Main {
 //            DocGenerator.builder().inputDirectoryPath(directoryPath).outputFile(outputFile).build()
 //                    .genImageIfMissing();
 
+            final ScanSession scanSession = DocGenerator.builder().inputDirectoryPath(directoryPath).outputFile(outputFile)
+                    .build().newScanSession();
+            final File outputDir = new File(outputFile).getAbsoluteFile().getParentFile();
+            final LlmGateway llmGateway = LlmGateway.builder()
+                    .cache(ChatCache.builder().directory(new File(outputDir, "chat-cache").toPath()).build())
+                    .rateLimiter(new RateLimiter(3_500, 90_000))
+                    .retryPolicy(RetryPolicy.builder().maxRetries(5).build())
+                    .circuitBreaker(CircuitBreaker.builder().failureThreshold(5)
+                            .openDuration(Duration.ofSeconds(30)).maxWait(Duration.ofMinutes(10)).build())
+                    .build();
+
             final CountDownLatch countDownLatch = new CountDownLatch(3);
 
             executorService.submit(() -> {
                 try {
                     DocGenerator.builder().inputDirectoryPath(directoryPath).outputFile(outputFile)
+                            .scanSession(scanSession)
+                            .llmGateway(llmGateway)
                             .useExistingMermaidIfFound(true)
                             .inlineMermaid(true).build()
                             .genDesignDoc();
@@ -58,7 +77,8 @@ public class Main {
 
             executorService.submit(() -> {
                 try {
-//                    DocGenerator.builder().inputDirectoryPath(directoryPath).outputFile(outputFile).build()
+//                    DocGenerator.builder().inputDirectoryPath(directoryPath).outputFile(outputFile)
+//                            .scanSession(scanSession).llmGateway(llmGateway).build()
 //                            .genImprovements();
                 } catch (Exception e) {
                     e.printStackTrace();
@@ -68,7 +88,8 @@ public class Main {
 
             executorService.submit(() -> {
                 try {
-//                    DocGenerator.builder().inputDirectoryPath(directoryPath).outputFile(outputFile).build()
+//                    DocGenerator.builder().inputDirectoryPath(directoryPath).outputFile(outputFile)
+//                            .scanSession(scanSession).llmGateway(llmGateway).build()
 //                            .generateMissingJavaDoc();
                 } catch (Exception e) {
                     e.printStackTrace();
@@ -0,0 +1,17 @@
+package com.cloudurable.docgen;
+
+
+/**
+ * How much of each source file the scanner extracts.
+ */
+public enum ScanMode {
+
+    /** Extract definitions, javadoc and full bodies for every item. */
+    FULL,
+    /**
+     * Extract definitions and javadoc only. Method bodies are blanked out before parsing,
+     * so no statement ASTs are built, and every item comes back with an empty body.
+     * Meant for inventories and class diagrams that only need the declarations.
+     */
+    DECLARATIONS
+}
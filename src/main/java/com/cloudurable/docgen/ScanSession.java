@@ -0,0 +1,87 @@
+package com.cloudurable.docgen;
+
+import com.cloudurable.docgen.index.JavaItemIndex;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * One scan shared by several generators.
+ * <p>
+ * The first generator that asks for the index runs the scan; generators asking while it runs
+ * wait for it, and later ones get the finished index straight away. The index is immutable and
+ * handed over through a {@link FutureTask}, which makes it safely visible to every thread, so
+ * design docs, javadoc and improvements can be generated at the same time from one parse and
+ * one copy of the items. The index is built on first use of {@link #index()}, so exports that
+ * only need the items in scan order take them from {@link #items()} without paying for it.
+ */
+public class ScanSession {
+
+    private final FutureTask<List<JavaItem>> scan;
+    private final FutureTask<JavaItemIndex> index;
+
+    /**
+     * Creates a session that runs the given scan on first use.
+     *
+     * @param scanner returns the items of the scan, called at most once
+     */
+    public ScanSession(Callable<List<JavaItem>> scanner) {
+        this.scan = new FutureTask<>(scanner);
+        this.index = new FutureTask<>(() -> new JavaItemIndex(items()));
+    }
+
+    /**
+     * Returns the items of the scan, running the scan on the calling thread if no one has started it yet.
+     *
+     * @return the shared items in scan order
+     * @throws IOException if the scan failed
+     */
+    public List<JavaItem> items() throws IOException {
+        return await(scan);
+    }
+
+    /**
+     * Returns the index of the scan, running the scan and building the index on the calling thread
+     * if no one has started them yet.
+     *
+     * @return the shared index
+     * @throws IOException if the scan failed
+     */
+    public JavaItemIndex index() throws IOException {
+        return await(index);
+    }
+
+    private static <T> T await(FutureTask<T> task) throws IOException {
+        task.run();
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the scan");
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new UncheckedIOException(new IOException(cause));
+        }
+    }
+
+    /**
+     * @return true once the scan has finished, successfully or not
+     */
+    public boolean isDone() {
+        return scan.isDone();
+    }
+}
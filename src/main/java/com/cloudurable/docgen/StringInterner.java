@@ -0,0 +1,36 @@
+package com.cloudurable.docgen;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Thread safe table that hands out one shared instance for equal strings.
+ * Used for text that repeats across many items, such as import blocks, so a scan keeps
+ * one copy of each distinct value instead of one per item.
+ */
+public class StringInterner {
+
+    private final ConcurrentHashMap<String, String> table = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the shared instance equal to the given string.
+     *
+     * @param value the string
+     * @return the shared instance, or null if value is null
+     */
+    public String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        final String existing = table.putIfAbsent(value, value);
+        return existing == null ? value : existing;
+    }
+
+    /**
+     * Returns the number of distinct strings in the table.
+     *
+     * @return the table size
+     */
+    public int size() {
+        return table.size();
+    }
+}
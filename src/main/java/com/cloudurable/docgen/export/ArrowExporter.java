@@ -0,0 +1,215 @@
+package com.cloudurable.docgen.export;
+
+import com.cloudurable.docgen.JavaItem;
+import com.cloudurable.docgen.JavaItemType;
+import org.apache.arrow.compression.CommonsCompressionFactory;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.compression.CompressionUtil;
+import org.apache.arrow.vector.compression.NoCompressionCodec;
+import org.apache.arrow.vector.dictionary.Dictionary;
+import org.apache.arrow.vector.dictionary.DictionaryProvider;
+import org.apache.arrow.vector.ipc.ArrowFileWriter;
+import org.apache.arrow.vector.ipc.message.IpcOption;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.DictionaryEncoding;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.FieldType;
+import org.apache.arrow.vector.types.pojo.Schema;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Writes items as an Arrow IPC file with one UTF-8 column per selected {@link CsvColumn}.
+ * <p>
+ * Type and Parent repeat heavily, so they are dictionary encoded: the file holds each distinct
+ * value once and the column holds 32-bit indexes. Type uses the fixed list of item types and
+ * Parent the distinct parent names, with "" at index 0 for top-level types. Because an Arrow file
+ * carries each dictionary once, ahead of the data, the export takes the whole item list rather
+ * than a stream. Rows are written in record batches, compressed with ZSTD unless turned off.
+ */
+public class ArrowExporter {
+
+    private static final long TYPE_DICTIONARY_ID = 1;
+    private static final long PARENT_DICTIONARY_ID = 2;
+
+    private final List<CsvColumn> columns;
+    private final int batchSize;
+    private final boolean compress;
+
+    private ArrowExporter(Builder builder) {
+        this.columns = List.copyOf(builder.columns);
+        this.batchSize = builder.batchSize;
+        this.compress = builder.compress;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public List<CsvColumn> getColumns() {
+        return columns;
+    }
+
+    /**
+     * Writes the items to an Arrow IPC file.
+     *
+     * @param javaItems the items
+     * @param file      the output file, replaced if it exists
+     * @return the number of rows written
+     * @throws IOException if the file can not be written
+     */
+    public long export(List<JavaItem> javaItems, Path file) throws IOException {
+        final Path directory = file.toAbsolutePath().getParent();
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        final Map<String, Integer> parentIds = parentIds(javaItems);
+        final DictionaryEncoding typeEncoding = new DictionaryEncoding(TYPE_DICTIONARY_ID, false, new ArrowType.Int(32, true));
+        final DictionaryEncoding parentEncoding = new DictionaryEncoding(PARENT_DICTIONARY_ID, false, new ArrowType.Int(32, true));
+
+        final List<Field> fields = new ArrayList<>(columns.size());
+        for (CsvColumn column : columns) {
+            final DictionaryEncoding encoding = column == CsvColumn.TYPE ? typeEncoding
+                    : column == CsvColumn.PARENT ? parentEncoding : null;
+            fields.add(encoding == null
+                    ? new Field(column.getHeader(), FieldType.notNullable(ArrowType.Utf8.INSTANCE), null)
+                    : new Field(column.getHeader(), new FieldType(false, encoding.getIndexType(), encoding), null));
+        }
+
+        try (BufferAllocator allocator = new RootAllocator();
+             VarCharVector typeValues = new VarCharVector("Type", allocator);
+             VarCharVector parentValues = new VarCharVector("Parent", allocator);
+             VectorSchemaRoot root = VectorSchemaRoot.create(new Schema(fields), allocator);
+             FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            final List<String> typeNames = new ArrayList<>();
+            for (JavaItemType type : JavaItemType.values()) {
+                typeNames.add(type.toString().toLowerCase());
+            }
+            fill(typeValues, typeNames);
+            fill(parentValues, new ArrayList<>(parentIds.keySet()));
+            final DictionaryProvider.MapDictionaryProvider provider = new DictionaryProvider.MapDictionaryProvider();
+            provider.put(new Dictionary(typeValues, typeEncoding));
+            provider.put(new Dictionary(parentValues, parentEncoding));
+
+            final FieldVector[] vectors = new FieldVector[columns.size()];
+            for (int i = 0; i < vectors.length; i++) {
+                vectors[i] = root.getVector(i);
+            }
+            try (ArrowFileWriter writer = new ArrowFileWriter(root, provider, channel, Collections.emptyMap(),
+                    IpcOption.DEFAULT, compress ? CommonsCompressionFactory.INSTANCE : NoCompressionCodec.Factory.INSTANCE,
+                    compress ? CompressionUtil.CodecType.ZSTD : CompressionUtil.CodecType.NO_COMPRESSION)) {
+                writer.start();
+                for (int start = 0; start < javaItems.size(); start += batchSize) {
+                    final int end = Math.min(javaItems.size(), start + batchSize);
+                    root.allocateNew();
+                    for (int row = start; row < end; row++) {
+                        setRow(vectors, row - start, javaItems.get(row), parentIds);
+                    }
+                    root.setRowCount(end - start);
+                    writer.writeBatch();
+                }
+                writer.end();
+            }
+        }
+        return javaItems.size();
+    }
+
+    private void setRow(FieldVector[] vectors, int row, JavaItem javaItem, Map<String, Integer> parentIds) {
+        for (int i = 0; i < vectors.length; i++) {
+            final CsvColumn column = columns.get(i);
+            if (column == CsvColumn.TYPE) {
+                ((IntVector) vectors[i]).setSafe(row, javaItem.getType().ordinal());
+            } else if (column == CsvColumn.PARENT) {
+                ((IntVector) vectors[i]).setSafe(row, parentIds.get(column.valueOf(javaItem)));
+            } else {
+                ((VarCharVector) vectors[i]).setSafe(row, column.valueOf(javaItem).getBytes(StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    /**
+     * Numbers the distinct parent names in order of first use, with "" for top-level types first.
+     */
+    static Map<String, Integer> parentIds(List<JavaItem> javaItems) {
+        final Map<String, Integer> parentIds = new LinkedHashMap<>();
+        parentIds.put("", 0);
+        for (JavaItem javaItem : javaItems) {
+            parentIds.putIfAbsent(CsvColumn.PARENT.valueOf(javaItem), parentIds.size());
+        }
+        return parentIds;
+    }
+
+    private static void fill(VarCharVector vector, List<String> values) {
+        vector.allocateNew();
+        for (int i = 0; i < values.size(); i++) {
+            vector.setSafe(i, values.get(i).getBytes(StandardCharsets.UTF_8));
+        }
+        vector.setValueCount(values.size());
+    }
+
+    public static class Builder {
+        private final List<CsvColumn> columns = new ArrayList<>(CsvColumn.ALL);
+        private int batchSize = 64 * 1024;
+        private boolean compress = true;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the columns to write, in order. Defaults to {@link CsvColumn#ALL}.
+         *
+         * @param columns the columns
+         * @return this Builder
+         */
+        public Builder columns(List<CsvColumn> columns) {
+            this.columns.clear();
+            this.columns.addAll(columns);
+            return this;
+        }
+
+        /**
+         * Sets the rows per record batch. Defaults to 65,536.
+         *
+         * @param batchSize the rows per batch
+         * @return this Builder
+         */
+        public Builder batchSize(int batchSize) {
+            if (batchSize < 1) {
+                throw new IllegalArgumentException("batchSize must be at least 1");
+            }
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * Compresses the record batches with ZSTD. Defaults to true.
+         *
+         * @param compress true to compress
+         * @return this Builder
+         */
+        public Builder compress(boolean compress) {
+            this.compress = compress;
+            return this;
+        }
+
+        public ArrowExporter build() {
+            if (columns.isEmpty()) {
+                throw new IllegalArgumentException("At least one column is required");
+            }
+            return new ArrowExporter(this);
+        }
+    }
+}
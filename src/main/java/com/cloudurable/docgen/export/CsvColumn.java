@@ -0,0 +1,45 @@
+package com.cloudurable.docgen.export;
+
+import com.cloudurable.docgen.JavaItem;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * The columns of the item CSV, in the order of {@link JavaItem#headers()}.
+ */
+public enum CsvColumn {
+    NAME("Name", JavaItem::getSimpleName),
+    TYPE("Type", javaItem -> javaItem.getType().toString().toLowerCase()),
+    FULL_NAME("FullName", JavaItem::getName),
+    DEFINITION("Definition", JavaItem::getDefinition),
+    JAVADOC("JavaDoc", JavaItem::getJavadoc),
+    PARENT("Parent", javaItem -> javaItem.getParent() != null ? javaItem.getParent().getName() : ""),
+    IMPORTS("Imports", JavaItem::getImportBody),
+    BODY("Body", JavaItem::getBody);
+
+    /** Name, Type, FullName and Definition: an inventory without the large text columns. */
+    public static final List<CsvColumn> INVENTORY = List.of(NAME, TYPE, FULL_NAME, DEFINITION);
+    /** Every column, the same as {@link JavaItem#row()}. */
+    public static final List<CsvColumn> ALL = List.of(values());
+
+    private final String header;
+    private final Function<JavaItem, String> value;
+
+    CsvColumn(String header, Function<JavaItem, String> value) {
+        this.header = header;
+        this.value = value;
+    }
+
+    public String getHeader() {
+        return header;
+    }
+
+    /**
+     * @param javaItem the item
+     * @return the value of this column for the item
+     */
+    public String valueOf(JavaItem javaItem) {
+        return value.apply(javaItem);
+    }
+}
@@ -0,0 +1,156 @@
+package com.cloudurable.docgen.export;
+
+import com.cloudurable.docgen.JavaItem;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes items as CSV, only building the columns that were asked for.
+ * <p>
+ * Output goes through a large buffered UTF-8 writer on a file channel, optionally gzipped.
+ * Values are quoted and escaped straight into the buffer rather than assembled into row strings,
+ * and each item's value is read only for the selected columns, so skipping Imports and Body
+ * skips decoding them too. The format matches what opencsv's CSVWriter writes by default:
+ * every value in double quotes, quotes doubled, rows ending in a newline.
+ */
+public class CsvExporter {
+
+    private final List<CsvColumn> columns;
+    private final boolean gzip;
+    private final int bufferSize;
+
+    private CsvExporter(Builder builder) {
+        this.columns = List.copyOf(builder.columns);
+        this.gzip = builder.gzip;
+        this.bufferSize = builder.bufferSize;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public List<CsvColumn> getColumns() {
+        return columns;
+    }
+
+    public boolean isGzip() {
+        return gzip;
+    }
+
+    /**
+     * Opens a CSV file and writes the header row.
+     *
+     * @param file the output file, replaced if it exists
+     * @return the writer for the rows
+     * @throws IOException if the file can not be created
+     */
+    public CsvItemWriter open(Path file) throws IOException {
+        return open(file, null);
+    }
+
+    CsvItemWriter open(Path file, String leadingHeader) throws IOException {
+        final Path directory = file.toAbsolutePath().getParent();
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        final FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        return open(Channels.newOutputStream(channel), leadingHeader);
+    }
+
+    /**
+     * Writes CSV to a stream and writes the header row. Closing the writer closes the stream.
+     *
+     * @param out the output stream
+     * @return the writer for the rows
+     * @throws IOException if the header can not be written
+     */
+    public CsvItemWriter open(OutputStream out) throws IOException {
+        return open(out, null);
+    }
+
+    CsvItemWriter open(OutputStream out, String leadingHeader) throws IOException {
+        final OutputStream stream = gzip ? new GZIPOutputStream(out, 1 << 16) : out;
+        final CsvItemWriter writer = new CsvItemWriter(
+                new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), bufferSize), columns, leadingHeader);
+        writer.writeHeader();
+        return writer;
+    }
+
+    /**
+     * Writes the items to a CSV file.
+     *
+     * @param javaItems the items
+     * @param file      the output file
+     * @return the number of rows written, not counting the header
+     * @throws IOException if the file can not be written
+     */
+    public long export(List<JavaItem> javaItems, Path file) throws IOException {
+        try (CsvItemWriter writer = open(file)) {
+            writer.write(javaItems);
+            return writer.getRows();
+        }
+    }
+
+    public static class Builder {
+        private final List<CsvColumn> columns = new ArrayList<>(CsvColumn.ALL);
+        private boolean gzip;
+        private int bufferSize = 1 << 20;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the columns to write, in order. Defaults to {@link CsvColumn#ALL}.
+         *
+         * @param columns the columns
+         * @return this Builder
+         */
+        public Builder columns(List<CsvColumn> columns) {
+            this.columns.clear();
+            this.columns.addAll(columns);
+            return this;
+        }
+
+        /**
+         * Gzips the output.
+         *
+         * @param gzip true to gzip
+         * @return this Builder
+         */
+        public Builder gzip(boolean gzip) {
+            this.gzip = gzip;
+            return this;
+        }
+
+        /**
+         * Sets the size of the character buffer in front of the file. Defaults to 1M characters.
+         *
+         * @param bufferSize the buffer size in characters
+         * @return this Builder
+         */
+        public Builder bufferSize(int bufferSize) {
+            this.bufferSize = bufferSize;
+            return this;
+        }
+
+        public CsvExporter build() {
+            if (columns.isEmpty()) {
+                throw new IllegalArgumentException("At least one column is required");
+            }
+            return new CsvExporter(this);
+        }
+    }
+}
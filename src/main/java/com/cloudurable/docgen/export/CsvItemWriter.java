@@ -0,0 +1,96 @@
+package com.cloudurable.docgen.export;
+
+import com.cloudurable.docgen.JavaItem;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Writes CSV rows of selected item columns to a buffered writer. Not thread safe.
+ */
+public class CsvItemWriter implements ItemWriter {
+
+    private final Writer writer;
+    private final CsvColumn[] columns;
+    private final String leadingHeader;
+    private long rows;
+
+    CsvItemWriter(Writer writer, List<CsvColumn> columns, String leadingHeader) {
+        this.writer = writer;
+        this.columns = columns.toArray(new CsvColumn[0]);
+        this.leadingHeader = leadingHeader;
+    }
+
+    void writeHeader() throws IOException {
+        final int offset = leadingHeader == null ? 0 : 1;
+        if (leadingHeader != null) {
+            writeValue(0, leadingHeader);
+        }
+        for (int i = 0; i < columns.length; i++) {
+            writeValue(i + offset, columns[i].getHeader());
+        }
+        writer.write('\n');
+    }
+
+    /**
+     * Writes one row that starts with a value of the leading column, such as the operation of a delta row.
+     *
+     * @param leadingValue the value of the leading column
+     * @param javaItem     the item
+     * @throws IOException if the row can not be written
+     */
+    void write(String leadingValue, JavaItem javaItem) throws IOException {
+        writeValue(0, leadingValue);
+        for (int i = 0; i < columns.length; i++) {
+            writeValue(i + 1, columns[i].valueOf(javaItem));
+        }
+        writer.write('\n');
+        rows++;
+    }
+
+    /**
+     * Writes one row.
+     *
+     * @param javaItem the item
+     * @throws IOException if the row can not be written
+     */
+    @Override
+    public void write(JavaItem javaItem) throws IOException {
+        for (int i = 0; i < columns.length; i++) {
+            writeValue(i, columns[i].valueOf(javaItem));
+        }
+        writer.write('\n');
+        rows++;
+    }
+
+    private void writeValue(int column, String value) throws IOException {
+        if (column > 0) {
+            writer.write(',');
+        }
+        writer.write('"');
+        int start = 0;
+        int quote = value.indexOf('"');
+        while (quote >= 0) {
+            writer.write(value, start, quote + 1 - start);
+            writer.write('"');
+            start = quote + 1;
+            quote = value.indexOf('"', start);
+        }
+        writer.write(value, start, value.length() - start);
+        writer.write('"');
+    }
+
+    /**
+     * @return the number of rows written, not counting the header
+     */
+    @Override
+    public long getRows() {
+        return rows;
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,137 @@
+package com.cloudurable.docgen.export;
+
+import com.cloudurable.docgen.JavaItem;
+import com.cloudurable.docgen.index.JavaItemSnapshot;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes only the rows that were added, changed or removed since a previous run.
+ * <p>
+ * The previous run is described by an {@link ItemHashIndex}, or a {@link JavaItemSnapshot} that
+ * is hashed on load. The current items are hashed, each one is looked up in the previous index,
+ * and the previous keys that were not seen are removals: one pass over each side. Rows get a
+ * leading Op column of add, change or remove. Removed rows only carry the type, names and
+ * definition. The current hash index is saved for the next run.
+ */
+public class DeltaCsvExporter {
+
+    public static final String OP_HEADER = "Op";
+    public static final String ADD = "add";
+    public static final String CHANGE = "change";
+    public static final String REMOVE = "remove";
+
+    private final CsvExporter csvExporter;
+
+    /**
+     * Creates a delta exporter.
+     *
+     * @param csvExporter decides the columns and compression; only the selected columns count as changes
+     */
+    public DeltaCsvExporter(CsvExporter csvExporter) {
+        this.csvExporter = csvExporter;
+    }
+
+    /**
+     * Loads the state of the previous run from a hash index or a snapshot.
+     *
+     * @param previous a hash index or snapshot file, or null
+     * @return the previous state, empty when the file is null or missing
+     * @throws IOException if the file is neither a hash index nor a snapshot
+     */
+    public ItemHashIndex loadPrevious(Path previous) throws IOException {
+        if (previous == null || !Files.isRegularFile(previous)) {
+            return ItemHashIndex.empty();
+        }
+        if (ItemHashIndex.isHashIndex(previous)) {
+            return ItemHashIndex.read(previous);
+        }
+        return ItemHashIndex.of(JavaItemSnapshot.open(previous).items(), csvExporter.getColumns());
+    }
+
+    /**
+     * Writes the delta between the previous state and the current items.
+     *
+     * @param javaItems the current items in scan order
+     * @param previous  the state of the previous run
+     * @param deltaFile the delta CSV
+     * @param hashFile  where the current hash index is saved, or null to not save it
+     * @return the number of rows of each kind
+     * @throws IOException if a file can not be written
+     */
+    public Delta export(List<JavaItem> javaItems, ItemHashIndex previous, Path deltaFile, Path hashFile) throws IOException {
+        final ItemHashIndex current = ItemHashIndex.of(javaItems, csvExporter.getColumns());
+        final Map<String, ItemHashIndex.Entry> previousEntries = previous.entries();
+        final Set<String> seen = new HashSet<>(current.size() * 2);
+        long added = 0;
+        long changed = 0;
+        long removed = 0;
+        try (CsvItemWriter writer = csvExporter.open(deltaFile, OP_HEADER)) {
+            int position = 0;
+            for (Map.Entry<String, ItemHashIndex.Entry> entry : current.entries().entrySet()) {
+                final JavaItem javaItem = javaItems.get(position++);
+                final ItemHashIndex.Entry before = previousEntries.get(entry.getKey());
+                seen.add(entry.getKey());
+                if (before == null) {
+                    writer.write(ADD, javaItem);
+                    added++;
+                } else if (before.hash != entry.getValue().hash) {
+                    writer.write(CHANGE, javaItem);
+                    changed++;
+                }
+            }
+            for (Map.Entry<String, ItemHashIndex.Entry> entry : previousEntries.entrySet()) {
+                if (!seen.contains(entry.getKey())) {
+                    writer.write(REMOVE, entry.getValue().toJavaItem());
+                    removed++;
+                }
+            }
+        }
+        if (hashFile != null) {
+            current.write(hashFile);
+        }
+        return new Delta(added, changed, removed);
+    }
+
+    /**
+     * Row counts of a delta export.
+     */
+    public static class Delta {
+        private final long added;
+        private final long changed;
+        private final long removed;
+
+        public Delta(long added, long changed, long removed) {
+            this.added = added;
+            this.changed = changed;
+            this.removed = removed;
+        }
+
+        public long getAdded() {
+            return added;
+        }
+
+        public long getChanged() {
+            return changed;
+        }
+
+        public long getRemoved() {
+            return removed;
+        }
+
+        @Override
+        public String toString() {
+            return "Delta{" +
+                    "added=" + added +
+                    ", changed=" + changed +
+                    ", removed=" + removed +
+                    '}';
+        }
+    }
+}
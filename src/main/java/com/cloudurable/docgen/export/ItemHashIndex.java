@@ -0,0 +1,215 @@
+package com.cloudurable.docgen.export;
+
+import com.cloudurable.docgen.JavaItem;
+import com.cloudurable.docgen.JavaItemType;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Content hash of every exported item, keyed by item identity, saved between runs to compute deltas.
+ * <p>
+ * The key of an item is its type, full name and definition. The definition tells overloads apart,
+ * and also same-named types from different source roots when their declarations differ, so keys
+ * do not depend on scan order. Only items that agree on all three get a numbered suffix in scan
+ * order. The hash is the first
+ * 64 bits of a SHA-256 over the exported column values, so an item counts as changed exactly when
+ * one of its exported values changed. The file is a small binary table read back into a hash map,
+ * which makes the diff one lookup per item.
+ */
+public class ItemHashIndex {
+
+    /** Bump when the file layout or the key or hash definition changes. */
+    static final int FORMAT_VERSION = 2;
+    static final int MAGIC = 0x4A32484B;
+
+    private final Map<String, Entry> entries;
+
+    private ItemHashIndex(Map<String, Entry> entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * @return an index with no items, the previous state of a first run
+     */
+    public static ItemHashIndex empty() {
+        return new ItemHashIndex(new LinkedHashMap<>());
+    }
+
+    /**
+     * Hashes the given items.
+     *
+     * @param javaItems the items in scan order
+     * @param columns   the exported columns, which decide what counts as a change
+     * @return the index
+     */
+    public static ItemHashIndex of(List<JavaItem> javaItems, List<CsvColumn> columns) {
+        final MessageDigest digest = sha256();
+        final Map<String, Entry> entries = new LinkedHashMap<>(javaItems.size() * 2);
+        for (JavaItem javaItem : javaItems) {
+            final String baseKey = keyOf(javaItem);
+            String key = baseKey;
+            for (int occurrence = 2; entries.containsKey(key); occurrence++) {
+                key = baseKey + "#" + occurrence;
+            }
+            entries.put(key, new Entry(javaItem.getType(), javaItem.getName(), javaItem.getDefinition(),
+                    hash(digest, javaItem, columns)));
+        }
+        return new ItemHashIndex(entries);
+    }
+
+    /**
+     * Returns the identity of an item: its type, full name and definition.
+     *
+     * @param javaItem the item
+     * @return the key
+     */
+    public static String keyOf(JavaItem javaItem) {
+        return javaItem.getType().ordinal() + "|" + javaItem.getName() + "|" + javaItem.getDefinition();
+    }
+
+    private static long hash(MessageDigest digest, JavaItem javaItem, List<CsvColumn> columns) {
+        digest.reset();
+        for (CsvColumn column : columns) {
+            digest.update(column.valueOf(javaItem).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+        final byte[] bytes = digest.digest();
+        long hash = 0;
+        for (int i = 0; i < 8; i++) {
+            hash = (hash << 8) | (bytes[i] & 0xFF);
+        }
+        return hash;
+    }
+
+    /**
+     * Tells if a file starts like a hash index.
+     *
+     * @param file the file
+     * @return true if the file is a hash index
+     * @throws IOException if the file can not be read
+     */
+    static boolean isHashIndex(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            return in.readInt() == MAGIC;
+        } catch (EOFException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Reads a hash index written by {@link #write(Path)}.
+     *
+     * @param file the index file
+     * @return the index
+     * @throws IOException if the file can not be read or is not a hash index of this version
+     */
+    public static ItemHashIndex read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not an item hash index: " + file);
+            }
+            final int version = in.readInt();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported item hash index version " + version + ", expected " + FORMAT_VERSION);
+            }
+            final int count = in.readInt();
+            final Map<String, Entry> entries = new LinkedHashMap<>(count * 2);
+            final JavaItemType[] types = JavaItemType.values();
+            for (int i = 0; i < count; i++) {
+                final String key = readString(in);
+                final JavaItemType type = types[in.readByte()];
+                final String name = readString(in);
+                final String definition = readString(in);
+                entries.put(key, new Entry(type, name, definition, in.readLong()));
+            }
+            return new ItemHashIndex(entries);
+        }
+    }
+
+    /**
+     * Writes the index, replacing the file atomically.
+     *
+     * @param file the index file
+     * @throws IOException if the file can not be written
+     */
+    public void write(Path file) throws IOException {
+        final Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        final Path tmp = Files.createTempFile(directory, "hashes", ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(entries.size());
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                writeString(out, entry.getKey());
+                out.writeByte(entry.getValue().type.ordinal());
+                writeString(out, entry.getValue().name);
+                writeString(out, entry.getValue().definition);
+                out.writeLong(entry.getValue().hash);
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return the number of items
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    Map<String, Entry> entries() {
+        return entries;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        final byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * What is kept of an item: enough to write a removed row, and its hash.
+     */
+    static class Entry {
+        final JavaItemType type;
+        final String name;
+        final String definition;
+        final long hash;
+
+        Entry(JavaItemType type, String name, String definition, long hash) {
+            this.type = type;
+            this.name = name;
+            this.definition = definition;
+            this.hash = hash;
+        }
+
+        JavaItem toJavaItem() {
+            return JavaItem.builder().type(type).name(name).simpleName(name.substring(name.lastIndexOf('.') + 1))
+                    .definition(definition).build();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.cloudurable.docgen.export;
+
+import com.cloudurable.docgen.JavaItem;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Receives the scanned items one file at a time and writes them to an export format.
+ */
+public interface ItemWriter extends Closeable {
+
+    /**
+     * Writes one item.
+     *
+     * @param javaItem the item
+     * @throws IOException if the item can not be written
+     */
+    void write(JavaItem javaItem) throws IOException;
+
+    /**
+     * Writes the items in order.
+     *
+     * @param javaItems the items
+     * @throws IOException if an item can not be written
+     */
+    default void write(List<JavaItem> javaItems) throws IOException {
+        for (JavaItem javaItem : javaItems) {
+            write(javaItem);
+        }
+    }
+
+    /**
+     * @return the number of items written
+     */
+    long getRows();
+}
@@ -0,0 +1,144 @@
+package com.cloudurable.docgen.export;
+
+import com.cloudurable.docgen.JavaItem;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes items as newline-delimited JSON: one object per line, keyed by the CSV column headers.
+ * <p>
+ * Objects are built with the same {@code JsonSerializer} as the rule results and go through the
+ * same large buffered UTF-8 writer as the CSV export, optionally gzipped, so the file is written
+ * as the scan streams in. Only the selected columns are read from each item.
+ */
+public class NdjsonExporter {
+
+    private final List<CsvColumn> columns;
+    private final boolean gzip;
+    private final int bufferSize;
+
+    private NdjsonExporter(Builder builder) {
+        this.columns = List.copyOf(builder.columns);
+        this.gzip = builder.gzip;
+        this.bufferSize = builder.bufferSize;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public List<CsvColumn> getColumns() {
+        return columns;
+    }
+
+    public boolean isGzip() {
+        return gzip;
+    }
+
+    /**
+     * Opens an NDJSON file.
+     *
+     * @param file the output file, replaced if it exists
+     * @return the writer for the items
+     * @throws IOException if the file can not be created
+     */
+    public NdjsonItemWriter open(Path file) throws IOException {
+        final Path directory = file.toAbsolutePath().getParent();
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        final FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        return open(Channels.newOutputStream(channel));
+    }
+
+    /**
+     * Writes NDJSON to a stream. Closing the writer closes the stream.
+     *
+     * @param out the output stream
+     * @return the writer for the items
+     * @throws IOException if the stream can not be wrapped
+     */
+    public NdjsonItemWriter open(OutputStream out) throws IOException {
+        final OutputStream stream = gzip ? new GZIPOutputStream(out, 1 << 16) : out;
+        return new NdjsonItemWriter(new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), bufferSize),
+                columns);
+    }
+
+    /**
+     * Writes the items to an NDJSON file.
+     *
+     * @param javaItems the items
+     * @param file      the output file
+     * @return the number of lines written
+     * @throws IOException if the file can not be written
+     */
+    public long export(List<JavaItem> javaItems, Path file) throws IOException {
+        try (NdjsonItemWriter writer = open(file)) {
+            writer.write(javaItems);
+            return writer.getRows();
+        }
+    }
+
+    public static class Builder {
+        private final List<CsvColumn> columns = new ArrayList<>(CsvColumn.ALL);
+        private boolean gzip;
+        private int bufferSize = 1 << 20;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the attributes to write, in order. Defaults to {@link CsvColumn#ALL}.
+         *
+         * @param columns the columns
+         * @return this Builder
+         */
+        public Builder columns(List<CsvColumn> columns) {
+            this.columns.clear();
+            this.columns.addAll(columns);
+            return this;
+        }
+
+        /**
+         * Gzips the output.
+         *
+         * @param gzip true to gzip
+         * @return this Builder
+         */
+        public Builder gzip(boolean gzip) {
+            this.gzip = gzip;
+            return this;
+        }
+
+        /**
+         * Sets the size of the character buffer in front of the file. Defaults to 1M characters.
+         *
+         * @param bufferSize the buffer size in characters
+         * @return this Builder
+         */
+        public Builder bufferSize(int bufferSize) {
+            this.bufferSize = bufferSize;
+            return this;
+        }
+
+        public NdjsonExporter build() {
+            if (columns.isEmpty()) {
+                throw new IllegalArgumentException("At least one column is required");
+            }
+            return new NdjsonExporter(this);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.cloudurable.docgen.export;
+
+import com.cloudurable.docgen.JavaItem;
+import com.cloudurable.jai.util.JsonSerializer;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Writes one JSON object per line for each item. Not thread safe.
+ */
+public class NdjsonItemWriter implements ItemWriter {
+
+    private final Writer writer;
+    private final CsvColumn[] columns;
+    private long rows;
+
+    NdjsonItemWriter(Writer writer, List<CsvColumn> columns) {
+        this.writer = writer;
+        this.columns = columns.toArray(new CsvColumn[0]);
+    }
+
+    /**
+     * Writes one line.
+     *
+     * @param javaItem the item
+     * @throws IOException if the line can not be written
+     */
+    @Override
+    public void write(JavaItem javaItem) throws IOException {
+        final JsonSerializer jsonSerializer = new JsonSerializer();
+        jsonSerializer.startObject();
+        for (CsvColumn column : columns) {
+            jsonSerializer.addAttribute(column.getHeader(), column.valueOf(javaItem));
+        }
+        jsonSerializer.endObject();
+        writer.write(jsonSerializer.toString());
+        writer.write('\n');
+        rows++;
+    }
+
+    /**
+     * @return the number of lines written
+     */
+    @Override
+    public long getRows() {
+        return rows;
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,291 @@
+package com.cloudurable.docgen.export;
+
+import com.cloudurable.docgen.JavaItem;
+import com.cloudurable.docgen.index.JavaItemIndex;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Writes items as several CSV files, one per package or one per hash bucket, in parallel.
+ * <p>
+ * Rows are partitioned by the top-level type they belong to, so a class and its members always
+ * land in the same shard, in scan order. Each shard is written by its own task on a fixed pool and
+ * checksummed while it is written. A {@code manifest.csv} next to the shards lists every shard
+ * file with its row count and SHA-256, so loaders can ingest shards in parallel and verify them.
+ * {@link #exportShard(List, String, Path)} rewrites a single shard and its manifest line.
+ */
+public class ShardedCsvExporter {
+
+    public static final String MANIFEST = "manifest.csv";
+
+    private final CsvExporter csvExporter;
+    private final int hashShards;
+    private final int threads;
+
+    private ShardedCsvExporter(Builder builder) {
+        this.csvExporter = builder.csvExporter;
+        this.hashShards = builder.hashShards;
+        this.threads = builder.threads > 0 ? builder.threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns the shard of an item: the package of its top-level type, or the hash bucket of the
+     * top-level type's full name when hash sharding is on.
+     *
+     * @param javaItem the item
+     * @return the shard name
+     */
+    public String shardOf(JavaItem javaItem) {
+        JavaItem topLevel = javaItem;
+        while (topLevel.getParent() != null) {
+            topLevel = topLevel.getParent();
+        }
+        if (hashShards > 0) {
+            return String.format("shard-%04d", Math.floorMod(topLevel.getName().hashCode(), hashShards));
+        }
+        return JavaItemIndex.packageOf(topLevel);
+    }
+
+    /**
+     * Writes every shard and the manifest.
+     *
+     * @param javaItems the items in scan order
+     * @param directory the output directory
+     * @return the shards written, ordered by file name
+     * @throws IOException if a shard or the manifest can not be written
+     */
+    public List<Shard> export(List<JavaItem> javaItems, Path directory) throws IOException {
+        final Map<String, List<JavaItem>> partitions = new TreeMap<>();
+        for (JavaItem javaItem : javaItems) {
+            partitions.computeIfAbsent(fileName(shardOf(javaItem)), key -> new ArrayList<>()).add(javaItem);
+        }
+        Files.createDirectories(directory);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, Math.max(1, partitions.size())));
+        try {
+            final List<Future<Shard>> futures = new ArrayList<>(partitions.size());
+            partitions.forEach((file, shardItems) ->
+                    futures.add(executor.submit(() -> writeShard(shardItems, file, directory))));
+            final List<Shard> shards = new ArrayList<>(futures.size());
+            for (Future<Shard> future : futures) {
+                shards.add(join(future));
+            }
+            writeManifest(directory, shards);
+            return shards;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Rewrites one shard, for example after one package changed, and updates its line in the manifest.
+     *
+     * @param javaItems the items; only those belonging to the shard are written
+     * @param shard     the shard name, see {@link #shardOf(JavaItem)}
+     * @param directory the output directory
+     * @return the rewritten shard
+     * @throws IOException if the shard or the manifest can not be written
+     */
+    public Shard exportShard(List<JavaItem> javaItems, String shard, Path directory) throws IOException {
+        final List<JavaItem> shardItems = new ArrayList<>();
+        for (JavaItem javaItem : javaItems) {
+            if (shardOf(javaItem).equals(shard)) {
+                shardItems.add(javaItem);
+            }
+        }
+        Files.createDirectories(directory);
+        final Shard written = writeShard(shardItems, fileName(shard), directory);
+
+        final Map<String, Shard> shards = new TreeMap<>();
+        for (Shard existing : readManifest(directory)) {
+            shards.put(existing.getFile(), existing);
+        }
+        shards.put(written.getFile(), written);
+        writeManifest(directory, new ArrayList<>(shards.values()));
+        return written;
+    }
+
+    /**
+     * Reads the manifest of an export directory.
+     *
+     * @param directory the output directory
+     * @return the shards listed, or an empty list if there is no manifest
+     * @throws IOException if the manifest can not be read
+     */
+    public static List<Shard> readManifest(Path directory) throws IOException {
+        final Path manifest = directory.resolve(MANIFEST);
+        if (!Files.isRegularFile(manifest)) {
+            return new ArrayList<>();
+        }
+        final List<Shard> shards = new ArrayList<>();
+        final List<String> lines = Files.readAllLines(manifest, StandardCharsets.UTF_8);
+        for (String line : lines.subList(1, lines.size())) {
+            final String[] values = line.substring(1, line.length() - 1).split("\",\"", -1);
+            shards.add(new Shard(values[0].replace("\"\"", "\""), Long.parseLong(values[1]), values[2]));
+        }
+        return shards;
+    }
+
+    private Shard writeShard(List<JavaItem> shardItems, String file, Path directory) throws IOException {
+        final Path target = directory.resolve(file);
+        final Path tmp = Files.createTempFile(directory, "shard", ".tmp");
+        final MessageDigest digest = sha256();
+        final long rows;
+        try (CsvItemWriter writer = csvExporter.open(
+                new DigestOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16), digest))) {
+            writer.write(shardItems);
+            rows = writer.getRows();
+        }
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return new Shard(file, rows, hex(digest.digest()));
+    }
+
+    private String fileName(String shard) {
+        final String name = shard.isEmpty() ? "default" : shard;
+        return name + (csvExporter.isGzip() ? ".csv.gz" : ".csv");
+    }
+
+    private static void writeManifest(Path directory, List<Shard> shards) throws IOException {
+        final StringBuilder manifest = new StringBuilder("\"File\",\"Rows\",\"Sha256\"\n");
+        for (Shard shard : shards) {
+            manifest.append('"').append(shard.getFile().replace("\"", "\"\"")).append("\",\"")
+                    .append(shard.getRows()).append("\",\"").append(shard.getSha256()).append("\"\n");
+        }
+        final Path tmp = Files.createTempFile(directory, "manifest", ".tmp");
+        Files.write(tmp, manifest.toString().getBytes(StandardCharsets.UTF_8));
+        Files.move(tmp, directory.resolve(MANIFEST), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static Shard join(Future<Shard> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing shards", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw new IOException("Writing a shard failed", e.getCause());
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hex(byte[] digest) {
+        final StringBuilder builder = new StringBuilder(digest.length * 2);
+        for (byte b : digest) {
+            builder.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * One shard file of an export.
+     */
+    public static class Shard {
+        private final String file;
+        private final long rows;
+        private final String sha256;
+
+        public Shard(String file, long rows, String sha256) {
+            this.file = file;
+            this.rows = rows;
+            this.sha256 = sha256;
+        }
+
+        public String getFile() {
+            return file;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public String getSha256() {
+            return sha256;
+        }
+
+        @Override
+        public String toString() {
+            return "Shard{" +
+                    "file='" + file + '\'' +
+                    ", rows=" + rows +
+                    ", sha256='" + sha256 + '\'' +
+                    '}';
+        }
+    }
+
+    public static class Builder {
+        private CsvExporter csvExporter = CsvExporter.builder().build();
+        private int hashShards;
+        private int threads;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the exporter used for each shard, which decides the columns and compression.
+         *
+         * @param csvExporter the exporter
+         * @return this Builder
+         */
+        public Builder csvExporter(CsvExporter csvExporter) {
+            this.csvExporter = csvExporter;
+            return this;
+        }
+
+        /**
+         * Shards by hash of the top-level type name into the given number of files instead of by package.
+         *
+         * @param hashShards the number of shards, or zero to shard by package
+         * @return this Builder
+         */
+        public Builder hashShards(int hashShards) {
+            this.hashShards = hashShards;
+            return this;
+        }
+
+        /**
+         * Sets how many shards are written at once. Zero or less uses one thread per processor.
+         *
+         * @param threads the number of writer threads
+         * @return this Builder
+         */
+        public Builder threads(int threads) {
+            this.threads = threads;
+            return this;
+        }
+
+        public ShardedCsvExporter build() {
+            return new ShardedCsvExporter(this);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.cloudurable.docgen.export;
+
+import com.cloudurable.docgen.JavaItem;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes items into a SQLite database file so they can be queried instead of grepped.
+ * <p>
+ * Items go into an {@code items} table with one column per {@link CsvColumn}, named after the CSV
+ * headers. Rows are inserted with one prepared statement, executed in batches inside large
+ * transactions, with journaling and syncing turned off since the file is rebuilt from scratch.
+ * The indexes on FullName, Parent and Type, and the FTS5 table over Definition, JavaDoc and Body,
+ * are built once after the load, which is much faster than maintaining them row by row.
+ * The FTS5 table uses the items table as external content, so the text is stored once.
+ * Needs the sqlite-jdbc driver on the class path.
+ */
+public class SqliteExporter {
+
+    /** The table holding one row per item. */
+    public static final String TABLE = "items";
+    /** The FTS5 table over Definition, JavaDoc and Body, joined to {@link #TABLE} on rowid. */
+    public static final String FULL_TEXT_TABLE = "items_fts";
+
+    private final int batchSize;
+    private final int transactionSize;
+    private final boolean fullText;
+
+    private SqliteExporter(Builder builder) {
+        this.batchSize = builder.batchSize;
+        this.transactionSize = builder.transactionSize;
+        this.fullText = builder.fullText;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Creates the database, replacing an existing file, and opens it for loading.
+     *
+     * @param database the database file
+     * @return the writer for the items; closing it builds the indexes
+     * @throws IOException if the database can not be created
+     */
+    public SqliteItemWriter open(Path database) throws IOException {
+        final Path directory = database.toAbsolutePath().getParent();
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        Files.deleteIfExists(database);
+        Connection connection = null;
+        try {
+            connection = DriverManager.getConnection("jdbc:sqlite:" + database.toAbsolutePath());
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("PRAGMA journal_mode=OFF");
+                statement.execute("PRAGMA synchronous=OFF");
+                statement.execute(createTable());
+            }
+            connection.setAutoCommit(false);
+            return new SqliteItemWriter(database, connection, insert(), batchSize, transactionSize, finish());
+        } catch (SQLException e) {
+            final IOException failure = new IOException("Unable to create " + database, e);
+            if (connection != null) {
+                try {
+                    connection.close();
+                } catch (SQLException closeFailure) {
+                    failure.addSuppressed(closeFailure);
+                }
+            }
+            Files.deleteIfExists(database);
+            throw failure;
+        }
+    }
+
+    /**
+     * Writes the items into a new database.
+     *
+     * @param javaItems the items
+     * @param database  the database file, replaced if it exists
+     * @return the number of rows written
+     * @throws IOException if the database can not be written
+     */
+    public long export(List<JavaItem> javaItems, Path database) throws IOException {
+        try (SqliteItemWriter writer = open(database)) {
+            writer.write(javaItems);
+            return writer.getRows();
+        }
+    }
+
+    private static String createTable() {
+        final StringBuilder builder = new StringBuilder("CREATE TABLE ").append(TABLE).append(" (id INTEGER PRIMARY KEY");
+        for (CsvColumn column : CsvColumn.ALL) {
+            builder.append(", ").append(column.getHeader()).append(" TEXT NOT NULL");
+        }
+        return builder.append(')').toString();
+    }
+
+    private static String insert() {
+        final StringBuilder columns = new StringBuilder();
+        final StringBuilder values = new StringBuilder();
+        for (CsvColumn column : CsvColumn.ALL) {
+            if (columns.length() > 0) {
+                columns.append(", ");
+                values.append(", ");
+            }
+            columns.append(column.getHeader());
+            values.append('?');
+        }
+        return "INSERT INTO " + TABLE + " (" + columns + ") VALUES (" + values + ")";
+    }
+
+    private List<String> finish() {
+        final List<String> statements = new ArrayList<>(List.of(
+                "CREATE INDEX items_full_name ON " + TABLE + " (FullName)",
+                "CREATE INDEX items_parent ON " + TABLE + " (Parent)",
+                "CREATE INDEX items_type ON " + TABLE + " (Type)"));
+        if (fullText) {
+            statements.add("CREATE VIRTUAL TABLE " + FULL_TEXT_TABLE + " USING fts5(Definition, JavaDoc, Body, content='"
+                    + TABLE + "', content_rowid='id')");
+            statements.add("INSERT INTO " + FULL_TEXT_TABLE + "(" + FULL_TEXT_TABLE + ") VALUES ('rebuild')");
+        }
+        return statements;
+    }
+
+    public static class Builder {
+        private int batchSize = 1000;
+        private int transactionSize = 100_000;
+        private boolean fullText = true;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets how many inserts are sent to the driver at once. Defaults to 1000.
+         *
+         * @param batchSize the rows per batch
+         * @return this Builder
+         */
+        public Builder batchSize(int batchSize) {
+            if (batchSize < 1) {
+                throw new IllegalArgumentException("batchSize must be at least 1");
+            }
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * Sets how many rows are committed per transaction. Defaults to 100,000.
+         *
+         * @param transactionSize the rows per transaction
+         * @return this Builder
+         */
+        public Builder transactionSize(int transactionSize) {
+            if (transactionSize < 1) {
+                throw new IllegalArgumentException("transactionSize must be at least 1");
+            }
+            this.transactionSize = transactionSize;
+            return this;
+        }
+
+        /**
+         * Builds the FTS5 table over Definition, JavaDoc and Body. Defaults to true.
+         *
+         * @param fullText true to build the full-text table
+         * @return this Builder
+         */
+        public Builder fullText(boolean fullText) {
+            this.fullText = fullText;
+            return this;
+        }
+
+        public SqliteExporter build() {
+            return new SqliteExporter(this);
+        }
+    }
+}
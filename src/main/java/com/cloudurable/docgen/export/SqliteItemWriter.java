@@ -0,0 +1,117 @@
+package com.cloudurable.docgen.export;
+
+import com.cloudurable.docgen.JavaItem;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Inserts items into the table created by {@link SqliteExporter}. Not thread safe.
+ * <p>
+ * If an insert fails, closing the writer does not build the indexes and deletes the database
+ * file, so a half-loaded database is never left behind looking complete.
+ */
+public class SqliteItemWriter implements ItemWriter {
+
+    private final Path database;
+    private final Connection connection;
+    private final PreparedStatement insert;
+    private final CsvColumn[] columns = CsvColumn.ALL.toArray(new CsvColumn[0]);
+    private final int batchSize;
+    private final int transactionSize;
+    private final List<String> finish;
+    private long rows;
+    private int pending;
+    private boolean failed;
+
+    SqliteItemWriter(Path database, Connection connection, String insert, int batchSize, int transactionSize,
+                     List<String> finish) throws SQLException {
+        this.database = database;
+        this.connection = connection;
+        this.insert = connection.prepareStatement(insert);
+        this.batchSize = batchSize;
+        this.transactionSize = transactionSize;
+        this.finish = finish;
+    }
+
+    /**
+     * Inserts one row.
+     *
+     * @param javaItem the item
+     * @throws IOException if the row can not be inserted
+     */
+    @Override
+    public void write(JavaItem javaItem) throws IOException {
+        try {
+            for (int i = 0; i < columns.length; i++) {
+                insert.setString(i + 1, columns[i].valueOf(javaItem));
+            }
+            insert.addBatch();
+            rows++;
+            if (++pending == batchSize) {
+                insert.executeBatch();
+                pending = 0;
+            }
+            if (rows % transactionSize == 0) {
+                flush();
+            }
+        } catch (SQLException e) {
+            failed = true;
+            throw new IOException("Unable to insert " + javaItem.getName(), e);
+        } catch (RuntimeException e) {
+            failed = true;
+            throw e;
+        }
+    }
+
+    private void flush() throws SQLException {
+        if (pending > 0) {
+            insert.executeBatch();
+            pending = 0;
+        }
+        connection.commit();
+    }
+
+    /**
+     * @return the number of rows inserted
+     */
+    @Override
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * Commits the remaining rows, builds the indexes and full-text table, and closes the database.
+     * After a failed insert, closes and deletes the database instead.
+     *
+     * @throws IOException if the rows can not be committed or the indexes built
+     */
+    @Override
+    public void close() throws IOException {
+        try (Connection ignored = connection; PreparedStatement ignoredInsert = insert) {
+            if (failed) {
+                return;
+            }
+            flush();
+            try (Statement statement = connection.createStatement()) {
+                for (String sql : finish) {
+                    statement.execute(sql);
+                }
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            failed = true;
+            throw new IOException("Unable to finish the database", e);
+        } finally {
+            if (failed) {
+                Files.deleteIfExists(database);
+            }
+        }
+    }
+}
@@ -1,9 +1,9 @@
 package com.cloudurable.docgen.generators;
 
 import com.cloudurable.docgen.extract.FileUtils;
+import com.cloudurable.docgen.llm.LlmGateway;
 import com.cloudurable.docgen.mermaid.validation.*;
 import com.cloudurable.docgen.mermaid.validation.sequence.*;
-import com.cloudurable.jai.OpenAIClient;
 import com.cloudurable.jai.model.text.completion.chat.ChatRequest;
 import com.cloudurable.jai.model.text.completion.chat.Message;
 import com.cloudurable.jai.model.text.completion.chat.Role;
@@ -14,12 +14,21 @@ import java.util.List;
 
 public class MethodMermaidSequenceGen {
 
-    private final OpenAIClient client;
+    private final LlmGateway client;
     private final List<Message> context = new ArrayList<>();
 
     public  MethodMermaidSequenceGen(){
+        this(LlmGateway.getDefault());
+    }
+
+    /**
+     * Creates a generator that sends its requests through the given gateway.
+     *
+     * @param client the shared LLM gateway
+     */
+    public MethodMermaidSequenceGen(LlmGateway client) {
 
-        client = OpenAIClient.builder().validateJson(true).setApiKey(System.getenv("OPENAI_API_KEY")).build();
+        this.client = client;
 
         final var systemMessage = Message.builder().role(Role.SYSTEM)
                 .content(FileUtils.readFile(new File("templates/methods/method_sequence_system.md")))
@@ -92,24 +101,22 @@ public class MethodMermaidSequenceGen {
     }
 
     private String runValidationFeedbackLoop(String javaMethodSource, String title, String instruction, ChatRequest request, RuleRunner ruleRunner) {
-        for (int i = 0; i < 5; i++) {
-            final var chatResponse = client.chat(request);
-            if (chatResponse.getException().isPresent()) {
-                System.out.printf("%s\n", instruction);
-                chatResponse.getException().ifPresent(Throwable::printStackTrace);
-            } else if (chatResponse.getStatusMessage().isPresent()) {
-                chatResponse.getStatusMessage().ifPresent(status -> {
-                    System.out.printf("%s %s %d\n", instruction, status, chatResponse.getStatusCode().orElse(666));
-                });
-            } else if (chatResponse.getResponse().isPresent()) {
-                final var response = chatResponse.getResponse().get();
-                final var chatChoice = response.getChoices().get(0);
-                final var original = chatChoice.getMessage().getContent();
-                final var mermaidDiagram = extractSequenceDiagram(original);
-
-
-                return validateMermaid(javaMethodSource, mermaidDiagram, title, ruleRunner);
-            }
+        final var chatResponse = client.chat(request);
+        if (chatResponse.getException().isPresent()) {
+            System.out.printf("%s\n", instruction);
+            chatResponse.getException().ifPresent(Throwable::printStackTrace);
+        } else if (chatResponse.getStatusMessage().isPresent()) {
+            chatResponse.getStatusMessage().ifPresent(status -> {
+                System.out.printf("%s %s %d\n", instruction, status, chatResponse.getStatusCode().orElse(666));
+            });
+        } else if (chatResponse.getResponse().isPresent()) {
+            final var response = chatResponse.getResponse().get();
+            final var chatChoice = response.getChoices().get(0);
+            final var original = chatChoice.getMessage().getContent();
+            final var mermaidDiagram = extractSequenceDiagram(original);
+
+
+            return validateMermaid(javaMethodSource, mermaidDiagram, title, ruleRunner);
         }
         return "";
     }
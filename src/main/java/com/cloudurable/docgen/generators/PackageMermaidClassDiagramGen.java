@@ -1,11 +1,11 @@
 package com.cloudurable.docgen.generators;
 
 import com.cloudurable.docgen.extract.FileUtils;
+import com.cloudurable.docgen.llm.LlmGateway;
 import com.cloudurable.docgen.mermaid.validation.*;
 import com.cloudurable.docgen.mermaid.validation.classes.NoArrayRule;
 import com.cloudurable.docgen.mermaid.validation.classes.NoCollectionRule;
 import com.cloudurable.docgen.mermaid.validation.classes.NoPrimitiveOrBasicTypesRule;
-import com.cloudurable.jai.OpenAIClient;
 import com.cloudurable.jai.model.text.completion.chat.ChatRequest;
 import com.cloudurable.jai.model.text.completion.chat.Message;
 import com.cloudurable.jai.model.text.completion.chat.Role;
@@ -16,12 +16,21 @@ import java.util.List;
 
 public class PackageMermaidClassDiagramGen {
 
-    private final OpenAIClient client;
+    private final LlmGateway client;
     private final List<Message> context = new ArrayList<>();
 
     public  PackageMermaidClassDiagramGen(){
+        this(LlmGateway.getDefault());
+    }
+
+    /**
+     * Creates a generator that sends its requests through the given gateway.
+     *
+     * @param client the shared LLM gateway
+     */
+    public PackageMermaidClassDiagramGen(LlmGateway client) {
 
-        client = OpenAIClient.builder().validateJson(true).setApiKey(System.getenv("OPENAI_API_KEY")).build();
+        this.client = client;
 
         final var systemMessage = Message.builder().role(Role.SYSTEM)
                 .content(FileUtils.readFile(new File("templates/classes/system.md")))
@@ -85,23 +94,21 @@ public class PackageMermaidClassDiagramGen {
     }
 
     private String runMermaidValidationFeedbackLoop(String source, String title, String instruction, ChatRequest request) {
-        for (int i = 0; i < 5; i++) {
-            final var chatResponse = client.chat(request);
-            if (chatResponse.getException().isPresent()) {
-                System.out.printf("%s\n", instruction);
-                chatResponse.getException().ifPresent(Throwable::printStackTrace);
-            } else if (chatResponse.getStatusMessage().isPresent()) {
-                chatResponse.getStatusMessage().ifPresent(status -> {
-                    System.out.printf("%s %s %d\n", instruction, status, chatResponse.getStatusCode().orElse(666));
-                });
-            } else if (chatResponse.getResponse().isPresent()) {
-                final var response = chatResponse.getResponse().get();
-                final var chatChoice = response.getChoices().get(0);
-                final var original = chatChoice.getMessage().getContent();
-                final var mermaidDiagram = extractMermaidDiagram(original);
-                System.out.println(mermaidDiagram);
-                return validateMermaid(source, mermaidDiagram, title);
-            }
+        final var chatResponse = client.chat(request);
+        if (chatResponse.getException().isPresent()) {
+            System.out.printf("%s\n", instruction);
+            chatResponse.getException().ifPresent(Throwable::printStackTrace);
+        } else if (chatResponse.getStatusMessage().isPresent()) {
+            chatResponse.getStatusMessage().ifPresent(status -> {
+                System.out.printf("%s %s %d\n", instruction, status, chatResponse.getStatusCode().orElse(666));
+            });
+        } else if (chatResponse.getResponse().isPresent()) {
+            final var response = chatResponse.getResponse().get();
+            final var chatChoice = response.getChoices().get(0);
+            final var original = chatChoice.getMessage().getContent();
+            final var mermaidDiagram = extractMermaidDiagram(original);
+            System.out.println(mermaidDiagram);
+            return validateMermaid(source, mermaidDiagram, title);
         }
         return "";
     }
@@ -0,0 +1,65 @@
+package com.cloudurable.docgen.index;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only store of UTF-8 text in large pages.
+ * <p>
+ * A value is addressed by a reference, the page index in the high 32 bits and the offset in the
+ * low 32 bits, plus its length in bytes. Values never span pages; one bigger than a page gets a
+ * page of its own. Paging keeps each array well under the 2 GB array limit and avoids copying
+ * everything written so far when the arena grows.
+ */
+class ByteArena {
+
+    static final int PAGE_SIZE = 1 << 22;
+
+    private final List<byte[]> pages = new ArrayList<>();
+    private int used = PAGE_SIZE;
+
+    /**
+     * Appends the UTF-8 bytes of a value.
+     *
+     * @param bytes the encoded value
+     * @return the reference of the value
+     */
+    long append(byte[] bytes) {
+        if (bytes.length == 0) {
+            return 0L;
+        }
+        if (PAGE_SIZE - used < bytes.length) {
+            pages.add(new byte[Math.max(PAGE_SIZE, bytes.length)]);
+            used = 0;
+        }
+        final int page = pages.size() - 1;
+        final int offset = used;
+        System.arraycopy(bytes, 0, pages.get(page), offset, bytes.length);
+        used += bytes.length;
+        return ((long) page << 32) | offset;
+    }
+
+    String read(long reference, int length) {
+        if (length == 0) {
+            return "";
+        }
+        return new String(pages.get((int) (reference >>> 32)), (int) reference, length, StandardCharsets.UTF_8);
+    }
+
+    byte[] bytes(long reference, int length) {
+        final byte[] bytes = new byte[length];
+        if (length > 0) {
+            System.arraycopy(pages.get((int) (reference >>> 32)), (int) reference, bytes, 0, length);
+        }
+        return bytes;
+    }
+
+    long capacityBytes() {
+        long capacity = 0;
+        for (byte[] page : pages) {
+            capacity += page.length;
+        }
+        return capacity;
+    }
+}
@@ -0,0 +1,31 @@
+package com.cloudurable.docgen.index;
+
+import com.cloudurable.docgen.JavaItem;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * List of the views of all items of some columns, created on access.
+ */
+final class ItemList extends AbstractList<JavaItem> implements RandomAccess {
+    private final JavaItemColumns columns;
+
+    ItemList(JavaItemColumns columns) {
+        this.columns = columns;
+    }
+
+    JavaItemColumns columns() {
+        return columns;
+    }
+
+    @Override
+    public JavaItem get(int index) {
+        return columns.get(index);
+    }
+
+    @Override
+    public int size() {
+        return columns.size();
+    }
+}
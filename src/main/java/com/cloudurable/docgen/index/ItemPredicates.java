@@ -0,0 +1,75 @@
+package com.cloudurable.docgen.index;
+
+import com.cloudurable.docgen.JavaItem;
+import com.cloudurable.docgen.JavaItemType;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Names and definitions of the selection predicates every {@link JavaItemIndex} evaluates once at build time.
+ */
+public final class ItemPredicates {
+
+    /** A class that is not nested in another type. */
+    public static final String TOP_LEVEL_CLASS = "isTopLevelClass";
+    /** A type named like a test: ending in Test, Tests or TestBase. */
+    public static final String TEST_TYPE = "isTestType";
+    /** A test type, or a type named like test support: starting with Test or ending in Mock. */
+    public static final String TEST_SUPPORT_TYPE = "isTestSupportType";
+    /** A getter or setter; public static get methods are factories, not getters. */
+    public static final String ACCESSOR = "isAccessor";
+    /** toString, hashCode, equals or builder. */
+    public static final String OBJECT_METHOD = "isObjectMethod";
+    /** An item whose body has five lines or fewer. */
+    public static final String TRIVIAL_BODY = "isTrivialBody";
+
+    private ItemPredicates() {
+    }
+
+    static Map<String, Predicate<JavaItem>> builtIns() {
+        final Map<String, Predicate<JavaItem>> predicates = new LinkedHashMap<>();
+        predicates.put(TOP_LEVEL_CLASS, item -> item.getType() == JavaItemType.CLASS && item.getParent() == null);
+        predicates.put(TEST_TYPE, ItemPredicates::isTestType);
+        predicates.put(TEST_SUPPORT_TYPE, item -> isTestType(item)
+                || item.getSimpleName().startsWith("Test") || item.getSimpleName().endsWith("Mock"));
+        predicates.put(ACCESSOR, item -> item.getSimpleName().startsWith("set")
+                || (item.getSimpleName().startsWith("get") && !item.getDefinition().contains("public static")));
+        predicates.put(OBJECT_METHOD, item -> {
+            final String name = item.getSimpleName();
+            return name.equals("toString") || name.equals("hashCode") || name.equals("equals") || name.equals("builder");
+        });
+        predicates.put(TRIVIAL_BODY, item -> lineCount(item.getBody()) <= 5);
+        return predicates;
+    }
+
+    private static boolean isTestType(JavaItem item) {
+        final String name = item.getSimpleName();
+        return name.endsWith("Test") || name.endsWith("Tests") || name.endsWith("TestBase");
+    }
+
+    /**
+     * Counts lines the way {@link String#lines()} does, without creating the lines.
+     */
+    static long lineCount(String text) {
+        long lines = 0;
+        final int length = text.length();
+        for (int i = 0; i < length; i++) {
+            final char c = text.charAt(i);
+            if (c == '\n' || c == '\r') {
+                lines++;
+                if (c == '\r' && i + 1 < length && text.charAt(i + 1) == '\n') {
+                    i++;
+                }
+            }
+        }
+        if (length > 0) {
+            final char last = text.charAt(length - 1);
+            if (last != '\n' && last != '\r') {
+                lines++;
+            }
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,126 @@
+package com.cloudurable.docgen.index;
+
+import com.cloudurable.docgen.JavaItem;
+import com.cloudurable.docgen.JavaItemType;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Narrows a set of candidate items, by id, using the index's type and predicate bitsets.
+ * <p>
+ * A query starts from all items, a package or the members of an item, and every step keeps the
+ * candidates whose bit is set (or clear), so selecting the methods of a class costs a bit test
+ * per member rather than string checks. Candidates stay in scan order. A query is used by one
+ * thread; the index behind it can be shared.
+ */
+public class ItemQuery {
+
+    private final JavaItemIndex index;
+    private int[] ids;
+    private int size;
+
+    ItemQuery(JavaItemIndex index, int[] ids) {
+        this.index = index;
+        this.ids = ids;
+        this.size = ids.length;
+    }
+
+    /**
+     * Keeps the items of any of the given types.
+     *
+     * @param types the types to keep
+     * @return this query
+     */
+    public ItemQuery type(JavaItemType... types) {
+        final BitSet[] bits = new BitSet[types.length];
+        for (int t = 0; t < types.length; t++) {
+            bits[t] = index.typeBits(types[t]);
+        }
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            for (BitSet typeBits : bits) {
+                if (typeBits.get(ids[i])) {
+                    ids[kept++] = ids[i];
+                    break;
+                }
+            }
+        }
+        size = kept;
+        return this;
+    }
+
+    /**
+     * Keeps the items matching a registered predicate.
+     *
+     * @param predicate the predicate name
+     * @return this query
+     */
+    public ItemQuery with(String predicate) {
+        return retain(index.predicate(predicate), true);
+    }
+
+    /**
+     * Drops the items matching a registered predicate.
+     *
+     * @param predicate the predicate name
+     * @return this query
+     */
+    public ItemQuery without(String predicate) {
+        return retain(index.predicate(predicate), false);
+    }
+
+    private ItemQuery retain(BitSet bits, boolean set) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (bits.get(ids[i]) == set) {
+                ids[kept++] = ids[i];
+            }
+        }
+        size = kept;
+        return this;
+    }
+
+    /**
+     * @return the ids of the remaining items in scan order
+     */
+    public int[] ids() {
+        return Arrays.copyOf(ids, size);
+    }
+
+    /**
+     * @return the remaining items as bits indexed by id
+     */
+    public BitSet bits() {
+        final BitSet bits = new BitSet(index.size());
+        for (int i = 0; i < size; i++) {
+            bits.set(ids[i]);
+        }
+        return bits;
+    }
+
+    /**
+     * @return the remaining items in scan order
+     */
+    public List<JavaItem> list() {
+        return index.items(ids());
+    }
+
+    /**
+     * @return the remaining items in scan order
+     */
+    public Stream<JavaItem> stream() {
+        final List<JavaItem> all = index.all();
+        return IntStream.of(ids()).mapToObj(all::get);
+    }
+
+    /**
+     * @return the number of remaining items
+     */
+    public int count() {
+        return size;
+    }
+}
@@ -0,0 +1,73 @@
+package com.cloudurable.docgen.index;
+
+import com.cloudurable.docgen.JavaItem;
+import com.cloudurable.docgen.JavaItemType;
+
+import java.util.List;
+
+/**
+ * Items stored column by column and addressed by int id, from 0 to {@link #size()} - 1.
+ * <p>
+ * {@link #get(int)} and {@link #items()} return flyweight {@link JavaItem} views that read the
+ * columns on access, so code written against JavaItem works on any implementation.
+ */
+public interface JavaItemColumns {
+
+    /**
+     * @return the number of items
+     */
+    int size();
+
+    JavaItemType type(int id);
+
+    /**
+     * @param id the item id
+     * @return the id of the parent, or -1 for a top-level item
+     */
+    int parent(int id);
+
+    String name(int id);
+
+    String simpleName(int id);
+
+    String importBody(int id);
+
+    String definition(int id);
+
+    String javadoc(int id);
+
+    String body(int id);
+
+    /**
+     * Returns a view of the item with the given id.
+     *
+     * @param id the item id
+     * @return a flyweight view of the item
+     */
+    default JavaItem get(int id) {
+        if (id < 0 || id >= size()) {
+            throw new IndexOutOfBoundsException("id " + id + " size " + size());
+        }
+        return new JavaItemView(this, id);
+    }
+
+    /**
+     * @return all items in id order, as views created on access
+     */
+    default List<JavaItem> items() {
+        return new ItemList(this);
+    }
+
+    /**
+     * Returns the id of an item obtained from these columns.
+     *
+     * @param javaItem an item
+     * @return its id, or -1 if it is null or not a view of these columns
+     */
+    default int idOf(JavaItem javaItem) {
+        if (javaItem instanceof JavaItemView && ((JavaItemView) javaItem).columns == this) {
+            return ((JavaItemView) javaItem).id;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,309 @@
+package com.cloudurable.docgen.index;
+
+import com.cloudurable.docgen.JavaItem;
+import com.cloudurable.docgen.JavaItemType;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Read-only index over the items of a scan, built once in a single pass.
+ * <p>
+ * Keeps the items grouped by parent, by package, by type and by fully qualified name, so
+ * looking up the members of a class costs the number of members instead of a pass over every
+ * item of the repository. Every group keeps scan order, so callers see items in the same order
+ * as they would by filtering the scanned list.
+ * <p>
+ * Each item has an int id, its position in {@link #all()}. The selection predicates of
+ * {@link ItemPredicates} are evaluated once per item into bitsets indexed by id, and
+ * {@link #query()} narrows candidates by testing those bits. More predicates can be added with
+ * {@link #register(String, Predicate)}.
+ */
+public class JavaItemIndex {
+
+    private static final int[] NO_IDS = new int[0];
+
+    private final List<JavaItem> javaItems;
+    private final JavaItemColumns columns;
+    private final Map<JavaItem, Integer> ids;
+    private final int[][] childIds;
+    private final Map<String, int[]> topLevelByPackage = new LinkedHashMap<>();
+    private final Map<JavaItemType, BitSet> byType = new EnumMap<>(JavaItemType.class);
+    private final Map<String, int[]> byName = new HashMap<>();
+    private final Map<String, BitSet> predicates = new ConcurrentHashMap<>();
+
+    /**
+     * Indexes the given items.
+     * <p>
+     * When the list comes from {@link JavaItemColumns#items()}, the index reads the columns
+     * directly and uses the row ids as item ids, so it neither copies the list nor creates a view
+     * per item.
+     *
+     * @param javaItems the items of a scan, in scan order
+     */
+    public JavaItemIndex(List<JavaItem> javaItems) {
+        if (javaItems instanceof ItemList) {
+            // Rows added to the columns later stay outside the index.
+            this.javaItems = javaItems.subList(0, javaItems.size());
+            this.columns = ((ItemList) javaItems).columns();
+            this.ids = null;
+        } else {
+            this.javaItems = Collections.unmodifiableList(new ArrayList<>(javaItems));
+            this.columns = null;
+            this.ids = new HashMap<>(this.javaItems.size() * 2);
+            for (int id = 0; id < this.javaItems.size(); id++) {
+                ids.put(this.javaItems.get(id), id);
+            }
+        }
+        final int size = this.javaItems.size();
+
+        final int[] parentIds = new int[size];
+        final int[] childCounts = new int[size];
+        final Map<String, IdList> packages = new LinkedHashMap<>();
+        final Map<String, IdList> names = new HashMap<>();
+        for (int id = 0; id < size; id++) {
+            final boolean topLevel;
+            final JavaItemType type;
+            final String name;
+            if (columns != null) {
+                parentIds[id] = columns.parent(id);
+                topLevel = parentIds[id] < 0;
+                type = columns.type(id);
+                name = columns.name(id);
+            } else {
+                final JavaItem javaItem = this.javaItems.get(id);
+                final JavaItem parent = javaItem.getParent();
+                final Integer parentId = parent == null ? null : ids.get(parent);
+                parentIds[id] = parentId == null ? -1 : parentId;
+                topLevel = parent == null;
+                type = javaItem.getType();
+                name = javaItem.getName();
+            }
+            if (topLevel) {
+                packages.computeIfAbsent(packageOf(name), key -> new IdList()).add(id);
+            } else if (parentIds[id] >= 0) {
+                childCounts[parentIds[id]]++;
+            }
+            byType.computeIfAbsent(type, key -> new BitSet(size)).set(id);
+            names.computeIfAbsent(name, key -> new IdList()).add(id);
+        }
+
+        childIds = new int[size][];
+        for (int id = 0; id < size; id++) {
+            final int parentId = parentIds[id];
+            if (parentId >= 0) {
+                if (childIds[parentId] == null) {
+                    childIds[parentId] = new int[childCounts[parentId]];
+                    childCounts[parentId] = 0;
+                }
+                childIds[parentId][childCounts[parentId]++] = id;
+            }
+        }
+        packages.forEach((name, list) -> topLevelByPackage.put(name, list.toArray()));
+        names.forEach((name, list) -> byName.put(name, list.toArray()));
+
+        ItemPredicates.builtIns().forEach(this::register);
+    }
+
+    /**
+     * Returns the package of a top-level type, the part of its name before the last dot.
+     *
+     * @param javaItem a top-level type
+     * @return the package name, empty for the default package
+     */
+    public static String packageOf(JavaItem javaItem) {
+        return packageOf(javaItem.getName());
+    }
+
+    private static String packageOf(String name) {
+        final int lastDot = name.lastIndexOf('.');
+        return lastDot == -1 ? "" : name.substring(0, lastDot);
+    }
+
+    /**
+     * Evaluates a predicate for every item and keeps the result under the given name, for use with
+     * {@link ItemQuery#with(String)} and {@link ItemQuery#without(String)}. Registering a name that
+     * is already registered keeps the first predicate. Safe to call while other threads query.
+     *
+     * @param name      the predicate name
+     * @param predicate the predicate, evaluated once per item
+     * @return the bits of the items that match, indexed by id; do not modify
+     */
+    public BitSet register(String name, Predicate<JavaItem> predicate) {
+        return predicates.computeIfAbsent(name, key -> {
+            final BitSet bits = new BitSet(javaItems.size());
+            for (int id = 0; id < javaItems.size(); id++) {
+                if (predicate.test(javaItems.get(id))) {
+                    bits.set(id);
+                }
+            }
+            return bits;
+        });
+    }
+
+    /**
+     * Returns the bits of a registered predicate.
+     *
+     * @param name the predicate name
+     * @return the bits of the items that match, indexed by id; do not modify
+     * @throws IllegalArgumentException if no predicate has the name
+     */
+    public BitSet predicate(String name) {
+        final BitSet bits = predicates.get(name);
+        if (bits == null) {
+            throw new IllegalArgumentException("No predicate registered as " + name);
+        }
+        return bits;
+    }
+
+    /**
+     * @return a query over every item
+     */
+    public ItemQuery query() {
+        final int[] all = new int[javaItems.size()];
+        for (int id = 0; id < all.length; id++) {
+            all[id] = id;
+        }
+        return new ItemQuery(this, all);
+    }
+
+    /**
+     * @param packageName the package name
+     * @return a query over the top-level types of the package
+     */
+    public ItemQuery queryPackage(String packageName) {
+        return new ItemQuery(this, topLevelByPackage.getOrDefault(packageName, NO_IDS).clone());
+    }
+
+    /**
+     * @param parent the enclosing item
+     * @return a query over the direct members of the item
+     */
+    public ItemQuery queryChildren(JavaItem parent) {
+        return new ItemQuery(this, childIdsOf(parent).clone());
+    }
+
+    /**
+     * @return every indexed item in scan order
+     */
+    public List<JavaItem> all() {
+        return javaItems;
+    }
+
+    /**
+     * @return the packages that have top-level types, in scan order
+     */
+    public Set<String> packages() {
+        return Collections.unmodifiableSet(topLevelByPackage.keySet());
+    }
+
+    /**
+     * Returns the top-level types of a package.
+     *
+     * @param packageName the package name
+     * @return the classes, interfaces and enums declared directly in the package
+     */
+    public List<JavaItem> topLevel(String packageName) {
+        return items(topLevelByPackage.getOrDefault(packageName, NO_IDS));
+    }
+
+    /**
+     * Returns the direct members of an item: its methods, fields and nested types.
+     *
+     * @param parent the enclosing item
+     * @return the members in declaration order
+     */
+    public List<JavaItem> children(JavaItem parent) {
+        return items(childIdsOf(parent));
+    }
+
+    /**
+     * Returns the direct members of an item that have the given type.
+     *
+     * @param parent the enclosing item
+     * @param type   the member type
+     * @return the matching members in declaration order
+     */
+    public List<JavaItem> children(JavaItem parent, JavaItemType type) {
+        return queryChildren(parent).type(type).list();
+    }
+
+    /**
+     * @param type the item type
+     * @return every item of the type in scan order
+     */
+    public List<JavaItem> byType(JavaItemType type) {
+        final BitSet bits = typeBits(type);
+        final List<JavaItem> matching = new ArrayList<>(bits.cardinality());
+        for (int id = bits.nextSetBit(0); id >= 0; id = bits.nextSetBit(id + 1)) {
+            matching.add(javaItems.get(id));
+        }
+        return matching;
+    }
+
+    /**
+     * Returns the items with the given fully qualified name. Overloaded methods share a name.
+     *
+     * @param name the fully qualified name
+     * @return the matching items in scan order
+     */
+    public List<JavaItem> byName(String name) {
+        return items(byName.getOrDefault(name, NO_IDS));
+    }
+
+    /**
+     * @param javaItem an indexed item
+     * @return the id of the item, or -1 if it is not indexed
+     */
+    public int idOf(JavaItem javaItem) {
+        if (columns != null) {
+            return columns.idOf(javaItem);
+        }
+        final Integer id = ids.get(javaItem);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * @return the number of indexed items
+     */
+    public int size() {
+        return javaItems.size();
+    }
+
+    BitSet typeBits(JavaItemType type) {
+        return byType.getOrDefault(type, new BitSet(0));
+    }
+
+    List<JavaItem> items(int[] itemIds) {
+        final List<JavaItem> list = new ArrayList<>(itemIds.length);
+        for (int id : itemIds) {
+            list.add(javaItems.get(id));
+        }
+        return list;
+    }
+
+    private int[] childIdsOf(JavaItem parent) {
+        final int id = idOf(parent);
+        if (id < 0 || childIds[id] == null) {
+            return NO_IDS;
+        }
+        return childIds[id];
+    }
+
+    private static class IdList {
+        private int[] ids = new int[4];
+        private int size;
+
+        void add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(ids, size);
+        }
+    }
+}
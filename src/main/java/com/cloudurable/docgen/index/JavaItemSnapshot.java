@@ -0,0 +1,350 @@
+package com.cloudurable.docgen.index;
+
+import com.cloudurable.docgen.JavaItem;
+import com.cloudurable.docgen.JavaItemType;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Versioned binary snapshot of scanned items, read through a memory map.
+ * <p>
+ * The file holds a header, the fixed-width columns of {@link JavaItemStore} (type, parent, name,
+ * simple name and import block ids, text offsets and lengths), the string dictionary and finally
+ * the UTF-8 text of definitions, Javadoc and bodies. Opening a snapshot maps the file and reads
+ * the header, nothing else, so it takes milliseconds whatever the size; the OS pages columns and
+ * bodies in as they are read. Dictionary strings are decoded once on first use.
+ * <p>
+ * The header also records the variant, how the items were extracted, and a fingerprint of the
+ * scanned sources, so a reader can tell whether the snapshot still matches the input.
+ * <p>
+ * Text is mapped in chunks of 1 GB and the writer pads so that no value crosses a chunk, which
+ * lets snapshots grow past the 2 GB limit of a single mapped buffer.
+ */
+public class JavaItemSnapshot implements JavaItemColumns {
+
+    /** Bump when the file layout changes. */
+    static final int FORMAT_VERSION = 2;
+    private static final int MAGIC = 0x4A32534E;
+    private static final int CHUNK_SHIFT = 30;
+    private static final long CHUNK_SIZE = 1L << CHUNK_SHIFT;
+    private static final int HEADER_SIZE = 4 * 4 + 3 * 8;
+    private static final int TEXT_REFERENCE_SIZE = 8 + 4;
+    private static final JavaItemType[] TYPES = JavaItemType.values();
+
+    private final String variant;
+    private final String fingerprint;
+    private final int size;
+    private final int dictionarySize;
+    private final MappedByteBuffer columns;
+    private final int typesOffset;
+    private final int parentsOffset;
+    private final int namesOffset;
+    private final int simpleNamesOffset;
+    private final int importBodiesOffset;
+    private final int textReferencesOffset;
+    private final int dictionaryOffsetsOffset;
+    private final MappedByteBuffer dictionaryData;
+    private final MappedByteBuffer[] textChunks;
+    private final String[] dictionary;
+
+    private JavaItemSnapshot(FileChannel channel) throws IOException {
+        final ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+        if (header.getInt() != MAGIC) {
+            throw new IOException("Not a JavaItem snapshot");
+        }
+        final int version = header.getInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported snapshot version " + version + ", expected " + FORMAT_VERSION);
+        }
+        size = header.getInt();
+        dictionarySize = header.getInt();
+        final long dictionaryDataOffset = header.getLong();
+        final long textOffset = header.getLong();
+        final long textLength = header.getLong();
+
+        columns = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, dictionaryDataOffset - HEADER_SIZE);
+        int offset = 0;
+        final int variantLength = columns.getInt(offset);
+        variant = decode(columns, offset + 4, variantLength);
+        offset += 4 + variantLength;
+        final int fingerprintLength = columns.getInt(offset);
+        fingerprint = decode(columns, offset + 4, fingerprintLength);
+        offset += 4 + fingerprintLength;
+        typesOffset = offset;
+        offset += size;
+        parentsOffset = offset;
+        offset += 4 * size;
+        namesOffset = offset;
+        offset += 4 * size;
+        simpleNamesOffset = offset;
+        offset += 4 * size;
+        importBodiesOffset = offset;
+        offset += 4 * size;
+        textReferencesOffset = offset;
+        offset += JavaItemStore.TEXT_COLUMNS * TEXT_REFERENCE_SIZE * size;
+        dictionaryOffsetsOffset = offset;
+
+        dictionaryData = channel.map(FileChannel.MapMode.READ_ONLY, dictionaryDataOffset, textOffset - dictionaryDataOffset);
+        textChunks = new MappedByteBuffer[(int) ((textLength + CHUNK_SIZE - 1) >>> CHUNK_SHIFT)];
+        for (int chunk = 0; chunk < textChunks.length; chunk++) {
+            final long start = (long) chunk << CHUNK_SHIFT;
+            textChunks[chunk] = channel.map(FileChannel.MapMode.READ_ONLY, textOffset + start,
+                    Math.min(CHUNK_SIZE, textLength - start));
+        }
+        dictionary = new String[dictionarySize];
+    }
+
+    /**
+     * Maps a snapshot file. The mapping stays valid after this method returns and until the
+     * snapshot is garbage collected.
+     *
+     * @param file the snapshot file
+     * @return the snapshot
+     * @throws IOException if the file can not be read or is not a snapshot of this version
+     */
+    public static JavaItemSnapshot open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new JavaItemSnapshot(channel);
+        }
+    }
+
+    /**
+     * Writes the items as a snapshot.
+     *
+     * @param javaItems the items, parents before children
+     * @param variant   names how the items were extracted, for example the scan mode
+     * @param file      the snapshot file, replaced atomically
+     * @throws IOException if the file can not be written
+     */
+    public static void write(List<JavaItem> javaItems, String variant, Path file) throws IOException {
+        final JavaItemStore store = new JavaItemStore(javaItems.size());
+        store.addAll(javaItems);
+        write(store, variant, "", file);
+    }
+
+    /**
+     * Writes a store as a snapshot.
+     *
+     * @param store   the items
+     * @param variant names how the items were extracted, for example the scan mode
+     * @param file    the snapshot file, replaced atomically
+     * @throws IOException if the file can not be written
+     */
+    public static void write(JavaItemStore store, String variant, Path file) throws IOException {
+        write(store, variant, "", file);
+    }
+
+    /**
+     * Writes a store as a snapshot of the given sources.
+     *
+     * @param store       the items
+     * @param variant     names how the items were extracted, for example the scan mode
+     * @param fingerprint identifies the scanned sources, see
+     *                    {@link com.cloudurable.docgen.scan.SourceWalker#fingerprint(List)}
+     * @param file        the snapshot file, replaced atomically
+     * @throws IOException if the file can not be written
+     */
+    public static void write(JavaItemStore store, String variant, String fingerprint, Path file) throws IOException {
+        final int size = store.size();
+        final StringDictionary dictionary = store.dictionary();
+        final byte[][] dictionaryBytes = new byte[dictionary.size()][];
+        long dictionaryLength = 0;
+        for (int i = 0; i < dictionaryBytes.length; i++) {
+            dictionaryBytes[i] = dictionary.get(i).getBytes(StandardCharsets.UTF_8);
+            dictionaryLength += dictionaryBytes[i].length;
+        }
+        final byte[] variantBytes = variant.getBytes(StandardCharsets.UTF_8);
+        final byte[] fingerprintBytes = fingerprint.getBytes(StandardCharsets.UTF_8);
+        final long columnsLength = 4 + variantBytes.length + 4 + fingerprintBytes.length + size * (1L + 4 * 4 + JavaItemStore.TEXT_COLUMNS * TEXT_REFERENCE_SIZE)
+                + 8L * (dictionaryBytes.length + 1);
+        if (HEADER_SIZE + columnsLength > Integer.MAX_VALUE || dictionaryLength > Integer.MAX_VALUE) {
+            throw new IOException("Too many items for a snapshot: " + size);
+        }
+
+        // Lay out the text first so the columns can hold final offsets.
+        final long[] textOffsets = new long[JavaItemStore.TEXT_COLUMNS * size];
+        long textLength = 0;
+        for (int id = 0; id < size; id++) {
+            for (int column = 0; column < JavaItemStore.TEXT_COLUMNS; column++) {
+                final int length = store.textLength(column, id);
+                textLength = padToChunk(textLength, length);
+                textOffsets[id * JavaItemStore.TEXT_COLUMNS + column] = textLength;
+                textLength += length;
+            }
+        }
+
+        final Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        final Path tmp = Files.createTempFile(directory, "snapshot", ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            final long dictionaryDataOffset = HEADER_SIZE + columnsLength;
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(size);
+            out.writeInt(dictionaryBytes.length);
+            out.writeLong(dictionaryDataOffset);
+            out.writeLong(dictionaryDataOffset + dictionaryLength);
+            out.writeLong(textLength);
+
+            out.writeInt(variantBytes.length);
+            out.write(variantBytes);
+            out.writeInt(fingerprintBytes.length);
+            out.write(fingerprintBytes);
+            for (int id = 0; id < size; id++) {
+                out.writeByte(store.type(id).ordinal());
+            }
+            for (int id = 0; id < size; id++) {
+                out.writeInt(store.parent(id));
+            }
+            for (int id = 0; id < size; id++) {
+                out.writeInt(store.nameId(id));
+            }
+            for (int id = 0; id < size; id++) {
+                out.writeInt(store.simpleNameId(id));
+            }
+            for (int id = 0; id < size; id++) {
+                out.writeInt(store.importBodyId(id));
+            }
+            for (int id = 0; id < size; id++) {
+                for (int column = 0; column < JavaItemStore.TEXT_COLUMNS; column++) {
+                    out.writeLong(textOffsets[id * JavaItemStore.TEXT_COLUMNS + column]);
+                    out.writeInt(store.textLength(column, id));
+                }
+            }
+            long dictionaryOffset = 0;
+            for (byte[] bytes : dictionaryBytes) {
+                out.writeLong(dictionaryOffset);
+                dictionaryOffset += bytes.length;
+            }
+            out.writeLong(dictionaryOffset);
+
+            for (byte[] bytes : dictionaryBytes) {
+                out.write(bytes);
+            }
+
+            long written = 0;
+            for (int id = 0; id < size; id++) {
+                for (int column = 0; column < JavaItemStore.TEXT_COLUMNS; column++) {
+                    final long offset = textOffsets[id * JavaItemStore.TEXT_COLUMNS + column];
+                    for (; written < offset; written++) {
+                        out.writeByte(0);
+                    }
+                    final byte[] bytes = store.textBytes(column, id);
+                    out.write(bytes);
+                    written += bytes.length;
+                }
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static long padToChunk(long offset, int length) {
+        final long chunkEnd = ((offset >>> CHUNK_SHIFT) + 1) << CHUNK_SHIFT;
+        return offset + length > chunkEnd ? chunkEnd : offset;
+    }
+
+    /**
+     * @return how the items were extracted, as given when the snapshot was written
+     */
+    public String getVariant() {
+        return variant;
+    }
+
+    /**
+     * @return the fingerprint of the scanned sources, empty if none was given
+     */
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public JavaItemType type(int id) {
+        return TYPES[columns.get(typesOffset + checked(id))];
+    }
+
+    @Override
+    public int parent(int id) {
+        return columns.getInt(parentsOffset + 4 * checked(id));
+    }
+
+    @Override
+    public String name(int id) {
+        return dictionaryString(columns.getInt(namesOffset + 4 * checked(id)));
+    }
+
+    @Override
+    public String simpleName(int id) {
+        return dictionaryString(columns.getInt(simpleNamesOffset + 4 * checked(id)));
+    }
+
+    @Override
+    public String importBody(int id) {
+        return dictionaryString(columns.getInt(importBodiesOffset + 4 * checked(id)));
+    }
+
+    @Override
+    public String definition(int id) {
+        return text(JavaItemStore.DEFINITION, id);
+    }
+
+    @Override
+    public String javadoc(int id) {
+        return text(JavaItemStore.JAVADOC, id);
+    }
+
+    @Override
+    public String body(int id) {
+        return text(JavaItemStore.BODY, id);
+    }
+
+    private String text(int column, int id) {
+        final int reference = textReferencesOffset + (checked(id) * JavaItemStore.TEXT_COLUMNS + column) * TEXT_REFERENCE_SIZE;
+        final long offset = columns.getLong(reference);
+        final int length = columns.getInt(reference + 8);
+        if (length == 0) {
+            return "";
+        }
+        return decode(textChunks[(int) (offset >>> CHUNK_SHIFT)], (int) (offset & (CHUNK_SIZE - 1)), length);
+    }
+
+    private String dictionaryString(int index) {
+        String value = dictionary[index];
+        if (value == null) {
+            // Racing threads decode the same value, which is harmless.
+            final long start = columns.getLong(dictionaryOffsetsOffset + 8 * index);
+            final long end = columns.getLong(dictionaryOffsetsOffset + 8 * (index + 1));
+            value = decode(dictionaryData, (int) start, (int) (end - start));
+            dictionary[index] = value;
+        }
+        return value;
+    }
+
+    private static String decode(ByteBuffer buffer, int offset, int length) {
+        final byte[] bytes = new byte[length];
+        buffer.duplicate().position(offset).get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int checked(int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("id " + id + " size " + size);
+        }
+        return id;
+    }
+}
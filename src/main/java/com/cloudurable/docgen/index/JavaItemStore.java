@@ -0,0 +1,199 @@
+package com.cloudurable.docgen.index;
+
+import com.cloudurable.docgen.JavaItem;
+import com.cloudurable.docgen.JavaItemType;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact struct-of-arrays store of scanned items.
+ * <p>
+ * Each item is an int id. The type is a byte column and the parent an int column holding the
+ * parent's id. Names, simple names and import blocks go through a string dictionary, so each
+ * distinct value is kept once. Definitions, Javadoc and bodies are kept as UTF-8 in a paged byte
+ * arena, addressed by offset and length, instead of as one String object each.
+ * <p>
+ * {@link #get(int)} returns a flyweight {@link JavaItem} view that decodes its text on demand, so
+ * code written against JavaItem works unchanged. Views of the same id are equal.
+ * <p>
+ * Items are added from one thread, typically the scan sink. Once filled, the store can be read
+ * from any number of threads.
+ */
+public class JavaItemStore implements JavaItemColumns {
+
+    private static final JavaItemType[] TYPES = JavaItemType.values();
+    static final int DEFINITION = 0;
+    static final int JAVADOC = 1;
+    static final int BODY = 2;
+    static final int TEXT_COLUMNS = 3;
+
+    private final StringDictionary dictionary = new StringDictionary();
+    private final ByteArena arena = new ByteArena();
+    private int size;
+    private byte[] types;
+    private int[] parents;
+    private int[] names;
+    private int[] simpleNames;
+    private int[] importBodies;
+    private final long[][] textReferences = new long[TEXT_COLUMNS][];
+    private final int[][] textLengths = new int[TEXT_COLUMNS][];
+
+    public JavaItemStore() {
+        this(1024);
+    }
+
+    /**
+     * Creates a store sized for the expected number of items. It grows as needed.
+     *
+     * @param initialCapacity the expected number of items
+     */
+    public JavaItemStore(int initialCapacity) {
+        final int capacity = Math.max(16, initialCapacity);
+        types = new byte[capacity];
+        parents = new int[capacity];
+        names = new int[capacity];
+        simpleNames = new int[capacity];
+        importBodies = new int[capacity];
+        for (int column = 0; column < textReferences.length; column++) {
+            textReferences[column] = new long[capacity];
+            textLengths[column] = new int[capacity];
+        }
+    }
+
+    /**
+     * Adds the items of one file. Parents must come before their children, as ClassVisitor emits them,
+     * and be in the same list or already be items of this store.
+     *
+     * @param javaItems the items to add
+     */
+    public void addAll(List<JavaItem> javaItems) {
+        final Map<JavaItem, Integer> ids = new IdentityHashMap<>();
+        for (JavaItem javaItem : javaItems) {
+            ids.put(javaItem, add(javaItem, ids));
+        }
+    }
+
+    private int add(JavaItem javaItem, Map<JavaItem, Integer> ids) {
+        if (size == types.length) {
+            grow();
+        }
+        final int id = size++;
+        final JavaItem parent = javaItem.getParent();
+        final Integer parentId = parent == null ? null : ids.get(parent);
+        types[id] = (byte) javaItem.getType().ordinal();
+        parents[id] = parentId != null ? parentId : idOf(parent);
+        names[id] = dictionary.id(javaItem.getName());
+        simpleNames[id] = dictionary.id(javaItem.getSimpleName());
+        importBodies[id] = dictionary.id(javaItem.getImportBody());
+        setText(DEFINITION, id, javaItem.getDefinition());
+        setText(JAVADOC, id, javaItem.getJavadoc());
+        setText(BODY, id, javaItem.getBody());
+        return id;
+    }
+
+    private void setText(int column, int id, String value) {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        textReferences[column][id] = arena.append(bytes);
+        textLengths[column][id] = bytes.length;
+    }
+
+    private void grow() {
+        final int capacity = types.length + (types.length >> 1);
+        types = Arrays.copyOf(types, capacity);
+        parents = Arrays.copyOf(parents, capacity);
+        names = Arrays.copyOf(names, capacity);
+        simpleNames = Arrays.copyOf(simpleNames, capacity);
+        importBodies = Arrays.copyOf(importBodies, capacity);
+        for (int column = 0; column < textReferences.length; column++) {
+            textReferences[column] = Arrays.copyOf(textReferences[column], capacity);
+            textLengths[column] = Arrays.copyOf(textLengths[column], capacity);
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public JavaItemType type(int id) {
+        return TYPES[types[id]];
+    }
+
+    @Override
+    public int parent(int id) {
+        return parents[id];
+    }
+
+    @Override
+    public String name(int id) {
+        return dictionary.get(names[id]);
+    }
+
+    @Override
+    public String simpleName(int id) {
+        return dictionary.get(simpleNames[id]);
+    }
+
+    @Override
+    public String importBody(int id) {
+        return dictionary.get(importBodies[id]);
+    }
+
+    @Override
+    public String definition(int id) {
+        return text(DEFINITION, id);
+    }
+
+    @Override
+    public String javadoc(int id) {
+        return text(JAVADOC, id);
+    }
+
+    @Override
+    public String body(int id) {
+        return text(BODY, id);
+    }
+
+    private String text(int column, int id) {
+        return arena.read(textReferences[column][id], textLengths[column][id]);
+    }
+
+    /**
+     * Estimates the heap used by the columns and the arena, not counting dictionary strings.
+     *
+     * @return the estimated size in bytes
+     */
+    public long footprintBytes() {
+        final long perItem = 1 + 4 * 4 + textReferences.length * (8 + 4);
+        return perItem * types.length + arena.capacityBytes();
+    }
+
+    StringDictionary dictionary() {
+        return dictionary;
+    }
+
+    int nameId(int id) {
+        return names[id];
+    }
+
+    int simpleNameId(int id) {
+        return simpleNames[id];
+    }
+
+    int importBodyId(int id) {
+        return importBodies[id];
+    }
+
+    int textLength(int column, int id) {
+        return textLengths[column][id];
+    }
+
+    byte[] textBytes(int column, int id) {
+        return arena.bytes(textReferences[column][id], textLengths[column][id]);
+    }
+}
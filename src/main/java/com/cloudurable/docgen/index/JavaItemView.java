@@ -0,0 +1,75 @@
+package com.cloudurable.docgen.index;
+
+import com.cloudurable.docgen.JavaItem;
+import com.cloudurable.docgen.JavaItemType;
+
+/**
+ * Flyweight JavaItem reading its fields from item columns. Views of the same id are equal.
+ */
+final class JavaItemView extends JavaItem {
+    final JavaItemColumns columns;
+    final int id;
+
+    JavaItemView(JavaItemColumns columns, int id) {
+        this.columns = columns;
+        this.id = id;
+    }
+
+    @Override
+    public String getImportBody() {
+        return columns.importBody(id);
+    }
+
+    @Override
+    public String getBody() {
+        return columns.body(id);
+    }
+
+    @Override
+    public String getJavadoc() {
+        return columns.javadoc(id);
+    }
+
+    @Override
+    public String getName() {
+        return columns.name(id);
+    }
+
+    @Override
+    public String getDefinition() {
+        return columns.definition(id);
+    }
+
+    @Override
+    public JavaItem getParent() {
+        final int parent = columns.parent(id);
+        return parent < 0 ? null : new JavaItemView(columns, parent);
+    }
+
+    @Override
+    public JavaItemType getType() {
+        return columns.type(id);
+    }
+
+    @Override
+    public String getSimpleName() {
+        return columns.simpleName(id);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof JavaItemView)) {
+            return false;
+        }
+        final JavaItemView other = (JavaItemView) o;
+        return columns == other.columns && id == other.id;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * System.identityHashCode(columns) + id;
+    }
+}
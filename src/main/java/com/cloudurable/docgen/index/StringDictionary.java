@@ -0,0 +1,37 @@
+package com.cloudurable.docgen.index;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Assigns each distinct string a small int id, so repeated names and import blocks are stored once.
+ */
+class StringDictionary {
+
+    private final List<String> strings = new ArrayList<>();
+    private final Map<String, Integer> ids = new HashMap<>();
+
+    StringDictionary() {
+        id("");
+    }
+
+    int id(String value) {
+        final Integer id = ids.get(value);
+        if (id != null) {
+            return id;
+        }
+        strings.add(value);
+        ids.put(value, strings.size() - 1);
+        return strings.size() - 1;
+    }
+
+    String get(int id) {
+        return strings.get(id);
+    }
+
+    int size() {
+        return strings.size();
+    }
+}
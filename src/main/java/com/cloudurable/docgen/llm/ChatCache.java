@@ -0,0 +1,385 @@
+package com.cloudurable.docgen.llm;
+
+import com.cloudurable.jai.model.text.completion.chat.ChatRequest;
+import com.cloudurable.jai.model.text.completion.chat.Message;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * On-disk cache of chat completions, so a rerun over unchanged code sends no request twice.
+ * <p>
+ * An entry is named after a SHA-256 of the template version, model, temperature, token limit and
+ * every message of the request, so any change to a prompt or its settings is a miss, and bumping
+ * the template version invalidates everything produced by older templates. Entries hold the time
+ * they were created, for the TTL, and the response text. The modification time of the entry file
+ * is its last use; on open the entries are loaded oldest use first into an access-ordered map,
+ * and the least recently used entries are deleted whenever the total size goes over the limit.
+ * Entries are written to a temp file and moved into place, so concurrent runs never read half an
+ * entry. Thread safe.
+ * <p>
+ * {@link #main(String[])} clears or prunes a cache directory from the command line.
+ */
+public class ChatCache {
+
+    /** Bump when the entry layout changes. */
+    static final int FORMAT_VERSION = 1;
+    private static final int MAGIC = 0x4A32434B;
+    private static final String SUFFIX = ".chat";
+
+    private final Path directory;
+    private final String templateVersion;
+    private final long maxBytes;
+    private final Duration ttl;
+    private final Clock clock;
+    /** Entry file name to size in bytes, least recently used first. */
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    private ChatCache(Builder builder) throws IOException {
+        this.directory = builder.directory;
+        this.templateVersion = builder.templateVersion;
+        this.maxBytes = builder.maxBytes;
+        this.ttl = builder.ttl;
+        this.clock = builder.clock;
+        Files.createDirectories(directory);
+        final List<Path> files = new ArrayList<>();
+        try (Stream<Path> stream = Files.list(directory)) {
+            stream.filter(file -> file.getFileName().toString().endsWith(SUFFIX)).forEach(files::add);
+        }
+        files.sort(Comparator.comparingLong(ChatCache::lastUsed));
+        for (Path file : files) {
+            final long size = Files.size(file);
+            entries.put(file.getFileName().toString(), size);
+            totalBytes += size;
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns the cached response to a request.
+     *
+     * @param request the chat request
+     * @return the response text, or null if it is not cached or has expired
+     */
+    public String get(ChatRequest request) {
+        final String name = entryName(request);
+        synchronized (this) {
+            if (!entries.containsKey(name)) {
+                return null;
+            }
+            entries.get(name);
+        }
+        final Path file = directory.resolve(name);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                remove(name);
+                return null;
+            }
+            final long created = in.readLong();
+            if (ttl != null && created + ttl.toMillis() < clock.millis()) {
+                remove(name);
+                return null;
+            }
+            final byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            Files.setLastModifiedTime(file, FileTime.fromMillis(clock.millis()));
+            return new String(bytes, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            // A corrupt entry, or one deleted by another run, is just a miss.
+            remove(name);
+            return null;
+        }
+    }
+
+    /**
+     * Caches the response to a request, evicting the least recently used entries if the cache is full.
+     *
+     * @param request the chat request
+     * @param content the response text
+     * @throws UncheckedIOException if the entry can not be written
+     */
+    public void put(ChatRequest request, String content) {
+        final String name = entryName(request);
+        final Path file = directory.resolve(name);
+        final long size;
+        try {
+            final Path tmp = Files.createTempFile(directory, "entry", ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                final byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeLong(clock.millis());
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+            Files.setLastModifiedTime(tmp, FileTime.fromMillis(clock.millis()));
+            size = Files.size(tmp);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to cache a chat response in " + directory, e);
+        }
+        final List<String> evicted = new ArrayList<>();
+        synchronized (this) {
+            final Long previous = entries.put(name, size);
+            totalBytes += size - (previous == null ? 0 : previous);
+            final Iterator<Map.Entry<String, Long>> eldest = entries.entrySet().iterator();
+            while (totalBytes > maxBytes && eldest.hasNext()) {
+                final Map.Entry<String, Long> entry = eldest.next();
+                if (entry.getKey().equals(name)) {
+                    break;
+                }
+                totalBytes -= entry.getValue();
+                evicted.add(entry.getKey());
+                eldest.remove();
+            }
+        }
+        for (String entry : evicted) {
+            deleteQuietly(directory.resolve(entry));
+        }
+    }
+
+    /**
+     * Deletes every entry.
+     *
+     * @return the number of entries deleted
+     */
+    public int clear() {
+        final List<String> names;
+        synchronized (this) {
+            names = new ArrayList<>(entries.keySet());
+            entries.clear();
+            totalBytes = 0;
+        }
+        names.forEach(name -> deleteQuietly(directory.resolve(name)));
+        return names.size();
+    }
+
+    /**
+     * Deletes the entries created longer ago than the given age.
+     *
+     * @param maxAge the oldest entry to keep
+     * @return the number of entries deleted
+     */
+    public int prune(Duration maxAge) {
+        final long oldest = clock.millis() - maxAge.toMillis();
+        final List<String> names;
+        synchronized (this) {
+            names = new ArrayList<>(entries.keySet());
+        }
+        int removed = 0;
+        for (String name : names) {
+            try (DataInputStream in = new DataInputStream(Files.newInputStream(directory.resolve(name)))) {
+                in.readInt();
+                in.readInt();
+                if (in.readLong() >= oldest) {
+                    continue;
+                }
+            } catch (IOException e) {
+                // Unreadable entries are pruned too.
+            }
+            remove(name);
+            removed++;
+        }
+        return removed;
+    }
+
+    /**
+     * @return the number of entries
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the total size of the entries in bytes
+     */
+    public synchronized long sizeBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * Returns the entry file name for a request: a SHA-256 of the template version and everything
+     * in the request that changes the response.
+     */
+    String entryName(ChatRequest request) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            update(digest, templateVersion);
+            update(digest, request.getModel());
+            update(digest, Float.toString(request.getTemperature()));
+            update(digest, Integer.toString(request.getMaxTokens()));
+            for (Message message : request.getMessages()) {
+                update(digest, message.getRole() == null ? null : message.getRole().name());
+                update(digest, message.getContent());
+            }
+            final byte[] hash = digest.digest();
+            final StringBuilder builder = new StringBuilder(hash.length * 2 + SUFFIX.length());
+            for (byte b : hash) {
+                builder.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return builder.append(SUFFIX).toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        if (value != null) {
+            digest.update(value.getBytes(StandardCharsets.UTF_8));
+        }
+        digest.update((byte) 0);
+    }
+
+    private void remove(String name) {
+        synchronized (this) {
+            final Long size = entries.remove(name);
+            if (size != null) {
+                totalBytes -= size;
+            }
+        }
+        deleteQuietly(directory.resolve(name));
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static long lastUsed(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Maintains a cache directory: {@code ChatCache <directory> clear} deletes every entry,
+     * {@code ChatCache <directory> prune <duration>} deletes entries older than an ISO-8601 duration
+     * such as {@code P7D}, and {@code ChatCache <directory> stats} prints the entry count and size.
+     *
+     * @param args the directory, the command and its argument
+     * @throws IOException if the directory can not be read
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: ChatCache <directory> clear | prune <duration> | stats");
+            System.exit(1);
+        }
+        final ChatCache cache = builder().directory(Path.of(args[0])).build();
+        switch (args[1]) {
+            case "clear":
+                System.out.printf("Deleted %d entries%n", cache.clear());
+                break;
+            case "prune":
+                if (args.length < 3) {
+                    System.err.println("usage: ChatCache <directory> prune <duration>");
+                    System.exit(1);
+                }
+                System.out.printf("Deleted %d entries%n", cache.prune(Duration.parse(args[2])));
+                break;
+            case "stats":
+                System.out.printf("%d entries, %d bytes%n", cache.size(), cache.sizeBytes());
+                break;
+            default:
+                System.err.println("Unknown command " + args[1]);
+                System.exit(1);
+        }
+    }
+
+    public static class Builder {
+        private Path directory;
+        private String templateVersion = "1";
+        private long maxBytes = 256L << 20;
+        private Duration ttl;
+        private Clock clock = Clock.systemUTC();
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the directory holding the entries, created if missing.
+         *
+         * @param directory the cache directory
+         * @return this Builder
+         */
+        public Builder directory(Path directory) {
+            this.directory = directory;
+            return this;
+        }
+
+        /**
+         * Sets the version of the prompt templates. Part of every key, so bumping it after a
+         * template change makes every older entry a miss. Defaults to "1".
+         *
+         * @param templateVersion the template version
+         * @return this Builder
+         */
+        public Builder templateVersion(String templateVersion) {
+            this.templateVersion = templateVersion;
+            return this;
+        }
+
+        /**
+         * Sets the total size of the entries above which the least recently used are deleted. Defaults to 256MB.
+         *
+         * @param maxBytes the size limit in bytes
+         * @return this Builder
+         */
+        public Builder maxBytes(long maxBytes) {
+            this.maxBytes = maxBytes;
+            return this;
+        }
+
+        /**
+         * Sets how long an entry is used after it is created. Defaults to forever.
+         *
+         * @param ttl the time to live, or null for no limit
+         * @return this Builder
+         */
+        public Builder ttl(Duration ttl) {
+            this.ttl = ttl;
+            return this;
+        }
+
+        Builder clock(Clock clock) {
+            this.clock = clock;
+            return this;
+        }
+
+        /**
+         * Opens the cache, loading the sizes and last use of the existing entries.
+         *
+         * @return the cache
+         * @throws IOException if the directory can not be created or listed
+         */
+        public ChatCache build() throws IOException {
+            if (directory == null) {
+                throw new IllegalArgumentException("directory is required");
+            }
+            return new ChatCache(this);
+        }
+    }
+}
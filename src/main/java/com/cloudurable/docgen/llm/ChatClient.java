@@ -0,0 +1,18 @@
+package com.cloudurable.docgen.llm;
+
+import com.cloudurable.jai.model.ClientResponse;
+import com.cloudurable.jai.model.text.completion.chat.ChatRequest;
+import com.cloudurable.jai.model.text.completion.chat.ChatResponse;
+
+/**
+ * Sends one chat request. {@code OpenAIClient::chat} is the production implementation.
+ */
+@FunctionalInterface
+public interface ChatClient {
+
+    /**
+     * @param request the chat request
+     * @return the response, or the status or exception that prevented one
+     */
+    ClientResponse<ChatRequest, ChatResponse> chat(ChatRequest request);
+}
@@ -0,0 +1,302 @@
+package com.cloudurable.docgen.llm;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Stops sending requests to an endpoint that keeps failing, and lets them through again once it recovers.
+ * <p>
+ * Closed, every request goes through. After {@code failureThreshold} failures in a row the breaker
+ * opens and no request is sent for {@code openDuration}. Then it goes half-open and lets
+ * {@code halfOpenProbes} requests through as probes; if they all succeed it closes, and if one
+ * fails it opens again. While the breaker is not closed, callers park on a condition instead of
+ * spinning or retrying, and are woken when it closes; a caller that has waited {@code maxWait}
+ * gets a {@link CircuitOpenException}, so a long outage fails fast instead of holding threads
+ * and quota.
+ * <p>
+ * Every admitted request holds a {@link Permit} that records whether it is a probe and which state
+ * it was admitted in. Each state change starts a new generation, and the outcome of a request from
+ * an older generation is ignored, so a slow request sent before the breaker opened can neither
+ * close nor reopen it. Thread safe.
+ */
+public class CircuitBreaker {
+
+    /**
+     * The states of the breaker.
+     */
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    /**
+     * Admission of one request, handed back to {@link #onSuccess(Permit)}, {@link #onFailure(Permit)}
+     * or {@link #release(Permit)} when the request finishes.
+     */
+    public static final class Permit {
+        private final long generation;
+        private final boolean probe;
+
+        private Permit(long generation, boolean probe) {
+            this.generation = generation;
+            this.probe = probe;
+        }
+
+        /**
+         * @return true if the request was admitted as a half-open probe
+         */
+        public boolean isProbe() {
+            return probe;
+        }
+    }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final int halfOpenProbes;
+    private final long maxWaitNanos;
+    private final LongSupplier nanoTime;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition stateChanged = lock.newCondition();
+    private State state = State.CLOSED;
+    private long generation;
+    private int consecutiveFailures;
+    private long openedAt;
+    private int probesInFlight;
+    private int probesSucceeded;
+
+    private CircuitBreaker(Builder builder) {
+        this.failureThreshold = builder.failureThreshold;
+        this.openNanos = builder.openDuration.toNanos();
+        this.halfOpenProbes = builder.halfOpenProbes;
+        this.maxWaitNanos = builder.maxWait.toNanos();
+        this.nanoTime = builder.nanoTime;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Waits until a request may be sent. The permit must be handed back to {@link #onSuccess(Permit)},
+     * {@link #onFailure(Permit)} or {@link #release(Permit)}.
+     *
+     * @return the permit of the request
+     * @throws CircuitOpenException if the breaker did not close or admit a probe within {@code maxWait}
+     * @throws InterruptedException if the thread is interrupted while parked
+     */
+    public Permit acquire() throws InterruptedException {
+        final long deadline = nanoTime.getAsLong() + maxWaitNanos;
+        lock.lock();
+        try {
+            while (true) {
+                final Permit permit = tryAcquire();
+                if (permit != null) {
+                    return permit;
+                }
+                final long now = nanoTime.getAsLong();
+                final long remaining = deadline - now;
+                if (remaining <= 0) {
+                    throw new CircuitOpenException("LLM endpoint is unhealthy, circuit is " + state);
+                }
+                // Wake up when the open period ends to start probing, or when the state changes.
+                final long untilHalfOpen = state == State.OPEN ? openNanos - (now - openedAt) : remaining;
+                stateChanged.awaitNanos(Math.max(1, Math.min(remaining, untilHalfOpen)));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Admits a request if the breaker allows one now, without waiting.
+     *
+     * @return the permit, or null if the breaker is open or all probes are taken
+     */
+    Permit tryAcquire() {
+        lock.lock();
+        try {
+            if (state == State.OPEN && nanoTime.getAsLong() - openedAt >= openNanos) {
+                transition(State.HALF_OPEN);
+                probesInFlight = 0;
+                probesSucceeded = 0;
+            }
+            if (state == State.CLOSED) {
+                return new Permit(generation, false);
+            }
+            if (state == State.HALF_OPEN && probesInFlight + probesSucceeded < halfOpenProbes) {
+                probesInFlight++;
+                return new Permit(generation, true);
+            }
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records a request that succeeded.
+     *
+     * @param permit the permit of the request
+     */
+    public void onSuccess(Permit permit) {
+        lock.lock();
+        try {
+            if (permit.generation != generation) {
+                return;
+            }
+            consecutiveFailures = 0;
+            if (permit.probe) {
+                probesInFlight--;
+                if (++probesSucceeded >= halfOpenProbes) {
+                    transition(State.CLOSED);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records a request that failed because of the endpoint.
+     *
+     * @param permit the permit of the request
+     */
+    public void onFailure(Permit permit) {
+        lock.lock();
+        try {
+            if (permit.generation != generation) {
+                return;
+            }
+            if (permit.probe) {
+                probesInFlight--;
+                open();
+            } else if (++consecutiveFailures >= failureThreshold) {
+                open();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Hands back a permit whose request tells nothing about the health of the endpoint, such as a
+     * rate-limited response or a caller interrupted before sending. A probe slot is freed for
+     * another caller.
+     *
+     * @param permit the permit of the request
+     */
+    public void release(Permit permit) {
+        lock.lock();
+        try {
+            if (permit.generation == generation && permit.probe) {
+                probesInFlight--;
+                stateChanged.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void open() {
+        transition(State.OPEN);
+        openedAt = nanoTime.getAsLong();
+        consecutiveFailures = 0;
+        System.out.printf("LLM endpoint is failing, pausing requests for %d ms%n", TimeUnit.NANOSECONDS.toMillis(openNanos));
+    }
+
+    private void transition(State next) {
+        state = next;
+        generation++;
+        stateChanged.signalAll();
+    }
+
+    /**
+     * @return the current state; an open breaker whose open period has passed still reports OPEN until the next request
+     */
+    public State getState() {
+        lock.lock();
+        try {
+            return state;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public static class Builder {
+        private int failureThreshold = 5;
+        private Duration openDuration = Duration.ofSeconds(30);
+        private int halfOpenProbes = 1;
+        private Duration maxWait = Duration.ofMinutes(10);
+        private LongSupplier nanoTime = System::nanoTime;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets how many failures in a row open the breaker. Defaults to 5.
+         *
+         * @param failureThreshold the failure count
+         * @return this Builder
+         */
+        public Builder failureThreshold(int failureThreshold) {
+            if (failureThreshold < 1) {
+                throw new IllegalArgumentException("failureThreshold must be at least 1");
+            }
+            this.failureThreshold = failureThreshold;
+            return this;
+        }
+
+        /**
+         * Sets how long the breaker stays open before probing. Defaults to 30 seconds.
+         *
+         * @param openDuration the open period
+         * @return this Builder
+         */
+        public Builder openDuration(Duration openDuration) {
+            this.openDuration = openDuration;
+            return this;
+        }
+
+        /**
+         * Sets how many probes must succeed to close the breaker. Defaults to 1.
+         *
+         * @param halfOpenProbes the number of probes
+         * @return this Builder
+         */
+        public Builder halfOpenProbes(int halfOpenProbes) {
+            if (halfOpenProbes < 1) {
+                throw new IllegalArgumentException("halfOpenProbes must be at least 1");
+            }
+            this.halfOpenProbes = halfOpenProbes;
+            return this;
+        }
+
+        /**
+         * Sets how long a caller parks waiting for the breaker to close before failing. Defaults to 10 minutes.
+         *
+         * @param maxWait the longest wait, or zero to fail as soon as the breaker is open
+         * @return this Builder
+         */
+        public Builder maxWait(Duration maxWait) {
+            this.maxWait = maxWait;
+            return this;
+        }
+
+        /**
+         * Sets the clock, for tests.
+         *
+         * @param nanoTime returns the current time in nanoseconds
+         * @return this Builder
+         */
+        Builder nanoTime(LongSupplier nanoTime) {
+            this.nanoTime = nanoTime;
+            return this;
+        }
+
+        public CircuitBreaker build() {
+            return new CircuitBreaker(this);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.cloudurable.docgen.llm;
+
+/**
+ * Thrown instead of sending a request while the {@link CircuitBreaker} considers the endpoint unhealthy.
+ */
+public class CircuitOpenException extends IllegalStateException {
+
+    public CircuitOpenException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,293 @@
+package com.cloudurable.docgen.llm;
+
+import com.cloudurable.jai.OpenAIClient;
+import com.cloudurable.jai.model.ClientResponse;
+import com.cloudurable.jai.model.text.completion.chat.ChatRequest;
+import com.cloudurable.jai.model.text.completion.chat.ChatResponse;
+import com.cloudurable.jai.model.text.completion.chat.Message;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.Semaphore;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The one way out to the LLM, shared by every generator and thread.
+ * <p>
+ * Owns a single client, so its HTTP connections and TLS sessions are reused across calls instead
+ * of a new client being built per call or per generator, and caps how many requests are in flight
+ * at once across the whole process. Callers over the cap block until a request finishes.
+ * An optional {@link ChatCache} keeps the text of successful responses, so reruns skip the call.
+ * <p>
+ * Every request first waits for the {@link CircuitBreaker}, which parks callers while the endpoint
+ * is failing and throws {@link CircuitOpenException} once it has been down too long, then for the
+ * shared {@link RateLimiter} and last for the concurrency cap, so a parked caller spends neither
+ * rate budget nor a concurrency slot. Rate-limited responses count neither for nor against the
+ * health of the endpoint. Responses the {@link RetryPolicy} deems transient are retried after
+ * the Retry-After hint when the provider gives one and otherwise after the policy's backoff.
+ * The wait is applied to the shared limiter, so every caller backs off together instead of
+ * retrying in synchronized bursts. Generators call the gateway once per request and leave
+ * retrying to it.
+ * <p>
+ * Since the gateway holds the client, the limits and the retry state, a generator built on it only
+ * keeps read-only prompt context, and one generator instance can be shared by every thread.
+ * Thread safe.
+ */
+public class LlmGateway {
+
+    /** The retry hint in an error message, such as "Please try again in 20s". */
+    private static final Pattern RETRY_AFTER = Pattern.compile(
+            "(?i)(?:retry-after:?|try again in|retry after)\\s*(\\d+(?:\\.\\d+)?)\\s*(ms|s|sec|seconds?)?\\b");
+
+    private final ChatClient client;
+    private final int maxConcurrentRequests;
+    private final Semaphore permits;
+    private final ChatCache cache;
+    private final RateLimiter rateLimiter;
+    private final RetryPolicy retryPolicy;
+    private final CircuitBreaker circuitBreaker;
+
+    private LlmGateway(Builder builder) {
+        this.client = builder.client != null ? builder.client
+                : OpenAIClient.builder().validateJson(true).setApiKey(System.getenv("OPENAI_API_KEY")).build()::chat;
+        this.maxConcurrentRequests = builder.maxConcurrentRequests;
+        this.permits = new Semaphore(maxConcurrentRequests, true);
+        this.cache = builder.cache;
+        this.rateLimiter = builder.rateLimiter;
+        this.retryPolicy = builder.retryPolicy;
+        this.circuitBreaker = builder.circuitBreaker;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns the process-wide gateway, built on first use with an OpenAI client for the
+     * {@code OPENAI_API_KEY} environment variable.
+     *
+     * @return the default gateway
+     */
+    public static LlmGateway getDefault() {
+        return DefaultHolder.DEFAULT;
+    }
+
+    /**
+     * Sends a chat request within the rate limits and the concurrency cap while the circuit breaker
+     * allows it, retrying the responses the retry policy deems transient.
+     *
+     * @param request the chat request
+     * @return the first response that is not retried, or the last one once the retries are used up
+     * @throws CircuitOpenException  if the endpoint stayed unhealthy for longer than the breaker waits
+     * @throws IllegalStateException if the thread is interrupted while waiting
+     */
+    public ClientResponse<ChatRequest, ChatResponse> chat(ChatRequest request) {
+        final long estimatedTokens = estimateTokens(request);
+        try {
+            for (int attempt = 0; ; attempt++) {
+                final CircuitBreaker.Permit permit = circuitBreaker.acquire();
+                final ClientResponse<ChatRequest, ChatResponse> response;
+                try {
+                    rateLimiter.acquire(estimatedTokens);
+                    response = send(request);
+                } catch (InterruptedException e) {
+                    circuitBreaker.release(permit);
+                    throw e;
+                } catch (RuntimeException e) {
+                    // Counted against the breaker like a failed response, then rethrown to the caller.
+                    circuitBreaker.onFailure(permit);
+                    throw e;
+                }
+                if (retryPolicy.isFailure(response)) {
+                    circuitBreaker.onFailure(permit);
+                } else if (retryPolicy.isRetryable(response)) {
+                    circuitBreaker.release(permit);
+                } else {
+                    circuitBreaker.onSuccess(permit);
+                }
+                if (!retryPolicy.isRetryable(response) || attempt >= retryPolicy.getMaxRetries()) {
+                    return response;
+                }
+                final int retry = attempt;
+                final Duration delay = retryAfter(response).orElseGet(() -> retryPolicy.backoff(retry));
+                System.out.printf("Chat request got status %d, retrying in %d ms%n",
+                        response.getStatusCode().orElse(666), delay.toMillis());
+                rateLimiter.pause(delay);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting to send a chat request", e);
+        }
+    }
+
+    private ClientResponse<ChatRequest, ChatResponse> send(ChatRequest request) throws InterruptedException {
+        permits.acquire();
+        try {
+            return client.chat(request);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Reads the retry hint of a response. The client does not expose response headers, so this
+     * reads the error message, where the provider repeats it as "try again in 20s" or "retry after 2 seconds".
+     *
+     * @param response the rate-limited or unavailable response
+     * @return how long to wait, if the provider said
+     */
+    static Optional<Duration> retryAfter(ClientResponse<ChatRequest, ChatResponse> response) {
+        final Matcher matcher = RETRY_AFTER.matcher(response.getStatusMessage().orElse(""));
+        if (!matcher.find()) {
+            return Optional.empty();
+        }
+        final double amount = Double.parseDouble(matcher.group(1));
+        final boolean millis = "ms".equalsIgnoreCase(matcher.group(2));
+        return Optional.of(Duration.ofMillis((long) Math.ceil(millis ? amount : amount * 1000)));
+    }
+
+    private static long estimateTokens(ChatRequest request) {
+        long characters = 0;
+        for (Message message : request.getMessages()) {
+            characters += message.getContent() == null ? 0 : message.getContent().length();
+        }
+        return RateLimiter.estimateTokens(characters, request.getMaxTokens());
+    }
+
+    /**
+     * Returns the cached response text for a request.
+     *
+     * @param request the chat request
+     * @return the cached text, or null if there is no cache or no entry
+     */
+    public String cached(ChatRequest request) {
+        return cache == null ? null : cache.get(request);
+    }
+
+    /**
+     * Caches the response text of a successful request. Does nothing without a cache. A failed
+     * cache write is logged and ignored; the response has already been paid for and is still used.
+     *
+     * @param request the chat request
+     * @param content the response text
+     */
+    public void cache(ChatRequest request, String content) {
+        if (cache != null) {
+            try {
+                cache.put(request, content);
+            } catch (RuntimeException e) {
+                System.err.printf("Could not cache a chat response: %s%n", e);
+            }
+        }
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
+    /**
+     * @return the number of requests in flight
+     */
+    public int getActiveRequests() {
+        return maxConcurrentRequests - permits.availablePermits();
+    }
+
+    private static class DefaultHolder {
+        private static final LlmGateway DEFAULT = builder().build();
+    }
+
+    public static class Builder {
+        private ChatClient client;
+        private int maxConcurrentRequests = 8;
+        private ChatCache cache;
+        private RateLimiter rateLimiter = new RateLimiter(0, 0);
+        private RetryPolicy retryPolicy = RetryPolicy.builder().build();
+        private CircuitBreaker circuitBreaker = CircuitBreaker.builder().build();
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the client that sends the requests. Defaults to one OpenAI client for the
+         * {@code OPENAI_API_KEY} environment variable.
+         *
+         * @param client the client
+         * @return this Builder
+         */
+        public Builder client(ChatClient client) {
+            this.client = client;
+            return this;
+        }
+
+        /**
+         * Sets how many requests may be in flight at once. Defaults to 8.
+         *
+         * @param maxConcurrentRequests the concurrency cap
+         * @return this Builder
+         */
+        public Builder maxConcurrentRequests(int maxConcurrentRequests) {
+            if (maxConcurrentRequests < 1) {
+                throw new IllegalArgumentException("maxConcurrentRequests must be at least 1");
+            }
+            this.maxConcurrentRequests = maxConcurrentRequests;
+            return this;
+        }
+
+        /**
+         * Sets the cache for response texts. Defaults to none.
+         *
+         * @param cache the response cache
+         * @return this Builder
+         */
+        public Builder cache(ChatCache cache) {
+            this.cache = cache;
+            return this;
+        }
+
+        /**
+         * Sets the requests-per-minute and tokens-per-minute budgets. Share one limiter between
+         * gateways that use the same API key. Defaults to no budget, which still pauses every
+         * caller while backing off.
+         *
+         * @param rateLimiter the rate limiter
+         * @return this Builder
+         */
+        public Builder rateLimiter(RateLimiter rateLimiter) {
+            this.rateLimiter = rateLimiter;
+            return this;
+        }
+
+        /**
+         * Sets which responses are retried, how often and with what backoff. Defaults to
+         * {@link RetryPolicy#builder()} defaults: 429 and transient 5xx, five retries.
+         *
+         * @param retryPolicy the retry policy
+         * @return this Builder
+         */
+        public Builder retryPolicy(RetryPolicy retryPolicy) {
+            this.retryPolicy = retryPolicy;
+            return this;
+        }
+
+        /**
+         * Sets the breaker that stops requests while the endpoint is failing. Share one breaker
+         * between gateways that call the same endpoint. Defaults to {@link CircuitBreaker#builder()} defaults.
+         *
+         * @param circuitBreaker the circuit breaker
+         * @return this Builder
+         */
+        public Builder circuitBreaker(CircuitBreaker circuitBreaker) {
+            this.circuitBreaker = circuitBreaker;
+            return this;
+        }
+
+        public LlmGateway build() {
+            return new LlmGateway(this);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.cloudurable.docgen.llm;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps every caller within a requests-per-minute and a tokens-per-minute budget.
+ * <p>
+ * Each budget is a token bucket that holds at most one minute's allowance and refills
+ * continuously, so short bursts go through at once and sustained load is spread evenly instead
+ * of hitting the provider's limit and bouncing. A request takes one request token and its
+ * estimated tokens, waiting until both buckets have enough; a request larger than a whole minute's
+ * token budget waits for a full bucket. When the provider pushes back, {@link #pause(Duration)}
+ * holds every caller, not just the one that got the error, so concurrent modes back off together
+ * rather than retrying in bursts. Thread safe.
+ */
+public class RateLimiter {
+
+    private final long requestsPerMinute;
+    private final long tokensPerMinute;
+    private final LongSupplier nanoTime;
+    private double requests;
+    private double tokens;
+    private long refilledAt;
+    private long pausedUntil;
+
+    /**
+     * Creates a limiter with full buckets.
+     *
+     * @param requestsPerMinute the request budget, or 0 for no limit
+     * @param tokensPerMinute   the token budget, or 0 for no limit
+     */
+    public RateLimiter(long requestsPerMinute, long tokensPerMinute) {
+        this(requestsPerMinute, tokensPerMinute, System::nanoTime);
+    }
+
+    RateLimiter(long requestsPerMinute, long tokensPerMinute, LongSupplier nanoTime) {
+        this.requestsPerMinute = requestsPerMinute;
+        this.tokensPerMinute = tokensPerMinute;
+        this.nanoTime = nanoTime;
+        this.requests = requestsPerMinute;
+        this.tokens = tokensPerMinute;
+        this.refilledAt = nanoTime.getAsLong();
+        this.pausedUntil = refilledAt;
+    }
+
+    /**
+     * Waits until a request of the given size fits both budgets, then takes it from them.
+     *
+     * @param estimatedTokens the prompt and completion tokens the request may use
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public void acquire(long estimatedTokens) throws InterruptedException {
+        long waitNanos;
+        while ((waitNanos = tryAcquire(estimatedTokens)) > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * Takes a request of the given size from the budgets if it fits now.
+     *
+     * @param estimatedTokens the prompt and completion tokens the request may use
+     * @return 0 if the request was taken, otherwise how long to wait before trying again in nanoseconds
+     */
+    synchronized long tryAcquire(long estimatedTokens) {
+        final long now = nanoTime.getAsLong();
+        refill(now);
+        if (pausedUntil - now > 0) {
+            return pausedUntil - now;
+        }
+        final long needed = tokensPerMinute > 0 ? Math.min(estimatedTokens, tokensPerMinute) : 0;
+        final long wait = Math.max(waitFor(requests, 1, requestsPerMinute), waitFor(tokens, needed, tokensPerMinute));
+        if (wait > 0) {
+            return wait;
+        }
+        if (requestsPerMinute > 0) {
+            requests -= 1;
+        }
+        tokens -= needed;
+        return 0;
+    }
+
+    /**
+     * Holds every caller for the given time, for example after a 429 with a Retry-After.
+     * A shorter pause than one already in effect changes nothing.
+     *
+     * @param duration how long to hold callers
+     */
+    public synchronized void pause(Duration duration) {
+        final long until = nanoTime.getAsLong() + duration.toNanos();
+        if (until - pausedUntil > 0) {
+            pausedUntil = until;
+        }
+    }
+
+    /**
+     * Estimates the tokens of a request from its text length, at about four characters per token,
+     * plus the completion budget.
+     *
+     * @param promptCharacters the total length of the messages
+     * @param maxTokens        the completion token limit of the request, or 0 if unset
+     * @return the estimated tokens
+     */
+    public static long estimateTokens(long promptCharacters, int maxTokens) {
+        return (promptCharacters + 3) / 4 + Math.max(0, maxTokens);
+    }
+
+    private void refill(long now) {
+        final long elapsed = now - refilledAt;
+        if (elapsed <= 0) {
+            return;
+        }
+        final double minutes = elapsed / (double) TimeUnit.MINUTES.toNanos(1);
+        requests = Math.min(requestsPerMinute, requests + minutes * requestsPerMinute);
+        tokens = Math.min(tokensPerMinute, tokens + minutes * tokensPerMinute);
+        refilledAt = now;
+    }
+
+    private static long waitFor(double available, long needed, long perMinute) {
+        if (perMinute <= 0 || available >= needed) {
+            return 0;
+        }
+        return (long) Math.ceil((needed - available) * TimeUnit.MINUTES.toNanos(1) / perMinute);
+    }
+}
@@ -0,0 +1,147 @@
+package com.cloudurable.docgen.llm;
+
+import com.cloudurable.jai.model.ClientResponse;
+import com.cloudurable.jai.model.text.completion.chat.ChatRequest;
+import com.cloudurable.jai.model.text.completion.chat.ChatResponse;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides which chat responses are retried, how often and after how long. Immutable, so one
+ * policy is shared by every call site through the {@link LlmGateway}.
+ * <p>
+ * A response is retried when its status is one of the retryable statuses, 429 and the transient
+ * 5xx by default, or when the client failed with an exception such as a dropped connection.
+ * The wait before retry {@code n} is an exponential backoff with equal jitter: between half and
+ * all of {@code initialBackoff * 2^n}, capped at {@code maxBackoff}.
+ */
+public class RetryPolicy {
+
+    private final int maxRetries;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Set<Integer> retryableStatuses;
+    private final boolean retryExceptions;
+
+    private RetryPolicy(Builder builder) {
+        this.maxRetries = builder.maxRetries;
+        this.initialBackoff = builder.initialBackoff;
+        this.maxBackoff = builder.maxBackoff;
+        this.retryableStatuses = Set.copyOf(builder.retryableStatuses);
+        this.retryExceptions = builder.retryExceptions;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     * @param response a chat response
+     * @return true if the response failed in a way that may succeed when sent again
+     */
+    public boolean isRetryable(ClientResponse<ChatRequest, ChatResponse> response) {
+        if (response.getException().isPresent()) {
+            return retryExceptions;
+        }
+        return response.getStatusCode().map(retryableStatuses::contains).orElse(false);
+    }
+
+    /**
+     * Tells if a response counts against the health of the endpoint: a server error or a failed
+     * connection. A 429 only means the caller is over its budget, so it does not.
+     *
+     * @param response a chat response
+     * @return true if the response is a failure of the endpoint
+     */
+    public boolean isFailure(ClientResponse<ChatRequest, ChatResponse> response) {
+        return response.getException().isPresent() || response.getStatusCode().orElse(0) >= 500;
+    }
+
+    /**
+     * @param attempt the number of retries already made
+     * @return the wait before the next retry
+     */
+    public Duration backoff(int attempt) {
+        final long cap = Math.min(maxBackoff.toMillis(), initialBackoff.toMillis() << Math.min(attempt, 30));
+        return Duration.ofMillis(cap / 2 + ThreadLocalRandom.current().nextLong(cap / 2 + 1));
+    }
+
+    public static class Builder {
+        private int maxRetries = 5;
+        private Duration initialBackoff = Duration.ofSeconds(1);
+        private Duration maxBackoff = Duration.ofSeconds(60);
+        private Set<Integer> retryableStatuses = Set.of(429, 500, 502, 503, 504);
+        private boolean retryExceptions = true;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets how many times a failed request is sent again. Defaults to 5.
+         *
+         * @param maxRetries the retry limit
+         * @return this Builder
+         */
+        public Builder maxRetries(int maxRetries) {
+            if (maxRetries < 0) {
+                throw new IllegalArgumentException("maxRetries must not be negative");
+            }
+            this.maxRetries = maxRetries;
+            return this;
+        }
+
+        /**
+         * Sets the backoff before the first retry, doubled for each one after it. Defaults to one second.
+         *
+         * @param initialBackoff the first backoff
+         * @return this Builder
+         */
+        public Builder initialBackoff(Duration initialBackoff) {
+            this.initialBackoff = initialBackoff;
+            return this;
+        }
+
+        /**
+         * Sets the longest backoff between retries. Defaults to one minute.
+         *
+         * @param maxBackoff the backoff cap
+         * @return this Builder
+         */
+        public Builder maxBackoff(Duration maxBackoff) {
+            this.maxBackoff = maxBackoff;
+            return this;
+        }
+
+        /**
+         * Sets the HTTP statuses that are retried. Defaults to 429, 500, 502, 503 and 504.
+         *
+         * @param retryableStatuses the statuses
+         * @return this Builder
+         */
+        public Builder retryableStatuses(Set<Integer> retryableStatuses) {
+            this.retryableStatuses = retryableStatuses;
+            return this;
+        }
+
+        /**
+         * Retries requests that failed with an exception instead of a status. Defaults to true.
+         *
+         * @param retryExceptions true to retry exceptions
+         * @return this Builder
+         */
+        public Builder retryExceptions(boolean retryExceptions) {
+            this.retryExceptions = retryExceptions;
+            return this;
+        }
+
+        public RetryPolicy build() {
+            return new RetryPolicy(this);
+        }
+    }
+}
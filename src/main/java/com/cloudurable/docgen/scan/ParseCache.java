@@ -0,0 +1,205 @@
+package com.cloudurable.docgen.scan;
+
+import com.cloudurable.docgen.JavaItem;
+import com.cloudurable.docgen.JavaItemType;
+import com.cloudurable.docgen.StringInterner;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * On-disk cache of the items extracted from each source file.
+ * <p>
+ * Every source file gets one entry, named after a hash of its path, holding the file's
+ * modification time, size, content hash and extracted items. An entry is trusted as-is when
+ * the modification time and size still match. When they do not, the file is hashed and the
+ * entry is reused if the content is unchanged (for example after a fresh checkout), otherwise
+ * the file is parsed again and the entry rewritten.
+ * Entries are written to a temp file and moved into place, so concurrent scans never read half an entry.
+ * The cache never decides the output: an entry that can not be read is a miss, and an entry that
+ * can not be written is reported and skipped, so the freshly parsed items are still returned.
+ */
+public class ParseCache {
+
+    /** Bump when the entry layout or the items produced by ClassVisitor change. */
+    static final int FORMAT_VERSION = 3;
+    private static final int MAGIC = 0x4A324350;
+
+    private final Path cacheDirectory;
+    private final StringInterner interner = new StringInterner();
+
+    /**
+     * Creates a cache stored in the given directory.
+     *
+     * @param cacheDirectory the directory holding the cache entries, created if missing
+     */
+    public ParseCache(Path cacheDirectory) {
+        this.cacheDirectory = cacheDirectory;
+    }
+
+    /**
+     * Returns the cached items for the file, or parses it and caches the result.
+     *
+     * @param file    the source file
+     * @param variant names how the items were extracted, for example the scan mode,
+     *                so different extractions of the same file are cached separately
+     * @param parser  turns the source text into items
+     * @return the items of the file
+     * @throws IOException if the source file can not be read
+     */
+    public List<JavaItem> load(Path file, String variant, Function<String, List<JavaItem>> parser) throws IOException {
+        final BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        final long modified = attributes.lastModifiedTime().toMillis();
+        final long size = attributes.size();
+        final String key = file.toAbsolutePath().toUri() + "#" + variant;
+        final Path entry = cacheDirectory.resolve(hash(key.getBytes(StandardCharsets.UTF_8)) + ".bin");
+
+        final Entry cached = read(entry, key);
+        if (cached != null && cached.modified == modified && cached.size == size) {
+            return cached.javaItems;
+        }
+
+        final byte[] content = Files.readAllBytes(file);
+        final String contentHash = hash(content);
+        final List<JavaItem> javaItems = cached != null && cached.contentHash.equals(contentHash)
+                ? cached.javaItems
+                : parser.apply(new String(content, StandardCharsets.UTF_8));
+        try {
+            write(entry, new Entry(key, modified, size, contentHash, javaItems));
+        } catch (IOException | RuntimeException e) {
+            System.err.printf("Could not write parse cache entry for %s: %s%n", file, e);
+        }
+        return javaItems;
+    }
+
+    private Entry read(Path entry, String key) {
+        if (!Files.isRegularFile(entry)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(entry), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                return null;
+            }
+            final String entryKey = readString(in);
+            if (!entryKey.equals(key)) {
+                return null;
+            }
+            final long modified = in.readLong();
+            final long size = in.readLong();
+            final String contentHash = readString(in);
+            final int count = in.readInt();
+            final List<JavaItem> javaItems = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                final JavaItemType type = JavaItemType.values()[in.readByte()];
+                final int parent = in.readInt();
+                javaItems.add(JavaItem.builder()
+                        .type(type)
+                        .parent(parent >= 0 ? javaItems.get(parent) : null)
+                        .name(readString(in))
+                        .simpleName(readString(in))
+                        .definition(readString(in))
+                        .javadoc(readString(in))
+                        .importBody(interner.intern(readString(in)))
+                        .body(readString(in))
+                        .build());
+            }
+            return new Entry(entryKey, modified, size, contentHash, javaItems);
+        } catch (IOException | RuntimeException e) {
+            // A corrupt or truncated entry is just a cache miss.
+            return null;
+        }
+    }
+
+    private void write(Path entry, Entry cached) throws IOException {
+        Files.createDirectories(cacheDirectory);
+        final Path tmp = Files.createTempFile(cacheDirectory, "entry", ".tmp");
+        try {
+            writeEntry(tmp, cached);
+            try {
+                Files.move(tmp, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                // A torn entry fails its checks on read and counts as a miss.
+                Files.move(tmp, entry, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static void writeEntry(Path tmp, Entry cached) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            writeString(out, cached.key);
+            out.writeLong(cached.modified);
+            out.writeLong(cached.size);
+            writeString(out, cached.contentHash);
+            out.writeInt(cached.javaItems.size());
+            final Map<JavaItem, Integer> positions = new IdentityHashMap<>();
+            for (JavaItem javaItem : cached.javaItems) {
+                out.writeByte(javaItem.getType().ordinal());
+                out.writeInt(javaItem.getParent() == null ? -1 : positions.getOrDefault(javaItem.getParent(), -1));
+                writeString(out, javaItem.getName());
+                writeString(out, javaItem.getSimpleName());
+                writeString(out, javaItem.getDefinition());
+                writeString(out, javaItem.getJavadoc());
+                writeString(out, javaItem.getImportBody());
+                writeString(out, javaItem.getBody());
+                positions.put(javaItem, positions.size());
+            }
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        final byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String hash(byte[] bytes) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            final StringBuilder builder = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                builder.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class Entry {
+        private final String key;
+        private final long modified;
+        private final long size;
+        private final String contentHash;
+        private final List<JavaItem> javaItems;
+
+        private Entry(String key, long modified, long size, String contentHash, List<JavaItem> javaItems) {
+            this.key = key;
+            this.modified = modified;
+            this.size = size;
+            this.contentHash = contentHash;
+            this.javaItems = javaItems;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.cloudurable.docgen.scan;
+
+import com.cloudurable.docgen.JavaItem;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Receives the items of each scanned file, one compilation unit at a time and in file order.
+ * Lets callers write results as they are parsed instead of holding the whole repository in memory.
+ */
+@FunctionalInterface
+public interface ScanSink {
+
+    /**
+     * Called once per source file with the items found in that file.
+     *
+     * @param file      the source file
+     * @param javaItems the items found in the file, empty if the file could not be parsed
+     */
+    void accept(Path file, List<JavaItem> javaItems);
+}
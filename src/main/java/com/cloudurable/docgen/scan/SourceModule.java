@@ -0,0 +1,102 @@
+package com.cloudurable.docgen.scan;
+
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A module of a multi-project build, with the source root that holds its Java files.
+ */
+public class SourceModule {
+
+    private static final List<String> SOURCE_ROOTS = List.of("src/main/java");
+
+    private final String name;
+    private final Path moduleDirectory;
+    private final Path sourceRoot;
+
+    /**
+     * Creates a module.
+     *
+     * @param name            the module name, its path relative to the project root
+     * @param moduleDirectory the module directory
+     * @param sourceRoot      the directory holding the module's Java sources
+     */
+    public SourceModule(String name, Path moduleDirectory, Path sourceRoot) {
+        this.name = name;
+        this.moduleDirectory = moduleDirectory;
+        this.sourceRoot = sourceRoot;
+    }
+
+    /**
+     * Finds the modules under a Gradle or Maven project root, meaning every directory that has a
+     * {@code src/main/java} directory. Build output, VCS directories and node_modules are not searched.
+     * When no module is found the root itself is returned as the only module.
+     *
+     * @param root the project root
+     * @return the modules in walk order
+     * @throws IOException if the root can not be walked
+     */
+    public static List<SourceModule> discover(Path root) throws IOException {
+        final List<SourceModule> modules = new ArrayList<>();
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                if (!dir.equals(root) && SourceWalker.isPrunable(dir)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                if (dir.endsWith("src") && Files.isDirectory(dir.resolve("main"))) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                for (String sourceRoot : SOURCE_ROOTS) {
+                    final Path sources = dir.resolve(sourceRoot);
+                    if (Files.isDirectory(sources)) {
+                        final String relative = root.relativize(dir).toString().replace('\\', '/');
+                        modules.add(new SourceModule(relative.isEmpty() ? nameOf(root) : relative, dir, sources));
+                    }
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                exc.printStackTrace();
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        if (modules.isEmpty()) {
+            modules.add(new SourceModule(nameOf(root), root, root));
+        }
+        return modules;
+    }
+
+    private static String nameOf(Path root) {
+        final Path fileName = root.toAbsolutePath().normalize().getFileName();
+        return fileName == null ? "root" : fileName.toString();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Path getModuleDirectory() {
+        return moduleDirectory;
+    }
+
+    public Path getSourceRoot() {
+        return sourceRoot;
+    }
+
+    @Override
+    public String toString() {
+        return "SourceModule{" +
+                "name='" + name + '\'' +
+                ", sourceRoot=" + sourceRoot +
+                '}';
+    }
+}
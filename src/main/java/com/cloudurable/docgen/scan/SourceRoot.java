@@ -0,0 +1,67 @@
+package com.cloudurable.docgen.scan;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * The root of a scan: a directory, or a source JAR or zip archive opened as a zip FileSystem.
+ * <p>
+ * Archive entries are read straight from the archive by the same walker, scanner and parse cache
+ * as files on disk, so nothing is extracted. Close the root once the scan is finished, which also
+ * closes the archive.
+ */
+public class SourceRoot implements Closeable {
+
+    private final Path path;
+    private final FileSystem fileSystem;
+
+    private SourceRoot(Path path, FileSystem fileSystem) {
+        this.path = path;
+        this.fileSystem = fileSystem;
+    }
+
+    /**
+     * Opens a directory or a .jar or .zip archive for scanning.
+     *
+     * @param input the directory or archive
+     * @return the scan root
+     * @throws IOException if the archive can not be opened
+     */
+    public static SourceRoot open(Path input) throws IOException {
+        if (!isArchive(input)) {
+            return new SourceRoot(input, null);
+        }
+        final FileSystem fileSystem = FileSystems.newFileSystem(input, (ClassLoader) null);
+        return new SourceRoot(fileSystem.getRootDirectories().iterator().next(), fileSystem);
+    }
+
+    /**
+     * Tells if the path is a source archive that {@link #open(Path)} reads as a zip FileSystem.
+     *
+     * @param input the path
+     * @return true for an existing .jar or .zip file
+     */
+    public static boolean isArchive(Path input) {
+        final String name = input.getFileName() == null ? "" : input.getFileName().toString().toLowerCase(Locale.ROOT);
+        return (name.endsWith(".jar") || name.endsWith(".zip")) && Files.isRegularFile(input);
+    }
+
+    /**
+     * @return the directory to walk, the archive root for an archive
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (fileSystem != null) {
+            fileSystem.close();
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package com.cloudurable.docgen.scan;
+
+import com.cloudurable.docgen.ClassVisitor;
+import com.cloudurable.docgen.JavaItem;
+import com.cloudurable.docgen.ScanMode;
+import com.cloudurable.docgen.StringInterner;
+import com.github.javaparser.JavaParser;
+
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Parses Java source files in parallel on a ForkJoinPool.
+ * The file list is split in half until a batch is small enough to parse on one worker.
+ * Each worker thread owns its own JavaParser, and every task returns its own list,
+ * so results are merged at join time in file order without any shared mutable state.
+ * The merged list is in the same order as a sequential scan of the same file list.
+ * <p>
+ * {@link #scan(List, ScanSink)} streams items per file instead, keeping only a small window
+ * of files in flight so heap use is bounded by the largest files rather than the repository.
+ * <p>
+ * Import blocks are interned in a table shared by all workers, since most files of a
+ * package repeat the same imports.
+ * <p>
+ * A scanner built with a {@link Builder#parallelism(int)} owns its pool, and {@link #close()}
+ * shuts it down; a pool passed to {@link Builder#pool(ForkJoinPool)} and the common pool are left alone.
+ */
+public class SourceScanner implements AutoCloseable {
+
+    private final ForkJoinPool pool;
+    private final boolean ownsPool;
+    private final int batchSize;
+    private final int window;
+    private final ParseCache parseCache;
+    private final ScanMode mode;
+    private final StringInterner interner;
+    private final ThreadLocal<JavaParser> parsers = ThreadLocal.withInitial(JavaParser::new);
+
+    private SourceScanner(Builder builder) {
+        this.ownsPool = builder.pool == null && builder.parallelism > 0;
+        this.pool = builder.pool != null ? builder.pool
+                : ownsPool ? new ForkJoinPool(builder.parallelism) : ForkJoinPool.commonPool();
+        this.batchSize = Math.max(1, builder.batchSize);
+        this.window = builder.window > 0 ? builder.window : pool.getParallelism() * 4;
+        this.parseCache = builder.parseCache;
+        this.mode = builder.mode;
+        this.interner = new StringInterner();
+    }
+
+    private SourceScanner(SourceScanner scanner, ScanMode mode) {
+        this.pool = scanner.pool;
+        this.ownsPool = false;
+        this.batchSize = scanner.batchSize;
+        this.window = scanner.window;
+        this.parseCache = scanner.parseCache;
+        this.mode = mode;
+        this.interner = scanner.interner;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns a scanner sharing this scanner's pool and cache that extracts items in the given mode.
+     * Closing it does not shut the shared pool down.
+     *
+     * @param mode the scan mode
+     * @return a scanner for the mode
+     */
+    public SourceScanner withMode(ScanMode mode) {
+        return mode == this.mode ? this : new SourceScanner(this, mode);
+    }
+
+    /**
+     * @return how much of each file this scanner extracts
+     */
+    public ScanMode getMode() {
+        return mode;
+    }
+
+    /**
+     * Parses the given files and returns the items in file order.
+     *
+     * @param files the Java source files to parse
+     * @return the items found in all files
+     */
+    public List<JavaItem> scan(List<Path> files) {
+        if (files.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return pool.invoke(new ScanTask(files, 0, files.size()));
+    }
+
+    /**
+     * Parses several groups of files at once, for example one group per module, and returns the
+     * items keyed the same way. All groups share the pool, so a small module does not wait for a
+     * large one to finish before its files are parsed.
+     *
+     * @param filesByKey the files of each group, in the order the result should keep
+     * @param <K>        the group key type
+     * @return the items of each group in file order
+     */
+    public <K> Map<K, List<JavaItem>> scanAll(Map<K, List<Path>> filesByKey) {
+        final Map<K, ScanTask> tasks = new LinkedHashMap<>();
+        filesByKey.forEach((key, files) -> tasks.put(key, new ScanTask(files, 0, files.size())));
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(tasks.values());
+            }
+        });
+        final Map<K, List<JavaItem>> javaItemsByKey = new LinkedHashMap<>();
+        tasks.forEach((key, task) -> javaItemsByKey.put(key, task.join()));
+        return javaItemsByKey;
+    }
+
+    /**
+     * Parses the given files in parallel and hands each file's items to the sink in file order.
+     * At most the configured window of files is parsed ahead of the sink, so parsed items are
+     * released as soon as the sink is done with them.
+     *
+     * If the sink throws, the files still in flight are cancelled before the exception is rethrown.
+     *
+     * @param files the Java source files to parse
+     * @param sink  receives the items of each file, called on the calling thread
+     */
+    public void scan(List<Path> files, ScanSink sink) {
+        final Deque<ForkJoinTask<List<JavaItem>>> inFlight = new ArrayDeque<>(window);
+        int submitted = 0;
+        int emitted = 0;
+        try {
+            while (emitted < files.size()) {
+                while (submitted < files.size() && inFlight.size() < window) {
+                    final Path file = files.get(submitted++);
+                    inFlight.add(pool.submit(() -> parseFile(file)));
+                }
+                sink.accept(files.get(emitted++), inFlight.poll().join());
+            }
+        } catch (RuntimeException | Error e) {
+            inFlight.forEach(task -> task.cancel(true));
+            throw e;
+        }
+    }
+
+    /**
+     * Shuts down the pool if this scanner created it. Files being parsed are finished.
+     */
+    @Override
+    public void close() {
+        if (ownsPool) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Parses a single file with the parser owned by the current thread.
+     * Files that fail to parse are reported and skipped, the same as the sequential scan did.
+     * When a parse cache is configured, unchanged files are read from the cache instead.
+     *
+     * @param file the file to parse
+     * @return the items found in the file, or an empty list if it could not be parsed
+     */
+    List<JavaItem> parseFile(Path file) {
+        try {
+            if (parseCache != null) {
+                return parseCache.load(file, mode.name(), source -> new ClassVisitor(mode, interner).run(parsers.get(), source));
+            }
+            return new ClassVisitor(mode, interner).run(parsers.get(), file);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return Collections.emptyList();
+        }
+    }
+
+    private class ScanTask extends RecursiveTask<List<JavaItem>> {
+        private final List<Path> files;
+        private final int start;
+        private final int end;
+
+        private ScanTask(List<Path> files, int start, int end) {
+            this.files = files;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected List<JavaItem> compute() {
+            if (end - start <= batchSize) {
+                final List<JavaItem> javaItems = new ArrayList<>(32);
+                for (int i = start; i < end; i++) {
+                    javaItems.addAll(parseFile(files.get(i)));
+                }
+                return javaItems;
+            }
+            final int middle = (start + end) >>> 1;
+            final ScanTask left = new ScanTask(files, start, middle);
+            final ScanTask right = new ScanTask(files, middle, end);
+            left.fork();
+            final List<JavaItem> rightItems = right.compute();
+            final List<JavaItem> leftItems = left.join();
+            leftItems.addAll(rightItems);
+            return leftItems;
+        }
+    }
+
+    public static class Builder {
+        private ForkJoinPool pool;
+        private int parallelism;
+        private int batchSize = 8;
+        private int window;
+        private ParseCache parseCache;
+        private ScanMode mode = ScanMode.FULL;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the pool to parse on, which the caller shuts down. When not set, a pool of
+         * {@link #parallelism(int)} threads is created and owned by the scanner, or the common pool is used.
+         *
+         * @param pool the pool to parse on
+         * @return this Builder
+         */
+        public Builder pool(ForkJoinPool pool) {
+            this.pool = pool;
+            return this;
+        }
+
+        /**
+         * Sets the number of parser threads, in a pool shut down by {@link SourceScanner#close()}.
+         * Zero or less uses the common pool.
+         *
+         * @param parallelism the number of parser threads
+         * @return this Builder
+         */
+        public Builder parallelism(int parallelism) {
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * Sets how many files a worker parses before it stops splitting the work.
+         *
+         * @param batchSize files per leaf task
+         * @return this Builder
+         */
+        public Builder batchSize(int batchSize) {
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * Sets how many files may be parsed ahead of a streaming sink.
+         * Zero or less uses four times the pool parallelism.
+         *
+         * @param window files in flight while streaming
+         * @return this Builder
+         */
+        public Builder window(int window) {
+            this.window = window;
+            return this;
+        }
+
+        /**
+         * Sets the cache used to skip parsing files that have not changed since the last scan.
+         *
+         * @param parseCache the parse cache, or null to always parse
+         * @return this Builder
+         */
+        public Builder parseCache(ParseCache parseCache) {
+            this.parseCache = parseCache;
+            return this;
+        }
+
+        /**
+         * Sets how much of each file is extracted. Defaults to {@link ScanMode#FULL}.
+         *
+         * @param mode the scan mode
+         * @return this Builder
+         */
+        public Builder mode(ScanMode mode) {
+            this.mode = mode;
+            return this;
+        }
+
+        public SourceScanner build() {
+            return new SourceScanner(this);
+        }
+    }
+}
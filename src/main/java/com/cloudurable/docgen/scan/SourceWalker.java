@@ -0,0 +1,319 @@
+package com.cloudurable.docgen.scan;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Finds the source files under a directory, pruning directories that can not contain sources.
+ * <p>
+ * Uses {@link Files#walkFileTree} and skips whole subtrees instead of listing everything and
+ * filtering afterwards, so walk time scales with the source tree rather than the checkout.
+ * Skipped are VCS and IDE directories and node_modules, build output directories (a build, target
+ * or out directory next to a Gradle or Maven build file), directories matching an exclude glob and,
+ * optionally, anything ignored by a .gitignore file.
+ * Globs are matched against paths relative to the walked directory. They are compiled once, when
+ * the walker is built, for the default file system; walks inside a source archive compile them
+ * for the archive's file system.
+ * Files are returned in the same order as {@link Files#walk}.
+ */
+public class SourceWalker {
+
+    private static final Set<String> SKIPPED_DIRECTORIES = Set.of(".git", ".svn", ".hg", ".gradle", ".idea", "node_modules");
+    private static final Set<String> BUILD_OUTPUT_DIRECTORIES = Set.of("build", "target", "out");
+    private static final List<String> BUILD_FILES = List.of("build.gradle", "build.gradle.kts", "pom.xml",
+            "settings.gradle", "settings.gradle.kts");
+
+    private final List<String> includes;
+    private final List<String> excludes;
+    private final boolean honorGitignore;
+    private final List<PathMatcher> defaultIncludeMatchers;
+    private final List<PathMatcher> defaultExcludeMatchers;
+
+    private SourceWalker(Builder builder) {
+        this.includes = List.copyOf(builder.includes);
+        this.excludes = List.copyOf(builder.excludes);
+        this.honorGitignore = builder.honorGitignore;
+        this.defaultIncludeMatchers = compile(FileSystems.getDefault(), includes);
+        this.defaultExcludeMatchers = compile(FileSystems.getDefault(), excludes);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Walks the directory and returns the source files that pass the include and exclude globs.
+     *
+     * @param root the directory to walk
+     * @return the matching files in walk order
+     * @throws IOException if the directory can not be walked
+     */
+    public List<Path> walk(Path root) throws IOException {
+        final FileSystem fileSystem = root.getFileSystem();
+        final boolean defaultFileSystem = fileSystem == FileSystems.getDefault();
+        final List<PathMatcher> includeMatchers = defaultFileSystem ? defaultIncludeMatchers : compile(fileSystem, includes);
+        final List<PathMatcher> excludeMatchers = defaultFileSystem ? defaultExcludeMatchers : compile(fileSystem, excludes);
+        final Deque<GitIgnore> gitIgnores = new ArrayDeque<>();
+        final List<Path> files = new ArrayList<>();
+
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                if (!dir.equals(root)) {
+                    if (isPrunable(dir) || matches(excludeMatchers, root.relativize(dir)) || isIgnored(gitIgnores, dir, true)) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                }
+                if (honorGitignore) {
+                    final Path gitIgnoreFile = dir.resolve(".gitignore");
+                    if (Files.isRegularFile(gitIgnoreFile)) {
+                        gitIgnores.push(GitIgnore.parse(dir, Files.readAllLines(gitIgnoreFile)));
+                    }
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                final Path relative = root.relativize(file);
+                if (attrs.isRegularFile() && matches(includeMatchers, relative) && !matches(excludeMatchers, relative)
+                        && !isIgnored(gitIgnores, file, false)) {
+                    files.add(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                exc.printStackTrace();
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
+                if (!gitIgnores.isEmpty() && gitIgnores.peek().dir.equals(dir)) {
+                    gitIgnores.pop();
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return files;
+    }
+
+    /**
+     * Returns a SHA-256 over this walker's settings and the path, size and modification time of
+     * every file, in order. Saved with an output, it tells if the output is stale: it changes when a
+     * file is added, deleted, renamed or modified, or when the globs or .gitignore handling change,
+     * which comparing modification times alone misses.
+     *
+     * @param files the files of a walk
+     * @return the fingerprint as hex
+     * @throws IOException if a file can not be read
+     */
+    public String fingerprint(List<Path> files) throws IOException {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            update(digest, String.join("\n", includes));
+            update(digest, String.join("\n", excludes));
+            update(digest, Boolean.toString(honorGitignore));
+            for (Path file : files) {
+                final BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                update(digest, file.toString());
+                update(digest, Long.toString(attributes.size()));
+                update(digest, Long.toString(attributes.lastModifiedTime().toMillis()));
+            }
+            final StringBuilder builder = new StringBuilder(64);
+            for (byte b : digest.digest()) {
+                builder.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    /**
+     * Tells if a directory can never hold sources: VCS and IDE directories, node_modules and build output.
+     *
+     * @param dir the directory
+     * @return true if the directory should be skipped
+     */
+    static boolean isPrunable(Path dir) {
+        final String name = dir.getFileName() == null ? "" : stripSlash(dir.getFileName().toString());
+        return SKIPPED_DIRECTORIES.contains(name) || isBuildOutput(dir, name);
+    }
+
+    private static boolean isBuildOutput(Path dir, String name) {
+        if (!BUILD_OUTPUT_DIRECTORIES.contains(name) || dir.getParent() == null) {
+            return false;
+        }
+        for (String buildFile : BUILD_FILES) {
+            if (Files.isRegularFile(dir.getParent().resolve(buildFile))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isIgnored(Deque<GitIgnore> gitIgnores, Path path, boolean directory) {
+        // The deque holds the innermost .gitignore first, and deeper files override shallower ones.
+        for (GitIgnore gitIgnore : gitIgnores) {
+            final Boolean ignored = gitIgnore.ignored(path, directory);
+            if (ignored != null) {
+                return ignored;
+            }
+        }
+        return false;
+    }
+
+    private static List<PathMatcher> compile(FileSystem fileSystem, List<String> globs) {
+        final List<PathMatcher> matchers = new ArrayList<>(globs.size());
+        for (String glob : globs) {
+            matchers.add(fileSystem.getPathMatcher("glob:" + glob));
+        }
+        return matchers;
+    }
+
+    private static boolean matches(List<PathMatcher> matchers, Path relative) {
+        for (PathMatcher matcher : matchers) {
+            if (matcher.matches(relative)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String stripSlash(String name) {
+        // Directory names inside zip file systems end with a slash.
+        return name.endsWith("/") ? name.substring(0, name.length() - 1) : name;
+    }
+
+    /**
+     * The rules of one .gitignore file. Supports comments, negation, trailing slash for directories,
+     * anchored patterns and the usual glob wildcards, which covers what build trees use in practice.
+     */
+    private static class GitIgnore {
+        private final Path dir;
+        private final List<Rule> rules;
+
+        private GitIgnore(Path dir, List<Rule> rules) {
+            this.dir = dir;
+            this.rules = rules;
+        }
+
+        static GitIgnore parse(Path dir, List<String> lines) {
+            final FileSystem fileSystem = dir.getFileSystem();
+            final List<Rule> rules = new ArrayList<>();
+            for (String line : lines) {
+                String pattern = line.trim();
+                if (pattern.isEmpty() || pattern.startsWith("#")) {
+                    continue;
+                }
+                final boolean negated = pattern.startsWith("!");
+                if (negated) {
+                    pattern = pattern.substring(1);
+                }
+                final boolean directoryOnly = pattern.endsWith("/");
+                if (directoryOnly) {
+                    pattern = pattern.substring(0, pattern.length() - 1);
+                }
+                final boolean anchored = pattern.contains("/");
+                if (pattern.startsWith("/")) {
+                    pattern = pattern.substring(1);
+                }
+                if (pattern.isEmpty()) {
+                    continue;
+                }
+                final String glob = anchored ? pattern : "{" + pattern + ",**/" + pattern + "}";
+                rules.add(new Rule(fileSystem.getPathMatcher("glob:" + glob), negated, directoryOnly));
+            }
+            return new GitIgnore(dir, rules);
+        }
+
+        /**
+         * @return true if ignored, false if re-included by a negated rule, or null if no rule matches
+         */
+        Boolean ignored(Path path, boolean directory) {
+            if (!path.startsWith(dir)) {
+                return null;
+            }
+            final Path relative = dir.relativize(path);
+            Boolean result = null;
+            for (Rule rule : rules) {
+                if ((directory || !rule.directoryOnly) && rule.matcher.matches(relative)) {
+                    result = !rule.negated;
+                }
+            }
+            return result;
+        }
+    }
+
+    private static class Rule {
+        private final PathMatcher matcher;
+        private final boolean negated;
+        private final boolean directoryOnly;
+
+        private Rule(PathMatcher matcher, boolean negated, boolean directoryOnly) {
+            this.matcher = matcher;
+            this.negated = negated;
+            this.directoryOnly = directoryOnly;
+        }
+    }
+
+    public static class Builder {
+        private final List<String> includes = new ArrayList<>(List.of("**.java"));
+        private final List<String> excludes = new ArrayList<>();
+        private boolean honorGitignore;
+
+        private Builder() {
+        }
+
+        /**
+         * Replaces the include globs. Defaults to every .java file.
+         *
+         * @param includes globs relative to the walked directory
+         * @return this Builder
+         */
+        public Builder includes(List<String> includes) {
+            this.includes.clear();
+            this.includes.addAll(includes);
+            return this;
+        }
+
+        /**
+         * Adds exclude globs. A directory that matches is skipped with everything under it.
+         *
+         * @param excludes globs relative to the walked directory, for example {@code **}{@code /generated}
+         * @return this Builder
+         */
+        public Builder excludes(List<String> excludes) {
+            this.excludes.addAll(excludes);
+            return this;
+        }
+
+        /**
+         * Skips files and directories ignored by .gitignore files found during the walk.
+         *
+         * @param honorGitignore true to honor .gitignore files
+         * @return this Builder
+         */
+        public Builder honorGitignore(boolean honorGitignore) {
+            this.honorGitignore = honorGitignore;
+            return this;
+        }
+
+        public SourceWalker build() {
+            return new SourceWalker(this);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.cloudurable.docgen;
+
+import com.github.javaparser.JavaParser;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClassVisitorTest {
+
+    private static final String SOURCE = "package sample;\n" +
+            "\n" +
+            "import java.util.List;\n" +
+            "import java.util.Map;\n" +
+            "\n" +
+            "/**\n" +
+            " * A sample.\n" +
+            " */\n" +
+            "public class Sample {\n" +
+            "\t// keeps   the original   spacing\n" +
+            "\tprivate int count = 1;\n" +
+            "\n" +
+            "    /** Adds. */\n" +
+            "    public int add(int value) {\n" +
+            "        return count   +   value;\n" +
+            "    }\n" +
+            "\n" +
+            "    static class Inner {\n" +
+            "    }\n" +
+            "}\n";
+
+    @Test
+    void bodiesAreSlicedFromTheOriginalSource() {
+        final List<JavaItem> javaItems = new ClassVisitor().run(new JavaParser(), SOURCE);
+
+        final JavaItem cls = javaItems.get(0);
+        assertEquals("sample.Sample", cls.getName());
+        assertEquals("/**\n * A sample.\n */\n", cls.getJavadoc());
+        assertTrue(cls.getBody().startsWith("public class Sample {\n\t// keeps   the original   spacing\n"));
+        assertTrue(cls.getBody().endsWith("    static class Inner {\n    }\n}"));
+        assertEquals("public class Sample ", cls.getDefinition());
+
+        final JavaItem method = javaItems.stream().filter(item -> item.getType() == JavaItemType.METHOD).findFirst().get();
+        assertEquals("/** Adds. */\n    ", method.getJavadoc());
+        assertEquals("public int add(int value) {\n        return count   +   value;\n    }", method.getBody());
+
+        final JavaItem field = javaItems.stream().filter(item -> item.getType() == JavaItemType.FIELD).findFirst().get();
+        assertEquals("// keeps   the original   spacing\n\tprivate int count = 1;", field.getDefinition());
+    }
+
+    @Test
+    void longBodiesAreTruncated() {
+        final StringBuilder builder = new StringBuilder("package sample;\npublic class Big {\n    void big() {\n");
+        for (int i = 0; i < 600; i++) {
+            builder.append("        System.out.println(").append(i).append(");\n");
+        }
+        builder.append("    }\n}\n");
+
+        final List<JavaItem> javaItems = new ClassVisitor().run(new JavaParser(), builder.toString());
+
+        final JavaItem method = javaItems.get(1);
+        assertEquals(200, method.getBody().lines().count());
+        assertTrue(method.getBody().endsWith("System.out.println(198);\n"));
+    }
+}
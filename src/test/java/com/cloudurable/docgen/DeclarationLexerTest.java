@@ -0,0 +1,114 @@
+package com.cloudurable.docgen;
+
+import com.github.javaparser.JavaParser;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeclarationLexerTest {
+
+    private static final String SOURCE = "package sample;\n" +
+            "\n" +
+            "@Config({\"a\", \"b\"})\n" +
+            "public class Sample implements Runnable {\n" +
+            "    private static final String BRACES = \"{ } }\";\n" +
+            "    private final int[] values = {1, 2, 3};\n" +
+            "    private final Runnable task = () -> { System.out.println('}'); };\n" +
+            "\n" +
+            "    static {\n" +
+            "        System.out.println(\"static init\");\n" +
+            "    }\n" +
+            "\n" +
+            "    /** Runs. */\n" +
+            "    @Override\n" +
+            "    public void run() throws IllegalStateException {\n" +
+            "        // a comment with a }\n" +
+            "        if (values.length > 0) {\n" +
+            "            System.out.println(\"text } block\");\n" +
+            "        }\n" +
+            "    }\n" +
+            "\n" +
+            "    interface Callback {\n" +
+            "        default void call(String name) {\n" +
+            "            System.out.println(name);\n" +
+            "        }\n" +
+            "    }\n" +
+            "\n" +
+            "    enum Color { RED, GREEN { void x() { } }; int code() { return 1; } }\n" +
+            "}\n";
+
+    @Test
+    void typeKeywordsCountOnlyInDeclarationPosition() {
+        final String source = "class Sample {\n" +
+                "    Object record() {\n" +
+                "        return \"record body\";\n" +
+                "    }\n" +
+                "    public static final class Inner {\n" +
+                "        int x() { return 2; }\n" +
+                "    }\n" +
+                "    @Deprecated record Point(int x) {\n" +
+                "        void y() { System.out.println(\"point body\"); }\n" +
+                "    }\n" +
+                "    @java.lang.annotation.Documented @interface Marker {\n" +
+                "        String value() default \"v\";\n" +
+                "    }\n" +
+                "}\n";
+
+        final String stripped = DeclarationLexer.stripBodies(source);
+
+        assertFalse(stripped.contains("record body"));
+        assertFalse(stripped.contains("return 2;"));
+        assertFalse(stripped.contains("point body"));
+        assertTrue(stripped.contains("int x() {"));
+        assertTrue(stripped.contains("void y() {"));
+        assertTrue(stripped.contains("String value() default \"v\";"));
+    }
+
+    @Test
+    void bodiesAreBlankedAndLayoutIsKept() {
+        final String stripped = DeclarationLexer.stripBodies(SOURCE);
+
+        assertEquals(SOURCE.length(), stripped.length());
+        assertEquals(SOURCE.lines().count(), stripped.lines().count());
+        assertFalse(stripped.contains("static init"));
+        assertFalse(stripped.contains("text } block"));
+        assertFalse(stripped.contains("System.out.println(name)"));
+        assertFalse(stripped.contains("return 1;"));
+        assertTrue(stripped.contains("private final int[] values = {1, 2, 3};"));
+        assertTrue(stripped.contains("() -> { System.out.println('}'); };"));
+        assertTrue(stripped.contains("public void run() throws IllegalStateException {"));
+        assertTrue(stripped.contains("interface Callback {"));
+    }
+
+    @Test
+    void textBlocksAreSkipped() {
+        final String source = "class A {\n    String a() {\n        return \"\"\"\n            } {\n            \"\"\";\n    }\n    int b;\n}\n";
+
+        final String stripped = DeclarationLexer.stripBodies(source);
+
+        assertFalse(stripped.contains("return"));
+        assertTrue(stripped.contains("    int b;\n}"));
+    }
+
+    @Test
+    void declarationsModeMatchesFullModeWithoutBodies() {
+        final List<JavaItem> full = new ClassVisitor(ScanMode.FULL).run(new JavaParser(), SOURCE);
+        final List<JavaItem> declarations = new ClassVisitor(ScanMode.DECLARATIONS).run(new JavaParser(), SOURCE);
+
+        assertEquals(names(full), names(declarations));
+        for (int i = 0; i < full.size(); i++) {
+            assertEquals(full.get(i).getDefinition().trim(), declarations.get(i).getDefinition().trim());
+            assertEquals(full.get(i).getJavadoc(), declarations.get(i).getJavadoc());
+            assertEquals("", declarations.get(i).getBody());
+        }
+    }
+
+    private static List<String> names(List<JavaItem> javaItems) {
+        return javaItems.stream().map(item -> item.getType() + " " + item.getName()).collect(Collectors.toList());
+    }
+}
@@ -1,7 +1,14 @@
 package com.cloudurable.docgen;
 
+import com.cloudurable.docgen.index.JavaItemIndex;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
 class Java2CSVTest {
 
     @Test
@@ -38,4 +45,22 @@ class Java2CSVTest {
                 "For NOte \n");
         System.out.println(str);
     }
+
+    @Test
+    void overloadsGetDistinctDiagramFileNames() {
+        final JavaItem foo = JavaItem.builder().type(JavaItemType.CLASS).name("a.Foo").simpleName("Foo").build();
+        final JavaItem run = JavaItem.builder().type(JavaItemType.METHOD).name("a.Foo.run").simpleName("run")
+                .definition("void run()").parent(foo).build();
+        final JavaItem runWithCount = JavaItem.builder().type(JavaItemType.METHOD).name("a.Foo.run").simpleName("run")
+                .definition("void run(int count)").parent(foo).build();
+        final JavaItem stop = JavaItem.builder().type(JavaItemType.METHOD).name("a.Foo.stop").simpleName("stop")
+                .definition("void stop()").parent(foo).build();
+        final JavaItemIndex index = new JavaItemIndex(List.of(foo, run, runWithCount, stop));
+
+        final String runName = DocGenerator.diagramFileName(index, run);
+        assertNotEquals(runName, DocGenerator.diagramFileName(index, runWithCount));
+        assertTrue(runName.startsWith("a_Foo_run_"));
+        assertEquals(runName, DocGenerator.diagramFileName(new JavaItemIndex(List.of(foo, runWithCount, run)), run));
+        assertEquals("a_Foo_stop", DocGenerator.diagramFileName(index, stop));
+    }
 }
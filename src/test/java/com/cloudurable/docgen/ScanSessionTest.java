@@ -0,0 +1,111 @@
+package com.cloudurable.docgen;
+
+import com.cloudurable.docgen.index.JavaItemIndex;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScanSessionTest {
+
+    @Test
+    void concurrentGeneratorsShareOneScan() throws Exception {
+        final AtomicInteger scans = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1);
+        final ScanSession session = new ScanSession(() -> {
+            scans.incrementAndGet();
+            started.await();
+            return List.of(JavaItem.builder().type(JavaItemType.CLASS).name("a.Foo").simpleName("Foo").build());
+        });
+
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+        final List<Future<JavaItemIndex>> futures = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            futures.add(executor.submit(session::index));
+        }
+        started.countDown();
+        final JavaItemIndex first = futures.get(0).get();
+        for (Future<JavaItemIndex> future : futures) {
+            assertSame(first, future.get());
+        }
+        executor.shutdown();
+
+        assertEquals(1, scans.get());
+        assertEquals(1, first.size());
+        assertTrue(session.isDone());
+    }
+
+    @Test
+    void itemsAreSharedWithoutBuildingTheIndex() throws Exception {
+        final AtomicInteger scans = new AtomicInteger();
+        final List<JavaItem> scanned = List.of(JavaItem.builder().type(JavaItemType.CLASS).name("a.Foo").simpleName("Foo").build());
+        final ScanSession session = new ScanSession(() -> {
+            scans.incrementAndGet();
+            return scanned;
+        });
+
+        assertSame(scanned, session.items());
+        assertEquals(1, session.index().size());
+        assertSame(scanned.get(0), session.index().all().get(0));
+        assertEquals(1, scans.get());
+    }
+
+    @Test
+    void scanFailureIsRethrown() {
+        final ScanSession session = new ScanSession(() -> {
+            throw new IOException("boom");
+        });
+
+        assertThrows(IOException.class, session::index);
+        assertThrows(IOException.class, session::index);
+        assertThrows(IOException.class, session::items);
+    }
+
+    @Test
+    void runExportsTheSessionScan() throws Exception {
+        final AtomicInteger scans = new AtomicInteger();
+        final ScanSession session = new ScanSession(() -> {
+            scans.incrementAndGet();
+            return List.of(JavaItem.builder().type(JavaItemType.CLASS).name("a.Foo").simpleName("Foo").build());
+        });
+        final Path dir = Files.createTempDirectory("session");
+        final Path csv = dir.resolve("out.csv");
+
+        final DocGenerator generator = DocGenerator.builder().inputDirectoryPath(dir.toString())
+                .outputFile(csv.toString()).scanSession(session).build();
+        generator.run();
+        generator.run();
+
+        assertEquals(1, scans.get());
+        assertTrue(Files.readString(csv).contains("a.Foo"));
+    }
+
+    @Test
+    void snapshotIsRebuiltWhenAFileIsDeleted() throws Exception {
+        final Path dir = Files.createTempDirectory("sources");
+        Files.writeString(dir.resolve("A.java"), "package a;\n\npublic class A {\n}\n");
+        Files.writeString(dir.resolve("B.java"), "package a;\n\npublic class B {\n}\n");
+        final DocGenerator generator = DocGenerator.builder().inputDirectoryPath(dir.toString())
+                .snapshotFile(Files.createTempDirectory("snapshot").resolve("scan.snapshot").toString()).build();
+
+        assertEquals(2, generator.scanDirectory(dir.toFile()).size());
+        Files.delete(dir.resolve("B.java"));
+
+        assertEquals(List.of("a.A"), generator.scanDirectory(dir.toFile()).stream().map(JavaItem::getName)
+                .collect(Collectors.toList()));
+    }
+}
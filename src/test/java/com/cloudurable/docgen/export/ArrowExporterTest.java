@@ -0,0 +1,107 @@
+package com.cloudurable.docgen.export;
+
+import com.cloudurable.docgen.JavaItem;
+import com.cloudurable.docgen.JavaItemType;
+import org.apache.arrow.compression.CommonsCompressionFactory;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.compression.CompressionUtil;
+import org.apache.arrow.vector.dictionary.Dictionary;
+import org.apache.arrow.vector.ipc.ArrowFileReader;
+import org.apache.arrow.vector.ipc.ReadChannel;
+import org.apache.arrow.vector.ipc.message.ArrowBlock;
+import org.apache.arrow.vector.ipc.message.ArrowRecordBatch;
+import org.apache.arrow.vector.ipc.message.MessageSerializer;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class ArrowExporterTest {
+
+    private final JavaItem foo = JavaItem.builder().type(JavaItemType.CLASS).name("a.Foo").simpleName("Foo").build();
+    private final JavaItem bar = JavaItem.builder().type(JavaItemType.CLASS).name("a.Bar").simpleName("Bar").build();
+    private final JavaItem inner = JavaItem.builder().type(JavaItemType.CLASS).parent(foo).name("a.Foo.Inner").simpleName("Inner").build();
+    private final JavaItem run = JavaItem.builder().type(JavaItemType.METHOD).parent(foo).name("a.Foo.run").simpleName("run").build();
+    private final JavaItem stop = JavaItem.builder().type(JavaItemType.METHOD).parent(bar).name("a.Bar.stop").simpleName("stop").build();
+
+    @Test
+    void parentDictionaryHoldsEachParentOnce() {
+        final Map<String, Integer> parentIds = ArrowExporter.parentIds(List.of(foo, inner, run, bar, stop));
+
+        assertEquals(List.of("", "a.Foo", "a.Bar"), new ArrayList<>(parentIds.keySet()));
+        assertEquals(List.of(0, 1, 2), new ArrayList<>(parentIds.values()));
+    }
+
+    @Test
+    void fileReadsBackWithDictionaryEncodedColumnsInCompressedBatches() throws IOException {
+        final Path file = Files.createTempDirectory("arrow").resolve("items.arrow");
+        final long rows = ArrowExporter.builder()
+                .columns(List.of(CsvColumn.NAME, CsvColumn.TYPE, CsvColumn.PARENT))
+                .batchSize(2)
+                .build()
+                .export(List.of(foo, inner, run, bar, stop), file);
+        assertEquals(5L, rows);
+
+        final List<Integer> batchSizes = new ArrayList<>();
+        final List<String> names = new ArrayList<>();
+        final List<String> types = new ArrayList<>();
+        final List<String> parents = new ArrayList<>();
+        try (BufferAllocator allocator = new RootAllocator();
+             FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+             ArrowFileReader reader = new ArrowFileReader(channel, allocator, CommonsCompressionFactory.INSTANCE)) {
+            final VectorSchemaRoot root = reader.getVectorSchemaRoot();
+            final Field typeField = root.getSchema().findField("Type");
+            final Field parentField = root.getSchema().findField("Parent");
+            assertNotNull(typeField.getDictionary());
+            assertNotNull(parentField.getDictionary());
+            assertEquals(new ArrowType.Int(32, true), typeField.getDictionary().getIndexType());
+            assertEquals(new ArrowType.Int(32, true), parentField.getDictionary().getIndexType());
+
+            final Map<Long, Dictionary> dictionaries = reader.getDictionaryVectors();
+            final VarCharVector typeValues = (VarCharVector) dictionaries.get(typeField.getDictionary().getId()).getVector();
+            final VarCharVector parentValues = (VarCharVector) dictionaries.get(parentField.getDictionary().getId()).getVector();
+            assertEquals(3, parentValues.getValueCount());
+
+            for (ArrowBlock block : reader.getRecordBlocks()) {
+                reader.loadRecordBatch(block);
+                final VarCharVector nameVector = (VarCharVector) root.getVector("Name");
+                final IntVector typeIndexes = (IntVector) root.getVector("Type");
+                final IntVector parentIndexes = (IntVector) root.getVector("Parent");
+                batchSizes.add(root.getRowCount());
+                for (int row = 0; row < root.getRowCount(); row++) {
+                    names.add(nameVector.getObject(row).toString());
+                    types.add(typeValues.getObject(typeIndexes.get(row)).toString());
+                    parents.add(parentValues.getObject(parentIndexes.get(row)).toString());
+                }
+            }
+
+            final ArrowBlock first = reader.getRecordBlocks().get(0);
+            try (FileChannel raw = FileChannel.open(file, StandardOpenOption.READ)) {
+                raw.position(first.getOffset());
+                try (ArrowRecordBatch batch = MessageSerializer.deserializeRecordBatch(new ReadChannel(raw), first, allocator)) {
+                    assertEquals((int) CompressionUtil.CodecType.ZSTD.getType(), (int) batch.getBodyCompression().getCodec());
+                }
+            }
+        }
+
+        assertEquals(List.of(2, 2, 1), batchSizes);
+        assertEquals(List.of("Foo", "Inner", "run", "Bar", "stop"), names);
+        assertEquals(List.of("class", "class", "method", "class", "method"), types);
+        assertEquals(List.of("", "a.Foo", "a.Foo", "", "a.Bar"), parents);
+    }
+}
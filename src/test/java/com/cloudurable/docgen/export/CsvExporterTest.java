@@ -0,0 +1,87 @@
+package com.cloudurable.docgen.export;
+
+import com.cloudurable.docgen.JavaItem;
+import com.cloudurable.docgen.JavaItemType;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+
+class CsvExporterTest {
+
+    private static final JavaItem FOO = JavaItem.builder().type(JavaItemType.CLASS).name("a.Foo").simpleName("Foo")
+            .definition("public class Foo").body("String s = \"x\";").build();
+
+    @Test
+    void writesQuotedRowsForAllColumns() throws Exception {
+        final Path file = Files.createTempDirectory("csv").resolve("out.csv");
+
+        final long rows = CsvExporter.builder().build().export(List.of(FOO), file);
+
+        assertEquals(1, rows);
+        assertEquals("\"Name\",\"Type\",\"FullName\",\"Definition\",\"JavaDoc\",\"Parent\",\"Imports\",\"Body\"\n" +
+                        "\"Foo\",\"class\",\"a.Foo\",\"public class Foo\",\"\",\"\",\"\",\"String s = \"\"x\"\";\"\n",
+                Files.readString(file));
+    }
+
+    @Test
+    void unselectedColumnsAreNeverRead() throws Exception {
+        final JavaItem item = new JavaItem() {
+            @Override
+            public String getName() {
+                return "a.Bar";
+            }
+
+            @Override
+            public String getSimpleName() {
+                return "Bar";
+            }
+
+            @Override
+            public JavaItemType getType() {
+                return JavaItemType.INTERFACE;
+            }
+
+            @Override
+            public String getDefinition() {
+                return "interface Bar";
+            }
+
+            @Override
+            public String getBody() {
+                fail("body read");
+                return "";
+            }
+
+            @Override
+            public String getImportBody() {
+                fail("imports read");
+                return "";
+            }
+        };
+        final Path file = Files.createTempDirectory("csv").resolve("inventory.csv");
+
+        CsvExporter.builder().columns(CsvColumn.INVENTORY).build().export(List.of(item), file);
+
+        assertEquals("\"Name\",\"Type\",\"FullName\",\"Definition\"\n\"Bar\",\"interface\",\"a.Bar\",\"interface Bar\"\n",
+                Files.readString(file));
+    }
+
+    @Test
+    void gzipOutput() throws Exception {
+        final Path file = Files.createTempDirectory("csv").resolve("out.csv.gz");
+
+        CsvExporter.builder().columns(List.of(CsvColumn.FULL_NAME)).gzip(true).build().export(List.of(FOO, FOO), file);
+
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+            assertEquals("\"FullName\"\n\"a.Foo\"\n\"a.Foo\"\n", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+}
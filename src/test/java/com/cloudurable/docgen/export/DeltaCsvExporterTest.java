@@ -0,0 +1,103 @@
+package com.cloudurable.docgen.export;
+
+import com.cloudurable.docgen.JavaItem;
+import com.cloudurable.docgen.JavaItemType;
+import com.cloudurable.docgen.index.JavaItemSnapshot;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DeltaCsvExporterTest {
+
+    private static final CsvExporter EXPORTER = CsvExporter.builder()
+            .columns(List.of(CsvColumn.FULL_NAME, CsvColumn.DEFINITION, CsvColumn.BODY)).build();
+
+    private static JavaItem cls(String name, String body) {
+        return JavaItem.builder().type(JavaItemType.CLASS).name(name).simpleName(name.substring(name.lastIndexOf('.') + 1))
+                .definition("class " + name).body(body).build();
+    }
+
+    private static JavaItem method(JavaItem parent, String definition, String body) {
+        return JavaItem.builder().type(JavaItemType.METHOD).parent(parent).name(parent.getName() + ".run")
+                .simpleName("run").definition(definition).body(body).build();
+    }
+
+    @Test
+    void firstRunAddsEverything() throws Exception {
+        final Path dir = Files.createTempDirectory("delta");
+        final DeltaCsvExporter exporter = new DeltaCsvExporter(EXPORTER);
+
+        final DeltaCsvExporter.Delta delta = exporter.export(List.of(cls("a.Foo", "")),
+                exporter.loadPrevious(dir.resolve("missing.hashidx")), dir.resolve("delta.csv"), dir.resolve("out.hashidx"));
+
+        assertEquals(1, delta.getAdded());
+        assertEquals("\"Op\",\"FullName\",\"Definition\",\"Body\"\n" +
+                "\"add\",\"a.Foo\",\"class a.Foo\",\"\"\n", Files.readString(dir.resolve("delta.csv")));
+        assertEquals(1, ItemHashIndex.read(dir.resolve("out.hashidx")).size());
+    }
+
+    @Test
+    void emitsAddedChangedAndRemovedRows() throws Exception {
+        final Path dir = Files.createTempDirectory("delta");
+        final DeltaCsvExporter exporter = new DeltaCsvExporter(EXPORTER);
+        final JavaItem foo = cls("a.Foo", "");
+        final JavaItem bar = cls("a.Bar", "");
+        exporter.export(List.of(foo, method(foo, "void run()", "{}"), method(foo, "void run(int n)", "{}"), bar),
+                ItemHashIndex.empty(), dir.resolve("first.csv"), dir.resolve("hashes"));
+
+        final JavaItem baz = cls("a.Baz", "");
+        final DeltaCsvExporter.Delta delta = exporter.export(
+                List.of(foo, method(foo, "void run()", "{ work(); }"), method(foo, "void run(int n)", "{}"), baz),
+                exporter.loadPrevious(dir.resolve("hashes")), dir.resolve("second.csv"), dir.resolve("hashes"));
+
+        assertEquals(1, delta.getAdded());
+        assertEquals(1, delta.getChanged());
+        assertEquals(1, delta.getRemoved());
+        assertEquals("\"Op\",\"FullName\",\"Definition\",\"Body\"\n" +
+                        "\"change\",\"a.Foo.run\",\"void run()\",\"{ work(); }\"\n" +
+                        "\"add\",\"a.Baz\",\"class a.Baz\",\"\"\n" +
+                        "\"remove\",\"a.Bar\",\"class a.Bar\",\"\"\n",
+                Files.readString(dir.resolve("second.csv")));
+    }
+
+    @Test
+    void sameNamedTypesKeepTheirKeysWhenOneIsRemoved() throws Exception {
+        final Path dir = Files.createTempDirectory("delta");
+        final DeltaCsvExporter exporter = new DeltaCsvExporter(EXPORTER);
+        final JavaItem fooMain = cls("a.Foo", "");
+        final JavaItem fooTest = JavaItem.builder().type(JavaItemType.CLASS).name("a.Foo").simpleName("Foo")
+                .definition("public class a.Foo extends Base").body("").build();
+        exporter.export(List.of(fooMain, fooTest), ItemHashIndex.empty(), dir.resolve("first.csv"), dir.resolve("hashes"));
+
+        final DeltaCsvExporter.Delta reordered = exporter.export(List.of(fooTest, fooMain),
+                exporter.loadPrevious(dir.resolve("hashes")), dir.resolve("second.csv"), dir.resolve("hashes"));
+        final DeltaCsvExporter.Delta delta = exporter.export(List.of(fooTest),
+                exporter.loadPrevious(dir.resolve("hashes")), dir.resolve("third.csv"), null);
+
+        assertEquals(0, reordered.getAdded() + reordered.getChanged() + reordered.getRemoved());
+        assertEquals(0, delta.getAdded());
+        assertEquals(0, delta.getChanged());
+        assertEquals(1, delta.getRemoved());
+        assertEquals("\"Op\",\"FullName\",\"Definition\",\"Body\"\n" +
+                "\"remove\",\"a.Foo\",\"class a.Foo\",\"\"\n", Files.readString(dir.resolve("third.csv")));
+    }
+
+    @Test
+    void previousRunCanBeASnapshot() throws Exception {
+        final Path dir = Files.createTempDirectory("delta");
+        final JavaItem foo = cls("a.Foo", "");
+        JavaItemSnapshot.write(List.of(foo), "FULL", dir.resolve("scan.snapshot"));
+        final DeltaCsvExporter exporter = new DeltaCsvExporter(EXPORTER);
+
+        final DeltaCsvExporter.Delta delta = exporter.export(List.of(foo, cls("a.Bar", "")),
+                exporter.loadPrevious(dir.resolve("scan.snapshot")), dir.resolve("delta.csv"), null);
+
+        assertEquals(1, delta.getAdded());
+        assertEquals(0, delta.getChanged());
+        assertEquals(0, delta.getRemoved());
+    }
+}
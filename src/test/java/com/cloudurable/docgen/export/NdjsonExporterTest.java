@@ -0,0 +1,34 @@
+package com.cloudurable.docgen.export;
+
+import com.cloudurable.docgen.JavaItem;
+import com.cloudurable.docgen.JavaItemType;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NdjsonExporterTest {
+
+    @Test
+    void writesOneObjectPerLine() throws Exception {
+        final Path file = Files.createTempDirectory("ndjson").resolve("items.ndjson");
+        final JavaItem foo = JavaItem.builder().type(JavaItemType.CLASS).name("a.Foo").simpleName("Foo")
+                .definition("public class Foo").body("line one\nline two").build();
+        final JavaItem bar = JavaItem.builder().type(JavaItemType.METHOD).parent(foo).name("a.Foo.bar").simpleName("bar")
+                .definition("void bar()").build();
+
+        final long rows = NdjsonExporter.builder().columns(List.of(CsvColumn.FULL_NAME, CsvColumn.PARENT, CsvColumn.BODY))
+                .build().export(List.of(foo, bar), file);
+
+        final List<String> lines = Files.readAllLines(file);
+        assertEquals(2, rows);
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0).startsWith("{") && lines.get(0).endsWith("}"));
+        assertTrue(lines.get(0).contains("\"a.Foo\""));
+        assertTrue(lines.get(1).contains("\"a.Foo.bar\""));
+    }
+}
@@ -0,0 +1,79 @@
+package com.cloudurable.docgen.export;
+
+import com.cloudurable.docgen.JavaItem;
+import com.cloudurable.docgen.JavaItemType;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShardedCsvExporterTest {
+
+    private static List<JavaItem> items(String... classNames) {
+        final List<JavaItem> javaItems = new ArrayList<>();
+        for (String className : classNames) {
+            final JavaItem cls = JavaItem.builder().type(JavaItemType.CLASS).name(className)
+                    .simpleName(className.substring(className.lastIndexOf('.') + 1)).build();
+            javaItems.add(cls);
+            javaItems.add(JavaItem.builder().type(JavaItemType.METHOD).name(className + ".run").simpleName("run")
+                    .parent(cls).build());
+        }
+        return javaItems;
+    }
+
+    @Test
+    void shardsByPackageWithManifest() throws Exception {
+        final Path dir = Files.createTempDirectory("shards");
+        final ShardedCsvExporter exporter = ShardedCsvExporter.builder().threads(2)
+                .csvExporter(CsvExporter.builder().columns(CsvColumn.INVENTORY).build()).build();
+
+        final List<ShardedCsvExporter.Shard> shards = exporter.export(items("a.Foo", "b.Bar", "a.Baz", "Plain"), dir);
+
+        assertEquals(List.of("a.csv", "b.csv", "default.csv"),
+                shards.stream().map(ShardedCsvExporter.Shard::getFile).collect(Collectors.toList()));
+        assertEquals(4, shards.get(0).getRows());
+        assertEquals(3, Files.readAllLines(dir.resolve("b.csv")).size());
+        assertEquals(64, shards.get(0).getSha256().length());
+
+        final List<ShardedCsvExporter.Shard> manifest = ShardedCsvExporter.readManifest(dir);
+        assertEquals(shards.toString(), manifest.toString());
+    }
+
+    @Test
+    void reexportingOneShardUpdatesItsManifestLine() throws Exception {
+        final Path dir = Files.createTempDirectory("shards");
+        final ShardedCsvExporter exporter = ShardedCsvExporter.builder().build();
+        final List<ShardedCsvExporter.Shard> before = exporter.export(items("a.Foo", "b.Bar"), dir);
+
+        final ShardedCsvExporter.Shard after = exporter.exportShard(items("a.Foo", "a.New", "b.Ignored"), "a", dir);
+
+        final List<ShardedCsvExporter.Shard> manifest = ShardedCsvExporter.readManifest(dir);
+        assertEquals(2, manifest.size());
+        assertEquals(after.toString(), manifest.get(0).toString());
+        assertEquals(4, after.getRows());
+        assertNotEquals(before.get(0).getSha256(), after.getSha256());
+        assertEquals(before.get(1).toString(), manifest.get(1).toString());
+    }
+
+    @Test
+    void hashShardsKeepMembersWithTheirClass() throws Exception {
+        final Path dir = Files.createTempDirectory("shards");
+        final ShardedCsvExporter exporter = ShardedCsvExporter.builder().hashShards(3).build();
+        final List<JavaItem> javaItems = items("a.A", "a.B", "b.C", "c.D", "c.E");
+
+        final List<ShardedCsvExporter.Shard> shards = exporter.export(javaItems, dir);
+
+        assertEquals(10, shards.stream().mapToLong(ShardedCsvExporter.Shard::getRows).sum());
+        for (ShardedCsvExporter.Shard shard : shards) {
+            assertTrue(shard.getFile().matches("shard-000[0-2]\\.csv"));
+            assertEquals(0, shard.getRows() % 2);
+        }
+    }
+}
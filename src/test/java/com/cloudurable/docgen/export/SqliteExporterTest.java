@@ -0,0 +1,73 @@
+package com.cloudurable.docgen.export;
+
+import com.cloudurable.docgen.JavaItem;
+import com.cloudurable.docgen.JavaItemType;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SqliteExporterTest {
+
+    @Test
+    void itemsAreQueryableByParentAndFullText() throws Exception {
+        final Path database = Files.createTempDirectory("sqlite").resolve("items.db");
+        final JavaItem foo = JavaItem.builder().type(JavaItemType.CLASS).name("a.Foo").simpleName("Foo")
+                .definition("public class Foo").build();
+        final List<JavaItem> javaItems = new ArrayList<>(List.of(foo));
+        for (int i = 0; i < 25; i++) {
+            javaItems.add(JavaItem.builder().type(JavaItemType.METHOD).parent(foo).name("a.Foo.m" + i).simpleName("m" + i)
+                    .definition("void m" + i + "()").body(i == 7 ? "{ cache.evict(); }" : "{ }").build());
+        }
+
+        final long rows = SqliteExporter.builder().batchSize(4).transactionSize(10).build().export(javaItems, database);
+
+        assertEquals(26, rows);
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + database);
+             Statement statement = connection.createStatement()) {
+            try (ResultSet resultSet = statement.executeQuery("SELECT count(*) FROM items WHERE Parent = 'a.Foo'")) {
+                resultSet.next();
+                assertEquals(25, resultSet.getInt(1));
+            }
+            try (ResultSet resultSet = statement.executeQuery(
+                    "SELECT items.FullName FROM items_fts JOIN items ON items.id = items_fts.rowid WHERE items_fts MATCH 'evict'")) {
+                resultSet.next();
+                assertEquals("a.Foo.m7", resultSet.getString(1));
+            }
+        }
+    }
+
+    @Test
+    void failedLoadLeavesNoDatabase() throws Exception {
+        final Path database = Files.createTempDirectory("sqlite").resolve("items.db");
+        final JavaItem broken = new JavaItem() {
+            @Override
+            public JavaItemType getType() {
+                return JavaItemType.CLASS;
+            }
+
+            @Override
+            public String getName() {
+                return null;
+            }
+        };
+
+        final SqliteItemWriter writer = SqliteExporter.builder().batchSize(1).build().open(database);
+        writer.write(JavaItem.builder().type(JavaItemType.CLASS).name("a.Foo").simpleName("Foo").build());
+        assertThrows(IOException.class, () -> writer.write(broken));
+        writer.close();
+
+        assertFalse(Files.exists(database));
+    }
+}
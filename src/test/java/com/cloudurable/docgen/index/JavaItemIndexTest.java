@@ -0,0 +1,111 @@
+package com.cloudurable.docgen.index;
+
+import com.cloudurable.docgen.JavaItem;
+import com.cloudurable.docgen.JavaItemType;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JavaItemIndexTest {
+
+    private static JavaItem item(JavaItemType type, String name, JavaItem parent) {
+        return JavaItem.builder().type(type).name(name).simpleName(name.substring(name.lastIndexOf('.') + 1))
+                .parent(parent).build();
+    }
+
+    private static List<String> names(List<JavaItem> javaItems) {
+        return javaItems.stream().map(JavaItem::getName).collect(Collectors.toList());
+    }
+
+    @Test
+    void groupsItemsByParentPackageTypeAndName() {
+        final JavaItem foo = item(JavaItemType.CLASS, "a.b.Foo", null);
+        final JavaItem run = item(JavaItemType.METHOD, "a.b.Foo.run", foo);
+        final JavaItem count = item(JavaItemType.FIELD, "a.b.Foo.count", foo);
+        final JavaItem runOverload = item(JavaItemType.METHOD, "a.b.Foo.run", foo);
+        final JavaItem inner = item(JavaItemType.CLASS, "a.b.Foo.Inner", foo);
+        final JavaItem bar = item(JavaItemType.INTERFACE, "a.Bar", null);
+        final JavaItem noPackage = item(JavaItemType.ENUM, "Plain", null);
+
+        final JavaItemIndex index = new JavaItemIndex(List.of(foo, run, count, runOverload, inner, bar, noPackage));
+
+        assertEquals(List.of("a.b", "a", ""), List.copyOf(index.packages()));
+        assertEquals(List.of(foo), index.topLevel("a.b"));
+        assertEquals(List.of(run, count, runOverload, inner), index.children(foo));
+        assertEquals(List.of(run, runOverload), index.children(foo, JavaItemType.METHOD));
+        assertEquals(List.of(count), index.children(foo, JavaItemType.FIELD));
+        assertEquals(List.of("a.b.Foo", "a.b.Foo.Inner"), names(index.byType(JavaItemType.CLASS)));
+        assertEquals(List.of(run, runOverload), index.byName("a.b.Foo.run"));
+        assertTrue(index.children(bar).isEmpty());
+        assertTrue(index.topLevel("missing").isEmpty());
+        assertEquals(7, index.size());
+    }
+
+    private static JavaItem method(String name, String definition, int bodyLines, JavaItem parent) {
+        return JavaItem.builder().type(JavaItemType.METHOD).name(parent.getName() + "." + name).simpleName(name)
+                .definition(definition).body("x\n".repeat(bodyLines)).parent(parent).build();
+    }
+
+    @Test
+    void queriesNarrowCandidatesWithPredicateBits() {
+        final JavaItem service = item(JavaItemType.CLASS, "a.Service", null);
+        final JavaItem process = method("process", "public void process()", 8, service);
+        final JavaItem getName = method("getName", "public String getName()", 8, service);
+        final JavaItem getInstance = method("getInstance", "public static Service getInstance()", 8, service);
+        final JavaItem setName = method("setName", "public void setName(String name)", 8, service);
+        final JavaItem equals = method("equals", "public boolean equals(Object o)", 8, service);
+        final JavaItem small = method("small", "void small()", 5, service);
+        final JavaItem serviceTest = item(JavaItemType.CLASS, "a.ServiceTest", null);
+        final JavaItem testHelper = item(JavaItemType.CLASS, "a.TestHelper", null);
+        final JavaItem api = item(JavaItemType.INTERFACE, "a.Api", null);
+
+        final JavaItemIndex index = new JavaItemIndex(List.of(service, process, getName, getInstance, setName, equals,
+                small, serviceTest, testHelper, api));
+
+        assertEquals(List.of(process, getInstance), index.queryChildren(service).type(JavaItemType.METHOD)
+                .without(ItemPredicates.ACCESSOR).without(ItemPredicates.OBJECT_METHOD)
+                .without(ItemPredicates.TRIVIAL_BODY).list());
+        assertEquals(List.of(service), index.queryPackage("a").type(JavaItemType.CLASS)
+                .without(ItemPredicates.TEST_SUPPORT_TYPE).list());
+        assertEquals(List.of(service, testHelper, api), index.queryPackage("a")
+                .type(JavaItemType.CLASS, JavaItemType.INTERFACE).without(ItemPredicates.TEST_TYPE).list());
+        assertEquals(3, index.query().with(ItemPredicates.TOP_LEVEL_CLASS).count());
+
+        index.register("isPublic", javaItem -> javaItem.getDefinition().startsWith("public"));
+        assertEquals(5, index.queryChildren(service).with("isPublic").count());
+        assertEquals(index.idOf(small), index.queryChildren(service).without("isPublic").ids()[0]);
+        assertThrows(IllegalArgumentException.class, () -> index.query().with("missing"));
+    }
+
+    @Test
+    void indexesColumnsByRowId() {
+        final JavaItem foo = item(JavaItemType.CLASS, "a.b.Foo", null);
+        final JavaItem run = item(JavaItemType.METHOD, "a.b.Foo.run", foo);
+        final JavaItem bar = item(JavaItemType.INTERFACE, "a.Bar", null);
+        final JavaItemStore store = new JavaItemStore();
+        store.addAll(List.of(foo, run, bar));
+
+        final JavaItemIndex index = new JavaItemIndex(store.items());
+        store.addAll(List.of(item(JavaItemType.CLASS, "a.Late", null)));
+
+        assertEquals(3, index.size());
+        assertEquals(List.of("a.b", "a"), List.copyOf(index.packages()));
+        assertEquals(List.of("a.b.Foo.run"), names(index.children(store.get(0))));
+        assertEquals(List.of("a.Bar"), names(index.byType(JavaItemType.INTERFACE)));
+        assertEquals(2, index.idOf(store.get(2)));
+        assertEquals(-1, index.idOf(bar));
+        assertEquals(1, index.query().with(ItemPredicates.TOP_LEVEL_CLASS).count());
+    }
+
+    @Test
+    void lineCountMatchesStringLines() {
+        for (String text : List.of("", "a", "a\n", "a\nb", "a\r\nb\r\n", "\n\n", "a\rb")) {
+            assertEquals(text.lines().count(), ItemPredicates.lineCount(text), text);
+        }
+    }
+}
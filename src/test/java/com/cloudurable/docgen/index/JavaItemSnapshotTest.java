@@ -0,0 +1,89 @@
+package com.cloudurable.docgen.index;
+
+import com.cloudurable.docgen.JavaItem;
+import com.cloudurable.docgen.JavaItemType;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JavaItemSnapshotTest {
+
+    private static List<String> rows(List<JavaItem> javaItems) {
+        return javaItems.stream().map(item -> String.join("|", item.row())).collect(Collectors.toList());
+    }
+
+    private static List<JavaItem> sampleItems() {
+        final List<JavaItem> javaItems = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            final JavaItem cls = JavaItem.builder().type(JavaItemType.CLASS).name("a.Foo" + i).simpleName("Foo" + i)
+                    .definition("public class Foo" + i).javadoc("/** Foo \u00e9. */").importBody("import java.util.List;")
+                    .body("public class Foo" + i + " {}").build();
+            javaItems.add(cls);
+            javaItems.add(JavaItem.builder().type(JavaItemType.METHOD).name("a.Foo" + i + ".run").simpleName("run")
+                    .definition("void run()").importBody("import java.util.List;").body("void run() {\n}")
+                    .parent(cls).build());
+        }
+        return javaItems;
+    }
+
+    @Test
+    void roundTripsItemsAndParentLinks() throws Exception {
+        final Path file = Files.createTempDirectory("snapshot").resolve("scan.snapshot");
+        final List<JavaItem> javaItems = sampleItems();
+
+        JavaItemSnapshot.write(javaItems, "FULL", file);
+        final JavaItemSnapshot snapshot = JavaItemSnapshot.open(file);
+
+        assertEquals("FULL", snapshot.getVariant());
+        assertEquals(100, snapshot.size());
+        assertEquals(rows(javaItems), rows(snapshot.items()));
+        assertEquals(snapshot.get(0), snapshot.get(1).getParent());
+        assertNull(snapshot.get(0).getParent());
+        assertEquals(List.of(snapshot.get(1)), new JavaItemIndex(snapshot.items()).children(snapshot.get(0)));
+    }
+
+    @Test
+    void keepsTheSourceFingerprint() throws Exception {
+        final Path file = Files.createTempDirectory("snapshot").resolve("scan.snapshot");
+        final JavaItemStore store = new JavaItemStore();
+        store.addAll(sampleItems());
+
+        JavaItemSnapshot.write(store, "FULL", "abc123", file);
+        final JavaItemSnapshot snapshot = JavaItemSnapshot.open(file);
+
+        assertEquals("abc123", snapshot.getFingerprint());
+        assertEquals("FULL", snapshot.getVariant());
+        assertEquals(rows(sampleItems()), rows(snapshot.items()));
+
+        JavaItemSnapshot.write(store, "FULL", file);
+        assertEquals("", JavaItemSnapshot.open(file).getFingerprint());
+    }
+
+    @Test
+    void emptySnapshot() throws Exception {
+        final Path file = Files.createTempDirectory("snapshot").resolve("empty.snapshot");
+        JavaItemSnapshot.write(List.of(), "DECLARATIONS", file);
+
+        final JavaItemSnapshot snapshot = JavaItemSnapshot.open(file);
+
+        assertEquals(0, snapshot.size());
+        assertEquals("DECLARATIONS", snapshot.getVariant());
+    }
+
+    @Test
+    void rejectsOtherFiles() throws Exception {
+        final Path file = Files.createTempFile("not", ".snapshot");
+        Files.write(file, new byte[64]);
+
+        assertThrows(IOException.class, () -> JavaItemSnapshot.open(file));
+    }
+}
@@ -0,0 +1,73 @@
+package com.cloudurable.docgen.index;
+
+import com.cloudurable.docgen.JavaItem;
+import com.cloudurable.docgen.JavaItemType;
+import com.cloudurable.docgen.scan.SourceScanner;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class JavaItemStoreTest {
+
+    private static List<String> rows(List<JavaItem> javaItems) {
+        return javaItems.stream().map(item -> String.join("|", item.row())).collect(Collectors.toList());
+    }
+
+    @Test
+    void viewsMatchTheScannedItems() throws Exception {
+        final Path dir = Files.createTempDirectory("store");
+        final List<Path> files = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            final Path file = dir.resolve("Sample" + i + ".java");
+            Files.writeString(file, "package sample;\n\nimport java.util.List;\n\n" +
+                    "/** Sample \u00e9 " + i + ". */\n" +
+                    "public class Sample" + i + " {\n" +
+                    "    private int count;\n\n" +
+                    "    public int add(int value) {\n" +
+                    "        return count + value; // \u2713\n" +
+                    "    }\n" +
+                    "}\n");
+            files.add(file);
+        }
+        final SourceScanner scanner = SourceScanner.builder().parallelism(2).build();
+        final List<JavaItem> scanned = scanner.scan(files);
+
+        final JavaItemStore store = new JavaItemStore(4);
+        scanner.scan(files, (file, javaItems) -> store.addAll(javaItems));
+        scanner.close();
+
+        assertEquals(scanned.size(), store.size());
+        assertEquals(rows(scanned), rows(store.items()));
+        assertEquals(JavaItemType.CLASS, store.type(0));
+        assertEquals(-1, store.parent(0));
+        assertEquals(0, store.parent(1));
+    }
+
+    @Test
+    void viewsOfTheSameIdAreEqualAndShareDictionaryStrings() {
+        final JavaItem cls = JavaItem.builder().type(JavaItemType.CLASS).name("a.Foo").simpleName("Foo")
+                .importBody("import java.util.List;").build();
+        final JavaItem method = JavaItem.builder().type(JavaItemType.METHOD).name("a.Foo.run").simpleName("run")
+                .importBody("import java.util.List;").body("void run() {}").parent(cls).build();
+        final JavaItemStore store = new JavaItemStore();
+        store.addAll(List.of(cls, method));
+
+        final JavaItem parent = store.get(1).getParent();
+        assertNotSame(store.get(0), parent);
+        assertEquals(store.get(0), parent);
+        assertEquals(store.get(0).hashCode(), parent.hashCode());
+        assertEquals(0, store.idOf(parent));
+        assertNull(store.get(0).getParent());
+        assertEquals("void run() {}", store.get(1).getBody());
+        assertEquals(store.importBody(0), store.importBody(1));
+        assertEquals(List.of(store.get(1)), new JavaItemIndex(store.items()).children(store.get(0)));
+    }
+}
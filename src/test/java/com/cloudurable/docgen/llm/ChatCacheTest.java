@@ -0,0 +1,89 @@
+package com.cloudurable.docgen.llm;
+
+import com.cloudurable.jai.model.text.completion.chat.ChatRequest;
+import com.cloudurable.jai.model.text.completion.chat.Message;
+import com.cloudurable.jai.model.text.completion.chat.Role;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ChatCacheTest {
+
+    private static ChatRequest request(String system, String user) {
+        return ChatRequest.builder()
+                .addMessage(Message.builder().role(Role.SYSTEM).content(system).build())
+                .addMessage(Message.builder().role(Role.USER).content(user).build())
+                .build();
+    }
+
+    @Test
+    void responsesSurviveReopening() throws Exception {
+        final Path dir = Files.createTempDirectory("chat-cache");
+        ChatCache.builder().directory(dir).build().put(request("docs", "describe foo"), "Foo does things.");
+
+        final ChatCache reopened = ChatCache.builder().directory(dir).build();
+
+        assertEquals("Foo does things.", reopened.get(request("docs", "describe foo")));
+        assertNull(reopened.get(request("docs", "describe bar")));
+        assertNull(reopened.get(request("javadoc", "describe foo")));
+        assertEquals(1, reopened.size());
+    }
+
+    @Test
+    void templateVersionIsPartOfTheKey() throws Exception {
+        final Path dir = Files.createTempDirectory("chat-cache");
+        ChatCache.builder().directory(dir).templateVersion("1").build().put(request("docs", "describe foo"), "old");
+
+        assertNull(ChatCache.builder().directory(dir).templateVersion("2").build().get(request("docs", "describe foo")));
+    }
+
+    @Test
+    void leastRecentlyUsedEntriesAreEvicted() throws Exception {
+        final Path dir = Files.createTempDirectory("chat-cache");
+        final ChatCache cache = ChatCache.builder().directory(dir).maxBytes(3 * 150).build();
+        final String response = "x".repeat(100);
+
+        cache.put(request("s", "a"), response);
+        cache.put(request("s", "b"), response);
+        cache.put(request("s", "c"), response);
+        cache.get(request("s", "a"));
+        cache.put(request("s", "d"), response);
+        cache.put(request("s", "e"), response);
+
+        assertEquals(response, cache.get(request("s", "a")));
+        assertNull(cache.get(request("s", "b")));
+        assertNull(cache.get(request("s", "c")));
+        assertEquals(3, cache.size());
+        assertEquals(3, Files.list(dir).count());
+    }
+
+    @Test
+    void expiredEntriesAreMissesAndCanBePruned() throws Exception {
+        final Path dir = Files.createTempDirectory("chat-cache");
+        final Instant start = Instant.parse("2024-01-01T00:00:00Z");
+        ChatCache.builder().directory(dir).clock(Clock.fixed(start, ZoneOffset.UTC)).build()
+                .put(request("s", "old"), "old");
+        ChatCache.builder().directory(dir).clock(Clock.fixed(start.plus(Duration.ofDays(3)), ZoneOffset.UTC)).build()
+                .put(request("s", "new"), "new");
+        final Clock later = Clock.fixed(start.plus(Duration.ofDays(4)), ZoneOffset.UTC);
+
+        final ChatCache withTtl = ChatCache.builder().directory(dir).ttl(Duration.ofDays(2)).clock(later).build();
+        assertNull(withTtl.get(request("s", "old")));
+        assertEquals("new", withTtl.get(request("s", "new")));
+
+        ChatCache.builder().directory(dir).clock(later).build().put(request("s", "old"), "old");
+        final ChatCache cache = ChatCache.builder().directory(dir).clock(later).build();
+        assertEquals(1, cache.prune(Duration.ofHours(12)));
+        assertEquals("old", cache.get(request("s", "old")));
+        assertEquals(1, cache.clear());
+        assertEquals(0, Files.list(dir).count());
+    }
+}
@@ -0,0 +1,142 @@
+package com.cloudurable.docgen.llm;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTest {
+
+    private static final long MINUTE = TimeUnit.MINUTES.toNanos(1);
+
+    private static CircuitBreaker breaker(AtomicLong now, int failureThreshold, int halfOpenProbes) {
+        return CircuitBreaker.builder().failureThreshold(failureThreshold).halfOpenProbes(halfOpenProbes)
+                .openDuration(Duration.ofMinutes(1)).maxWait(Duration.ZERO).nanoTime(now::get).build();
+    }
+
+    @Test
+    void opensAfterConsecutiveFailures() throws Exception {
+        final CircuitBreaker breaker = breaker(new AtomicLong(), 3, 1);
+
+        breaker.onFailure(breaker.acquire());
+        breaker.onFailure(breaker.acquire());
+        breaker.onSuccess(breaker.acquire());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        for (int i = 0; i < 3; i++) {
+            breaker.onFailure(breaker.acquire());
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertThrows(CircuitOpenException.class, breaker::acquire);
+    }
+
+    @Test
+    void probesCloseTheBreakerAfterTheOpenPeriod() {
+        final AtomicLong now = new AtomicLong();
+        final CircuitBreaker breaker = breaker(now, 1, 2);
+        breaker.onFailure(breaker.tryAcquire());
+
+        now.addAndGet(MINUTE - 1);
+        assertNull(breaker.tryAcquire());
+        now.addAndGet(1);
+        final CircuitBreaker.Permit first = breaker.tryAcquire();
+        final CircuitBreaker.Permit second = breaker.tryAcquire();
+        assertTrue(first.isProbe());
+        assertTrue(second.isProbe());
+        assertNull(breaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        breaker.onSuccess(first);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        breaker.onSuccess(second);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertFalse(breaker.tryAcquire().isProbe());
+    }
+
+    @Test
+    void failedProbeReopens() {
+        final AtomicLong now = new AtomicLong();
+        final CircuitBreaker breaker = breaker(now, 1, 1);
+        breaker.onFailure(breaker.tryAcquire());
+
+        now.addAndGet(MINUTE);
+        breaker.onFailure(breaker.tryAcquire());
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertNull(breaker.tryAcquire());
+        now.addAndGet(MINUTE);
+        assertNotNull(breaker.tryAcquire());
+    }
+
+    @Test
+    void releasedProbeFreesItsSlotWithoutClosing() {
+        final AtomicLong now = new AtomicLong();
+        final CircuitBreaker breaker = breaker(now, 1, 1);
+        breaker.onFailure(breaker.tryAcquire());
+        now.addAndGet(MINUTE);
+
+        breaker.release(breaker.tryAcquire());
+
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.tryAcquire().isProbe());
+    }
+
+    @Test
+    void requestsFromBeforeTheBreakerOpenedAreIgnored() {
+        final AtomicLong now = new AtomicLong();
+        final CircuitBreaker breaker = breaker(now, 1, 1);
+        final CircuitBreaker.Permit slowSuccess = breaker.tryAcquire();
+        final CircuitBreaker.Permit slowFailure = breaker.tryAcquire();
+        breaker.onFailure(breaker.tryAcquire());
+        now.addAndGet(MINUTE);
+        final CircuitBreaker.Permit probe = breaker.tryAcquire();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        breaker.onSuccess(slowSuccess);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        breaker.onFailure(slowFailure);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertNull(breaker.tryAcquire());
+
+        breaker.onSuccess(probe);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void closingReleasesParkedCallers() throws Exception {
+        final AtomicLong now = new AtomicLong();
+        final CircuitBreaker breaker = CircuitBreaker.builder().failureThreshold(1).openDuration(Duration.ofMinutes(1))
+                .maxWait(Duration.ofMinutes(10)).nanoTime(now::get).build();
+        breaker.onFailure(breaker.tryAcquire());
+        now.addAndGet(MINUTE);
+        final CircuitBreaker.Permit probe = breaker.tryAcquire();
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        final Future<CircuitBreaker.Permit> parked = executor.submit(breaker::acquire);
+        breaker.onSuccess(probe);
+
+        assertFalse(parked.get(5, TimeUnit.SECONDS).isProbe());
+        executor.shutdown();
+    }
+
+    @Test
+    void parkedCallersGiveUpAfterMaxWait() {
+        final AtomicLong now = new AtomicLong();
+        final CircuitBreaker breaker = breaker(now, 1, 1);
+        breaker.onFailure(breaker.tryAcquire());
+
+        now.addAndGet(MINUTE / 2);
+        assertThrows(CircuitOpenException.class, breaker::acquire);
+    }
+}
@@ -0,0 +1,224 @@
+package com.cloudurable.docgen.llm;
+
+import com.cloudurable.jai.model.ClientResponse;
+import com.cloudurable.jai.model.text.completion.chat.ChatRequest;
+import com.cloudurable.jai.model.text.completion.chat.ChatResponse;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LlmGatewayTest {
+
+    static ClientResponse<ChatRequest, ChatResponse> response(ChatRequest request, int statusCode) {
+        return response(request, statusCode, null);
+    }
+
+    static ClientResponse<ChatRequest, ChatResponse> response(ChatRequest request, int statusCode, String statusMessage) {
+        return new ClientResponse<>() {
+            @Override
+            public Optional<ChatResponse> getResponse() {
+                return Optional.empty();
+            }
+
+            @Override
+            public Optional<Throwable> getException() {
+                return Optional.empty();
+            }
+
+            @Override
+            public Optional<String> getStatusMessage() {
+                return Optional.ofNullable(statusMessage);
+            }
+
+            @Override
+            public Optional<Integer> getStatusCode() {
+                return Optional.of(statusCode);
+            }
+
+            @Override
+            public ChatRequest getRequest() {
+                return request;
+            }
+        };
+    }
+
+    @Test
+    void concurrentRequestsAreCapped() throws Exception {
+        final AtomicInteger active = new AtomicInteger();
+        final AtomicInteger maxActive = new AtomicInteger();
+        final LlmGateway gateway = LlmGateway.builder().maxConcurrentRequests(3).client(request -> {
+            maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            active.decrementAndGet();
+            return response(request, 200);
+        }).build();
+
+        final ExecutorService executor = Executors.newFixedThreadPool(12);
+        final List<Future<ClientResponse<ChatRequest, ChatResponse>>> futures = new ArrayList<>();
+        final ChatRequest request = ChatRequest.builder().build();
+        for (int i = 0; i < 24; i++) {
+            futures.add(executor.submit(() -> gateway.chat(request)));
+        }
+        for (Future<ClientResponse<ChatRequest, ChatResponse>> future : futures) {
+            assertSame(request, future.get().getRequest());
+        }
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+
+        assertEquals(3, maxActive.get());
+        assertEquals(0, gateway.getActiveRequests());
+    }
+
+    @Test
+    void unavailableResponsesAreRetriedUpToTheLimit() {
+        final AtomicInteger calls = new AtomicInteger();
+        final LlmGateway gateway = LlmGateway.builder()
+                .retryPolicy(RetryPolicy.builder().maxRetries(3).initialBackoff(Duration.ofMillis(1)).build())
+                .circuitBreaker(CircuitBreaker.builder().failureThreshold(100).build())
+                .client(request -> response(request, calls.incrementAndGet() < 3 ? 503 : 200)).build();
+
+        assertEquals(200, (int) gateway.chat(ChatRequest.builder().build()).getStatusCode().orElse(0));
+        assertEquals(3, calls.get());
+
+        calls.set(-100);
+        assertEquals(503, (int) gateway.chat(ChatRequest.builder().build()).getStatusCode().orElse(0));
+        assertEquals(-96, calls.get());
+    }
+
+    @Test
+    void clientErrorsAreNotRetried() {
+        final AtomicInteger calls = new AtomicInteger();
+        final LlmGateway gateway = LlmGateway.builder()
+                .client(request -> response(request, 400 + calls.incrementAndGet() - 1)).build();
+
+        assertEquals(400, (int) gateway.chat(ChatRequest.builder().build()).getStatusCode().orElse(0));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void retryHintIsReadFromTheErrorMessage() {
+        final ChatRequest request = ChatRequest.builder().build();
+
+        assertEquals(Optional.of(Duration.ofMillis(20_000)), LlmGateway.retryAfter(response(request, 429,
+                "Rate limit reached for requests. Please try again in 20s.")));
+        assertEquals(Optional.of(Duration.ofMillis(1_500)), LlmGateway.retryAfter(response(request, 429,
+                "Please try again in 1.5s")));
+        assertEquals(Optional.of(Duration.ofMillis(6)), LlmGateway.retryAfter(response(request, 429,
+                "Please try again in 6ms")));
+        assertEquals(Optional.empty(), LlmGateway.retryAfter(response(request, 503, "overloaded")));
+    }
+
+    @Test
+    void backoffGrowsWithJitterUpToTheCap() {
+        final RetryPolicy policy = RetryPolicy.builder()
+                .initialBackoff(Duration.ofMillis(100)).maxBackoff(Duration.ofMillis(1_000)).build();
+
+        for (int i = 0; i < 20; i++) {
+            final long first = policy.backoff(0).toMillis();
+            final long third = policy.backoff(2).toMillis();
+            final long capped = policy.backoff(10).toMillis();
+            assertTrue(first >= 50 && first <= 100, "first " + first);
+            assertTrue(third >= 200 && third <= 400, "third " + third);
+            assertTrue(capped >= 500 && capped <= 1_000, "capped " + capped);
+        }
+    }
+
+    @Test
+    void rateLimitsDoNotOpenTheCircuit() {
+        final ChatRequest request = ChatRequest.builder().build();
+        final RetryPolicy policy = RetryPolicy.builder().build();
+
+        assertTrue(policy.isRetryable(response(request, 429)));
+        assertFalse(policy.isFailure(response(request, 429)));
+        assertTrue(policy.isFailure(response(request, 503)));
+        assertFalse(policy.isRetryable(response(request, 400)));
+        assertFalse(policy.isFailure(response(request, 400)));
+    }
+
+    @Test
+    void failingEndpointOpensTheCircuitAndFailsFast() {
+        final AtomicInteger calls = new AtomicInteger();
+        final LlmGateway gateway = LlmGateway.builder()
+                .retryPolicy(RetryPolicy.builder().maxRetries(10).initialBackoff(Duration.ofMillis(1)).build())
+                .circuitBreaker(CircuitBreaker.builder().failureThreshold(3)
+                        .openDuration(Duration.ofMinutes(1)).maxWait(Duration.ZERO).build())
+                .client(request -> {
+                    calls.incrementAndGet();
+                    return response(request, 500);
+                }).build();
+
+        assertThrows(CircuitOpenException.class, () -> gateway.chat(ChatRequest.builder().build()));
+        assertEquals(3, calls.get());
+        assertEquals(CircuitBreaker.State.OPEN, gateway.getCircuitBreaker().getState());
+
+        assertThrows(CircuitOpenException.class, () -> gateway.chat(ChatRequest.builder().build()));
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    void openCircuitSpendsNoRateBudget() throws Exception {
+        final AtomicLong now = new AtomicLong();
+        final RateLimiter rateLimiter = new RateLimiter(1, 0, now::get);
+        final LlmGateway gateway = LlmGateway.builder().rateLimiter(rateLimiter)
+                .circuitBreaker(CircuitBreaker.builder().failureThreshold(1).openDuration(Duration.ofMinutes(1))
+                        .maxWait(Duration.ZERO).nanoTime(now::get).build())
+                .client(request -> response(request, 200)).build();
+        gateway.getCircuitBreaker().onFailure(gateway.getCircuitBreaker().acquire());
+
+        assertThrows(CircuitOpenException.class, () -> gateway.chat(ChatRequest.builder().build()));
+        assertEquals(0, rateLimiter.tryAcquire(1));
+    }
+
+    @Test
+    void rateLimitedProbeDoesNotCloseTheCircuit() throws Exception {
+        final AtomicLong now = new AtomicLong();
+        final LlmGateway gateway = LlmGateway.builder()
+                .retryPolicy(RetryPolicy.builder().maxRetries(0).build())
+                .circuitBreaker(CircuitBreaker.builder().failureThreshold(1).openDuration(Duration.ofMinutes(1))
+                        .maxWait(Duration.ZERO).nanoTime(now::get).build())
+                .client(request -> response(request, 429)).build();
+        final CircuitBreaker breaker = gateway.getCircuitBreaker();
+        breaker.onFailure(breaker.acquire());
+        now.addAndGet(TimeUnit.MINUTES.toNanos(1));
+
+        assertEquals(429, (int) gateway.chat(ChatRequest.builder().build()).getStatusCode().orElse(0));
+
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.acquire().isProbe());
+    }
+
+    @Test
+    void failedCacheWritesAreIgnored() throws Exception {
+        final Path dir = Files.createTempDirectory("chat-cache");
+        final LlmGateway gateway = LlmGateway.builder().cache(ChatCache.builder().directory(dir).build())
+                .client(request -> response(request, 200)).build();
+        Files.delete(dir);
+        final ChatRequest request = ChatRequest.builder().build();
+
+        gateway.cache(request, "Foo does things.");
+
+        assertNull(gateway.cached(request));
+    }
+}
@@ -0,0 +1,62 @@
+package com.cloudurable.docgen.llm;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void requestBudgetAllowsABurstThenRefillsEvenly() {
+        final AtomicLong now = new AtomicLong();
+        final RateLimiter limiter = new RateLimiter(60, 0, now::get);
+
+        for (int i = 0; i < 60; i++) {
+            assertEquals(0, limiter.tryAcquire(100));
+        }
+        final long wait = limiter.tryAcquire(100);
+        assertEquals(SECOND, wait);
+
+        now.addAndGet(wait);
+        assertEquals(0, limiter.tryAcquire(100));
+    }
+
+    @Test
+    void tokenBudgetHoldsLargeRequests() {
+        final AtomicLong now = new AtomicLong();
+        final RateLimiter limiter = new RateLimiter(0, 6_000, now::get);
+
+        assertEquals(0, limiter.tryAcquire(5_000));
+        assertEquals(10 * SECOND, limiter.tryAcquire(2_000));
+        now.addAndGet(10 * SECOND);
+        assertEquals(0, limiter.tryAcquire(2_000));
+        now.addAndGet(60 * SECOND);
+        assertEquals(0, limiter.tryAcquire(1_000_000));
+    }
+
+    @Test
+    void pauseHoldsEveryCaller() {
+        final AtomicLong now = new AtomicLong();
+        final RateLimiter limiter = new RateLimiter(0, 0, now::get);
+
+        limiter.pause(Duration.ofSeconds(5));
+        limiter.pause(Duration.ofSeconds(2));
+
+        assertEquals(5 * SECOND, limiter.tryAcquire(1));
+        now.addAndGet(5 * SECOND);
+        assertEquals(0, limiter.tryAcquire(1));
+    }
+
+    @Test
+    void tokensAreEstimatedFromLengthAndCompletionBudget() {
+        assertEquals(250 + 2000, RateLimiter.estimateTokens(1000, 2000));
+        assertTrue(RateLimiter.estimateTokens(1, 0) >= 1);
+    }
+}
@@ -0,0 +1,74 @@
+package com.cloudurable.docgen.scan;
+
+import com.cloudurable.docgen.ClassVisitor;
+import com.cloudurable.docgen.JavaItem;
+import com.github.javaparser.JavaParser;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class ParseCacheTest {
+
+    @Test
+    void unchangedFilesAreNotParsedAgain() throws Exception {
+        final Path dir = Files.createTempDirectory("cache");
+        final Path file = SourceScannerTest.writeSources(dir, 1).get(0);
+        final AtomicInteger parses = new AtomicInteger();
+        final Function<String, List<JavaItem>> parser = source -> {
+            parses.incrementAndGet();
+            return new ClassVisitor().run(new JavaParser(), source);
+        };
+
+        final List<JavaItem> first = new ParseCache(dir.resolve("cache")).load(file, "FULL", parser);
+        final List<JavaItem> second = new ParseCache(dir.resolve("cache")).load(file, "FULL", parser);
+
+        assertEquals(1, parses.get());
+        assertEquals(first.size(), second.size());
+        for (int i = 0; i < first.size(); i++) {
+            assertEquals(first.get(i).row(), second.get(i).row());
+        }
+        assertSame(second.get(0), second.get(1).getParent());
+    }
+
+    @Test
+    void touchedFileWithSameContentIsNotParsedAgain() throws Exception {
+        final Path dir = Files.createTempDirectory("cache");
+        final Path file = SourceScannerTest.writeSources(dir, 1).get(0);
+        final ParseCache cache = new ParseCache(dir.resolve("cache"));
+        final AtomicInteger parses = new AtomicInteger();
+        final Function<String, List<JavaItem>> parser = source -> {
+            parses.incrementAndGet();
+            return new ClassVisitor().run(new JavaParser(), source);
+        };
+
+        cache.load(file, "FULL", parser);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 60_000));
+        cache.load(file, "FULL", parser);
+        assertEquals(1, parses.get());
+
+        Files.writeString(file, "package other;\n\npublic class Changed {\n}\n");
+        final List<JavaItem> changed = cache.load(file, "FULL", parser);
+        assertEquals(2, parses.get());
+        assertEquals("other.Changed", changed.get(0).getName());
+    }
+
+    @Test
+    void unwritableCacheStillReturnsTheParsedItems() throws Exception {
+        final Path dir = Files.createTempDirectory("cache");
+        final Path file = SourceScannerTest.writeSources(dir, 1).get(0);
+        final Path notADirectory = Files.writeString(dir.resolve("cache"), "");
+
+        final List<JavaItem> javaItems = new ParseCache(notADirectory).load(file, "FULL",
+                source -> new ClassVisitor().run(new JavaParser(), source));
+
+        assertEquals(new ClassVisitor().run(new JavaParser(), Files.readString(file)).size(), javaItems.size());
+    }
+}
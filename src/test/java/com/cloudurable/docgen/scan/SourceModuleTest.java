@@ -0,0 +1,70 @@
+package com.cloudurable.docgen.scan;
+
+import com.cloudurable.docgen.JavaItem;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SourceModuleTest {
+
+    private static Path module(Path root, String name) throws Exception {
+        final Path dir = root.resolve(name);
+        Files.createDirectories(dir.resolve("src/main/java"));
+        Files.createDirectories(dir.resolve("src/test/java"));
+        Files.writeString(dir.resolve("build.gradle"), "");
+        return dir;
+    }
+
+    @Test
+    void findsNestedModulesAndSkipsBuildOutput() throws Exception {
+        final Path root = Files.createTempDirectory("modules");
+        Files.writeString(root.resolve("settings.gradle"), "");
+        module(root, "core");
+        module(root, "services/api");
+        module(root, "services/impl");
+        Files.createDirectories(root.resolve("core/build/generated/src/main/java"));
+        Files.createDirectories(root.resolve("node_modules/pkg/src/main/java"));
+
+        final List<String> names = SourceModule.discover(root).stream()
+                .map(SourceModule::getName).sorted().collect(Collectors.toList());
+
+        assertEquals(List.of("core", "services/api", "services/impl"), names);
+    }
+
+    @Test
+    void plainSourceTreeIsOneModule() throws Exception {
+        final Path root = Files.createTempDirectory("plain");
+        SourceScannerTest.writeSources(root, 2);
+
+        final List<SourceModule> modules = SourceModule.discover(root);
+
+        assertEquals(1, modules.size());
+        assertEquals(root, modules.get(0).getSourceRoot());
+    }
+
+    @Test
+    void scanAllKeepsItemsPerModule() throws Exception {
+        final Path root = Files.createTempDirectory("modules");
+        final Path core = module(root, "core");
+        final Path api = module(root, "api");
+        final Map<String, List<Path>> filesByModule = new LinkedHashMap<>();
+        filesByModule.put("core", SourceScannerTest.writeSources(Files.createDirectories(core.resolve("src/main/java/c")), 5));
+        filesByModule.put("api", SourceScannerTest.writeSources(Files.createDirectories(api.resolve("src/main/java/a")), 2));
+
+        final Map<String, List<JavaItem>> javaItems;
+        try (SourceScanner scanner = SourceScanner.builder().parallelism(3).batchSize(1).build()) {
+            javaItems = scanner.scanAll(filesByModule);
+        }
+
+        assertEquals(List.of("core", "api"), List.copyOf(javaItems.keySet()));
+        assertEquals(15, javaItems.get("core").size());
+        assertEquals(6, javaItems.get("api").size());
+    }
+}
@@ -0,0 +1,55 @@
+package com.cloudurable.docgen.scan;
+
+import com.cloudurable.docgen.JavaItem;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SourceRootTest {
+
+    private static List<String> rows(List<JavaItem> javaItems) {
+        return javaItems.stream().map(item -> String.join("|", item.row())).sorted().collect(Collectors.toList());
+    }
+
+    @Test
+    void sourcesJarScansLikeTheExtractedDirectory() throws Exception {
+        final Path dir = Files.createTempDirectory("extracted");
+        final List<Path> files = SourceScannerTest.writeSources(Files.createDirectories(dir.resolve("sample")), 4);
+        final Path jar = Files.createTempDirectory("archive").resolve("sample-sources.jar");
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jar))) {
+            out.putNextEntry(new ZipEntry("META-INF/MANIFEST.MF"));
+            out.closeEntry();
+            for (Path file : files) {
+                out.putNextEntry(new ZipEntry("sample/" + file.getFileName()));
+                out.write(Files.readAllBytes(file));
+                out.closeEntry();
+            }
+        }
+
+        final SourceScanner scanner = SourceScanner.builder().parallelism(2).build();
+        final SourceWalker walker = SourceWalker.builder().build();
+        final List<JavaItem> fromDirectory = scanner.scan(walker.walk(dir));
+        final List<JavaItem> fromJar;
+        try (SourceRoot root = SourceRoot.open(jar)) {
+            final List<Path> entries = walker.walk(root.getPath());
+            assertEquals(4, entries.size());
+            fromJar = scanner.scan(entries);
+        }
+        scanner.close();
+
+        assertTrue(SourceRoot.isArchive(jar));
+        assertFalse(SourceRoot.isArchive(dir));
+        assertEquals(12, fromJar.size());
+        assertEquals(rows(fromDirectory), rows(fromJar));
+    }
+}
@@ -0,0 +1,145 @@
+package com.cloudurable.docgen.scan;
+
+import com.cloudurable.docgen.ClassVisitor;
+import com.cloudurable.docgen.JavaItem;
+import com.cloudurable.docgen.ScanMode;
+import com.github.javaparser.JavaParser;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SourceScannerTest {
+
+    static List<Path> writeSources(Path dir, int count) throws Exception {
+        final List<Path> files = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            final Path file = dir.resolve("Sample" + i + ".java");
+            Files.writeString(file, "package sample.p" + (i % 3) + ";\n\n" +
+                    "import java.util.List;\n\n" +
+                    "/** Sample " + i + ". */\n" +
+                    "public class Sample" + i + " {\n" +
+                    "    private int count = " + i + ";\n\n" +
+                    "    /** Adds. */\n" +
+                    "    public int add(int value) {\n" +
+                    "        return count + value;\n" +
+                    "    }\n" +
+                    "}\n");
+            files.add(file);
+        }
+        return files;
+    }
+
+    private static List<String> rows(List<JavaItem> javaItems) {
+        return javaItems.stream().map(item -> String.join("|", item.row())).collect(Collectors.toList());
+    }
+
+    @Test
+    void parallelScanMatchesSequentialOrder() throws Exception {
+        final Path dir = Files.createTempDirectory("scanner");
+        final List<Path> files = writeSources(dir, 40);
+
+        final List<JavaItem> sequential = new ArrayList<>();
+        for (Path file : files) {
+            sequential.addAll(new ClassVisitor().run(new JavaParser(), file));
+        }
+
+        final List<JavaItem> parallel;
+        try (SourceScanner scanner = SourceScanner.builder().parallelism(4).batchSize(1).build()) {
+            parallel = scanner.scan(files);
+        }
+
+        assertEquals(120, parallel.size());
+        assertEquals(rows(sequential), rows(parallel));
+    }
+
+    @Test
+    void streamingScanEmitsFilesInOrder() throws Exception {
+        final Path dir = Files.createTempDirectory("scanner");
+        final List<Path> files = writeSources(dir, 25);
+        try (SourceScanner scanner = SourceScanner.builder().parallelism(4).window(3).build()) {
+            final List<Path> seen = new ArrayList<>();
+            final List<JavaItem> streamed = new ArrayList<>();
+            scanner.scan(files, (file, javaItems) -> {
+                seen.add(file);
+                streamed.addAll(javaItems);
+            });
+
+            assertEquals(files, seen);
+            assertEquals(rows(scanner.scan(files)), rows(streamed));
+        }
+    }
+
+    @Test
+    void sinkFailureIsRethrown() throws Exception {
+        final Path dir = Files.createTempDirectory("scanner");
+        final List<Path> files = writeSources(dir, 20);
+        final ForkJoinPool pool = new ForkJoinPool(2);
+        try (SourceScanner scanner = SourceScanner.builder().pool(pool).window(8).build()) {
+            assertThrows(IllegalStateException.class, () -> scanner.scan(files, (file, javaItems) -> {
+                throw new IllegalStateException("sink failed");
+            }));
+        }
+        assertTrue(pool.awaitQuiescence(10, TimeUnit.SECONDS));
+        pool.shutdown();
+    }
+
+    @Test
+    void closeShutsDownOnlyAnOwnedPool() throws Exception {
+        final Path dir = Files.createTempDirectory("scanner");
+        final List<Path> files = writeSources(dir, 2);
+        final ForkJoinPool pool = new ForkJoinPool(2);
+        try (SourceScanner scanner = SourceScanner.builder().pool(pool).build()) {
+            scanner.scan(files);
+        }
+        assertFalse(pool.isShutdown());
+        pool.shutdown();
+
+        final SourceScanner owning = SourceScanner.builder().parallelism(2).build();
+        owning.withMode(ScanMode.DECLARATIONS).close();
+        assertEquals(6, owning.scan(files).size());
+        owning.close();
+        assertThrows(RejectedExecutionException.class, () -> owning.scan(files));
+    }
+
+    @Test
+    void identicalImportBlocksAreShared() throws Exception {
+        final Path dir = Files.createTempDirectory("scanner");
+        final List<JavaItem> javaItems;
+        try (SourceScanner scanner = SourceScanner.builder().parallelism(2).batchSize(1).build()) {
+            javaItems = scanner.scan(writeSources(dir, 6));
+        }
+
+        final List<JavaItem> classes = javaItems.stream().filter(item -> item.getParent() == null).collect(Collectors.toList());
+        assertEquals(6, classes.size());
+        for (JavaItem cls : classes) {
+            assertSame(classes.get(0).getImportBody(), cls.getImportBody());
+        }
+    }
+
+    @Test
+    void badFilesAreSkipped() throws Exception {
+        final Path dir = Files.createTempDirectory("scanner");
+        final List<Path> files = new ArrayList<>(writeSources(dir, 2));
+        final Path broken = dir.resolve("Broken.java");
+        Files.writeString(broken, "public class Broken {");
+        files.add(1, broken);
+
+        final List<JavaItem> javaItems = SourceScanner.builder().build().scan(files);
+
+        assertEquals(6, javaItems.size());
+        assertEquals("sample.p0.Sample0", javaItems.get(0).getName());
+    }
+}
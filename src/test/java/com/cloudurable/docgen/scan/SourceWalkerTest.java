@@ -0,0 +1,83 @@
+package com.cloudurable.docgen.scan;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class SourceWalkerTest {
+
+    private static Path tree() throws Exception {
+        final Path root = Files.createTempDirectory("walker");
+        Files.writeString(root.resolve("build.gradle"), "");
+        Files.writeString(root.resolve(".gitignore"), "# comment\nscratch/\n*.tmp.java\n");
+        for (String file : List.of(
+                "src/main/java/a/A.java",
+                "src/main/java/com/build/B.java",
+                "src/main/java/a/notes.txt",
+                "build/generated/Generated.java",
+                "node_modules/pkg/Module.java",
+                ".git/objects/Git.java",
+                "gen/Excluded.java",
+                "scratch/Scratch.java",
+                "src/main/java/a/Work.tmp.java")) {
+            final Path path = root.resolve(file);
+            Files.createDirectories(path.getParent());
+            Files.writeString(path, "class X {}");
+        }
+        return root;
+    }
+
+    private static Set<String> relative(Path root, List<Path> files) {
+        return files.stream().map(file -> root.relativize(file).toString().replace('\\', '/')).collect(Collectors.toSet());
+    }
+
+    @Test
+    void skipsBuildOutputAndExcludedDirectories() throws Exception {
+        final Path root = tree();
+
+        final List<Path> files = SourceWalker.builder().excludes(List.of("gen")).build().walk(root);
+
+        assertEquals(Set.of("src/main/java/a/A.java", "src/main/java/com/build/B.java",
+                "scratch/Scratch.java", "src/main/java/a/Work.tmp.java"), relative(root, files));
+    }
+
+    @Test
+    void honorsGitignore() throws Exception {
+        final Path root = tree();
+
+        final List<Path> files = SourceWalker.builder().excludes(List.of("gen")).honorGitignore(true).build().walk(root);
+
+        assertEquals(Set.of("src/main/java/a/A.java", "src/main/java/com/build/B.java"), relative(root, files));
+    }
+
+    @Test
+    void fingerprintChangesWithTheFileListAndSettings() throws Exception {
+        final Path root = tree();
+        final SourceWalker walker = SourceWalker.builder().build();
+        final String fingerprint = walker.fingerprint(walker.walk(root));
+
+        assertEquals(fingerprint, walker.fingerprint(walker.walk(root)));
+
+        // An added file with an old modification time, as after a checkout, is still seen.
+        final Path added = root.resolve("src/main/java/a/Added.java");
+        Files.writeString(added, "class Added {}");
+        Files.setLastModifiedTime(added, FileTime.fromMillis(0));
+        final String withAdded = walker.fingerprint(walker.walk(root));
+        assertNotEquals(fingerprint, withAdded);
+
+        Files.delete(root.resolve("src/main/java/com/build/B.java"));
+        assertNotEquals(withAdded, walker.fingerprint(walker.walk(root)));
+
+        final SourceWalker honoring = SourceWalker.builder().honorGitignore(true).build();
+        final List<Path> files = walker.walk(root);
+        assertNotEquals(walker.fingerprint(files), honoring.fingerprint(files));
+    }
+}